@@ -16,27 +16,40 @@ import java.util.regex.Pattern;
 import Project.Common.Cell;
 import Project.Client.Interfaces.IClientEvents;
 import Project.Client.Interfaces.IConnectionEvents;
+import Project.Client.Interfaces.IHistoryEvents;
 import Project.Client.Interfaces.IMessageEvents;
 import Project.Client.Interfaces.IPhaseEvent;
 import Project.Client.Interfaces.IPointsEvent;
 import Project.Client.Interfaces.IReadyEvent;
+import Project.Client.Interfaces.IRoomDirectoryEvents;
 import Project.Client.Interfaces.IRoomEvents;
+import Project.Client.Interfaces.IRosterEvents;
 import Project.Client.Interfaces.ITimeEvents;
 import Project.Client.Interfaces.ITurnEvent;
+import Project.Common.BatchPayload;
 import Project.Common.Command;
 import Project.Common.ConnectionPayload;
 import Project.Common.Constants;
 import Project.Common.CoordPayload;
 import Project.Common.Grid;
+import Project.Common.HistoryPayload;
+import Project.Common.Html;
 import Project.Common.LoggerUtil;
 import Project.Common.Payload;
+import Project.Common.PayloadCodec;
 import Project.Common.PayloadType;
 import Project.Common.Phase;
 import Project.Common.PointsPayload;
+import Project.Common.PresencePayload;
+import Project.Common.PrivateMessagePayload;
 import Project.Common.ReadyPayload;
 import Project.Common.RoomAction;
+import Project.Common.RoomDirectoryPayload;
 import Project.Common.RoomResultPayload;
+import Project.Common.RosterPayload;
+import Project.Common.RosterPayload.RosterEntry;
 import Project.Common.TextFX;
+import Project.Common.TopicPayload;
 import Project.Common.User;
 import Project.Common.TextFX.Color;
 import Project.Common.TimerPayload;
@@ -73,6 +86,13 @@ public enum Client {
     private static List<IClientEvents> events = new ArrayList<IClientEvents>();
     private String currentRoom;
     private Grid grid = new Grid(); // added grid for client, yaw4 12/11 init grid
+    private PayloadCodec codec = new PayloadCodec();
+    private boolean requestCompression = true; // asked for during the handshake
+    private volatile boolean isCompressing = false; // true once the server confirmed
+    private int writesSinceReset = 0; // see Constants.STREAM_RESET_INTERVAL
+    // oldest chat history message received for the current room (-1 for none)
+    private volatile long oldestHistorySeq = -1;
+    private volatile boolean hasMoreHistory = false;
 
     private void error(String message) {
         LoggerUtil.INSTANCE.severe(TextFX.colorize(String.format("%s", message), Color.RED));
@@ -83,6 +103,15 @@ public enum Client {
         LoggerUtil.INSTANCE.info("Client Created");
     }
 
+    /**
+     * Whether to ask the server for compression on the next connect
+     * 
+     * @param requestCompression
+     */
+    public void setRequestCompression(boolean requestCompression) {
+        this.requestCompression = requestCompression;
+    }
+
     public void registerCallback(IClientEvents e) {
         events.add(e);
     }
@@ -152,6 +181,9 @@ public enum Client {
     public boolean connect(String address, int port, String username) {
         myUser.setClientName(username);
         try {
+            codec = new PayloadCodec(); // compression state is per connection
+            isCompressing = false;
+            writesSinceReset = 0;
             server = new Socket(address, port);
             // channel to send to server
             out = new ObjectOutputStream(server.getOutputStream());
@@ -288,6 +320,46 @@ public enum Client {
 
                 sendDoTurn(text);
                 wasCommand = true;
+            } else if (text.startsWith(Command.PRIVATE_MESSAGE.command + " ")) {
+                // /pm <name|name#id|#id> <message>
+                String[] parts = text.substring(Command.PRIVATE_MESSAGE.command.length()).trim().split(" ", 2);
+                if (parts.length != 2 || parts[1].isBlank()) {
+                    LoggerUtil.INSTANCE.warning(TextFX.colorize("Usage: /pm <name or name#id> <message>", Color.RED));
+                    return true;
+                }
+                sendPrivateMessage(parts[0], parts[1].trim());
+                wasCommand = true;
+            } else if (text.startsWith(Command.MUTE.command + " ") || text.startsWith(Command.UNMUTE.command + " ")) {
+                // /mute <chat|game-events|timers|game-state|team:name> (unmuting a team joins it)
+                boolean isMuting = text.startsWith(Command.MUTE.command + " ");
+                String topic = text.substring((isMuting ? Command.MUTE : Command.UNMUTE).command.length()).trim();
+                if (topic.isEmpty()) {
+                    LoggerUtil.INSTANCE.warning(TextFX.colorize("Usage: /mute <channel> or /unmute <channel>", Color.RED));
+                    return true;
+                }
+                sendSubscription(topic, !isMuting);
+                wasCommand = true;
+            } else if (text.startsWith(Command.MODE.command + " ")) {
+                // /mode <turns|simultaneous|auto> for the next session's attack rounds
+                sendAttackMode(text.substring(Command.MODE.command.length()).trim());
+                wasCommand = true;
+            } else if (text.equalsIgnoreCase(Command.ADD_BOT.command) || text.startsWith(Command.ADD_BOT.command + " ")) {
+                // /addbot [count] fills the GameRoom with bot players
+                sendAddBots(text.substring(Command.ADD_BOT.command.length()).trim());
+                wasCommand = true;
+            } else if (text.equalsIgnoreCase(Command.HISTORY.command)) {
+                // /history loads the page of chat before the oldest message shown
+                sendHistoryRequest();
+                wasCommand = true;
+            } else if (text.startsWith(Command.TEAM_MESSAGE.command + " ")) {
+                // /t <team> <message>
+                String[] parts = text.substring(Command.TEAM_MESSAGE.command.length()).trim().split(" ", 2);
+                if (parts.length != 2 || parts[1].isBlank()) {
+                    LoggerUtil.INSTANCE.warning(TextFX.colorize("Usage: /t <team> <message>", Color.RED));
+                    return true;
+                }
+                sendTeamMessage(parts[0], parts[1].trim());
+                wasCommand = true;
             }
             else if(text.startsWith(Command.PLACE.command))
             {
@@ -363,6 +435,20 @@ public enum Client {
         sendToServer(attcp);
     }
 
+    private void sendAttackMode(String mode) throws IOException {
+        Payload payload = new Payload();
+        payload.setPayloadType(PayloadType.ATTACK_MODE);
+        payload.setMessage(mode);
+        sendToServer(payload);
+    }
+
+    private void sendAddBots(String count) throws IOException {
+        Payload payload = new Payload();
+        payload.setPayloadType(PayloadType.ADD_BOT);
+        payload.setMessage(count);
+        sendToServer(payload);
+    }
+
     private void sendSkip() throws IOException  // added yaw4 12/11, sends skip payload
     {
         Payload payload = new Payload();
@@ -445,6 +531,89 @@ public enum Client {
 
     }
 
+    /**
+     * Sends a direct message to another client (in any Room)
+     * 
+     * @param target  name, name#id or #id of the recipient
+     * @param message
+     * @throws IOException
+     */
+    private void sendPrivateMessage(String target, String message) throws IOException {
+        PrivateMessagePayload payload = new PrivateMessagePayload();
+        int idIndex = target.lastIndexOf('#');
+        if (idIndex >= 0) {
+            try {
+                payload.setTargetId(Long.parseLong(target.substring(idIndex + 1)));
+            } catch (NumberFormatException e) {
+                LoggerUtil.INSTANCE.warning(TextFX.colorize("Invalid client id in " + target, Color.RED));
+                return;
+            }
+        }
+        payload.setTargetName(idIndex >= 0 ? target.substring(0, idIndex) : target);
+        payload.setMessage(message);
+        sendToServer(payload);
+    }
+
+    /**
+     * Unmutes/mutes a room topic or joins/leaves a team channel
+     * 
+     * @param topic         chat, game-events, timers, game-state, team:name or
+     *                      TopicPayload.DIRECTORY
+     * @param isSubscribing
+     * @throws IOException
+     */
+    public void sendSubscription(String topic, boolean isSubscribing) throws IOException {
+        sendToServer(new TopicPayload(isSubscribing ? PayloadType.SUBSCRIBE : PayloadType.UNSUBSCRIBE, topic));
+    }
+
+    /**
+     * Sends a message to a team channel of the current room
+     * 
+     * @param team    name with or without the team: prefix
+     * @param message
+     * @throws IOException
+     */
+    private void sendTeamMessage(String team, String message) throws IOException {
+        TopicPayload payload = new TopicPayload(PayloadType.MESSAGE,
+                team.startsWith(TopicPayload.TEAM_PREFIX) ? team : TopicPayload.TEAM_PREFIX + team);
+        payload.setMessage(message);
+        sendToServer(payload);
+    }
+
+    /**
+     * Requests the page of chat history before the oldest message received for
+     * the current room
+     * 
+     * @return false if there's nothing older to request
+     * @throws IOException
+     */
+    public boolean sendHistoryRequest() throws IOException {
+        if (!hasMoreHistory) {
+            LoggerUtil.INSTANCE.info(TextFX.colorize("No older messages", Color.YELLOW));
+            return false;
+        }
+        HistoryPayload payload = new HistoryPayload();
+        payload.setBeforeSeq(oldestHistorySeq);
+        sendToServer(payload);
+        return true;
+    }
+
+    /**
+     * Requests a page of the current room's members (only answered for rooms
+     * with a paged roster)
+     * 
+     * @param offset index of the first member
+     * @param query  case-insensitive part of a name or null for everyone
+     * @throws IOException
+     */
+    public void sendRosterPageRequest(int offset, String query) throws IOException {
+        RosterPayload payload = new RosterPayload();
+        payload.setPayloadType(PayloadType.ROSTER_PAGE);
+        payload.setOffset(Math.max(0, offset));
+        payload.setQuery(query == null || query.isBlank() ? null : query.trim());
+        sendToServer(payload);
+    }
+
     /**
      * Sends a disconnect action to the server
      * 
@@ -483,12 +652,17 @@ public enum Client {
         ConnectionPayload payload = new ConnectionPayload();
         payload.setClientName(name);
         payload.setPayloadType(PayloadType.CLIENT_CONNECT);
+        payload.setCompression(requestCompression);
         sendToServer(payload);
     }
 
-    private void sendToServer(Payload payload) throws IOException {
+    private synchronized void sendToServer(Payload payload) throws IOException {
         if (isConnected()) {
-            out.writeObject(payload);
+            out.writeObject(isCompressing ? codec.encode(payload) : payload);
+            if (++writesSinceReset >= Constants.STREAM_RESET_INTERVAL) {
+                out.reset(); // keeps the stream from retaining every payload sent
+                writesSinceReset = 0;
+            }
             out.flush(); // good practice to ensure data is written out immediately
         } else {
             LoggerUtil.INSTANCE.warning(
@@ -513,7 +687,7 @@ public enum Client {
     private void listenToServer() {
         try {
             while (isRunning && isConnected()) {
-                Payload fromServer = (Payload) in.readObject(); // blocking read
+                Payload fromServer = codec.decode((Payload) in.readObject()); // blocking read
                 if (fromServer != null) {
                     processPayload(fromServer);
 
@@ -565,9 +739,21 @@ public enum Client {
             case SYNC_CLIENT:
                 processRoomAction(payload);
                 break;
+            case SYNC_ROSTER:
+                processRoster(payload);
+                break;
+            case PRESENCE:
+                processPresence(payload);
+                break;
             case ROOM_LIST:
                 processRoomsList(payload);
                 break;
+            case ROOM_DIRECTORY:
+                processRoomDirectory(payload);
+                break;
+            case HISTORY:
+                processHistory(payload);
+                break;
             case PayloadType.READY:
                 processReadyStatus(payload, false);
                 break;
@@ -601,6 +787,12 @@ public enum Client {
             case PayloadType.POINTS:
                 processPoints(payload);
                 break;
+            case PayloadType.BATCH:
+                processBatch(payload);
+                break;
+            case PayloadType.PRIVATE_MESSAGE:
+                processPrivateMessage(payload);
+                break;
             default:
                 LoggerUtil.INSTANCE.warning(TextFX.colorize("Unhandled payload type", Color.YELLOW));
                 break;
@@ -609,6 +801,17 @@ public enum Client {
     }
 
     // Start process*() methods
+    private void processBatch(Payload payload) {
+        if (!(payload instanceof BatchPayload)) {
+            error("Invalid payload subclass for processBatch");
+            return;
+        }
+        // unpack in the order the server produced them
+        for (Payload p : ((BatchPayload) payload).getPayloads()) {
+            processPayload(p);
+        }
+    }
+
     private void processAttackCommand(Payload payload) // yaw4 12/11, used to process attacking on clientside 
     {
         if (!(payload instanceof CoordPayload)) {
@@ -714,8 +917,11 @@ public enum Client {
             return;
         }
         TimerPayload timerPayload = (TimerPayload) payload;
-
-        passToUICallback(ITimeEvents.class, e -> e.onTimerUpdate(timerPayload.getTimerType(), timerPayload.getTime()));
+        // server only sends deadlines; convert to seconds remaining and let the UI
+        // count down locally
+        long remaining = timerPayload.getRemainingMillis();
+        int time = remaining < 0 ? -1 : (int) ((remaining + 999) / 1000);
+        passToUICallback(ITimeEvents.class, e -> e.onTimerUpdate(timerPayload.getTimerType(), time));
     }
 
     private void processResetTurn() {
@@ -809,6 +1015,31 @@ public enum Client {
         passToUICallback(IReadyEvent.class, e -> e.onReceiveReady(cp.getClientId(), cp.isReady(), isQuiet));
     }
 
+    private void processHistory(Payload payload) {
+        if (!(payload instanceof HistoryPayload)) {
+            error("Invalid payload subclass for processHistory");
+            return;
+        }
+        HistoryPayload hp = (HistoryPayload) payload;
+        if (!hp.getEntries().isEmpty()) {
+            oldestHistorySeq = hp.getEntries().get(0).getSeq();
+        }
+        hasMoreHistory = hp.hasMore();
+        hp.getEntries().forEach(entry -> LoggerUtil.INSTANCE.info(TextFX.colorize(
+                String.format("[history] %s: %s", entry.getSenderName(), entry.getMessage()), Color.CYAN)));
+        passToUICallback(IHistoryEvents.class, e -> e.onReceiveHistory(hp.getEntries(), hp.isReplay(),
+                hp.hasMore()));
+    }
+
+    private void processRoomDirectory(Payload payload) {
+        if (!(payload instanceof RoomDirectoryPayload)) {
+            error("Invalid payload subclass for processRoomDirectory");
+            return;
+        }
+        RoomDirectoryPayload rdp = (RoomDirectoryPayload) payload;
+        passToUICallback(IRoomDirectoryEvents.class, e -> e.onReceiveRoomDirectory(rdp));
+    }
+
     private void processRoomsList(Payload payload) {
         if (!(payload instanceof RoomResultPayload)) {
             error("Invalid payload subclass for processRoomsList");
@@ -837,6 +1068,7 @@ public enum Client {
         }
         myUser.setClientId(payload.getClientId());
         myUser.setClientName(((ConnectionPayload) payload).getClientName());// confirmation from Server
+        isCompressing = ((ConnectionPayload) payload).isCompression();
         knownClients.put(myUser.getClientId(), myUser);
         LoggerUtil.INSTANCE.info(TextFX.colorize("Connected", Color.GREEN));
 
@@ -860,6 +1092,74 @@ public enum Client {
 
     }
 
+    private void processRoster(Payload payload) {
+        if (!(payload instanceof RosterPayload)) {
+            error("Invalid payload subclass for processRoster");
+            return;
+        }
+        RosterPayload rp = (RosterPayload) payload;
+        passToUICallback(IRosterEvents.class, e -> e.onMemberCountUpdate(rp.getMemberCount()));
+        if (rp.isPaged()) {
+            // a page replaces the previous one; members outside of it aren't tracked
+            knownClients.keySet().removeIf(id -> !isMyClientId(id));
+            List<User> page = applyRosterEntries(rp.getEntries());
+            passToUICallback(IRosterEvents.class,
+                    e -> e.onReceiveRosterPage(page, rp.getOffset(), rp.getMatchCount(), rp.getQuery()));
+            return;
+        }
+        // single pass over the snapshot, then one UI update
+        List<User> roster = applyRosterEntries(rp.getEntries());
+        passToUICallback(IRoomEvents.class, e -> e.onReceiveRoster(roster));
+    }
+
+    /**
+     * Applies a coalesced batch of joins/leaves from the current Room; the
+     * summary text arrives as a separate message
+     * 
+     * @param payload
+     */
+    private void processPresence(Payload payload) {
+        if (!(payload instanceof PresencePayload)) {
+            error("Invalid payload subclass for processPresence");
+            return;
+        }
+        PresencePayload pp = (PresencePayload) payload;
+        passToUICallback(IRosterEvents.class, e -> e.onMemberCountUpdate(pp.getMemberCount()));
+        for (long clientId : pp.getLeft()) {
+            if (knownClients.remove(clientId) != null) {
+                passToUICallback(IRoomEvents.class, e -> e.onRoomAction(clientId, pp.getMessage(), false, true));
+            }
+        }
+        List<User> joined = applyRosterEntries(pp.getJoined());
+        if (!joined.isEmpty()) {
+            passToUICallback(IRoomEvents.class, e -> e.onReceiveRoster(joined));
+        }
+    }
+
+    /**
+     * Adds/updates knownClients from roster entries
+     * 
+     * @param entries
+     * @return the affected users
+     */
+    private List<User> applyRosterEntries(List<RosterEntry> entries) {
+        List<User> users = new ArrayList<>(entries.size());
+        for (RosterEntry entry : entries) {
+            User user = knownClients.get(entry.getClientId());
+            if (user == null) {
+                user = new User();
+                user.setClientId(entry.getClientId());
+                user.setClientName(entry.getClientName());
+                knownClients.put(entry.getClientId(), user);
+            }
+            user.setReady(entry.isReady());
+            user.setTookTurn(entry.didTakeTurn());
+            user.setPoints(entry.getPoints());
+            users.add(user);
+        }
+        return users;
+    }
+
     private void processRoomAction(Payload payload) {
         if (!(payload instanceof ConnectionPayload)) {
             error("Invalid payload subclass for processRoomAction");
@@ -870,6 +1170,9 @@ public enum Client {
         // transitions)
         if (connectionPayload.getClientId() == Constants.DEFAULT_CLIENT_ID) {
             knownClients.clear();
+            // the new room's replay (if it has any chat) follows
+            oldestHistorySeq = -1;
+            hasMoreHistory = false;
 
             passToUICallback(IRoomEvents.class, e -> e.onRoomAction(
                     Constants.DEFAULT_CLIENT_ID,
@@ -929,6 +1232,22 @@ public enum Client {
                 payload.getMessage()));
     }
 
+    private void processPrivateMessage(Payload payload) {
+        if (!(payload instanceof PrivateMessagePayload)) {
+            error("Invalid payload subclass for processPrivateMessage");
+            return;
+        }
+        PrivateMessagePayload pmp = (PrivateMessagePayload) payload;
+        // the sender may be in a different Room so the names come with the payload
+        boolean isMine = isMyClientId(pmp.getClientId());
+        String format = isMine ? "(PM to %s) %s" : "(PM from %s) %s";
+        String name = isMine ? pmp.getTargetName() : pmp.getSenderName();
+        LoggerUtil.INSTANCE.info(TextFX.colorize(String.format(format, name, pmp.getMessage()), Color.PURPLE));
+        // the message is HTML already, the name is plain text
+        String message = String.format(format, Html.escape(name), pmp.getMessage());
+        passToUICallback(IMessageEvents.class, e -> e.onMessageReceive(Constants.DEFAULT_CLIENT_ID, message));
+    }
+
     private void processReverse(Payload payload) {
         LoggerUtil.INSTANCE.info(TextFX.colorize(payload.getMessage(), Color.PURPLE));
 
@@ -971,6 +1290,7 @@ public enum Client {
      * Closes the server connection and associated resources
      */
     private void closeServerConnection() {
+        LoggerUtil.INSTANCE.info(codec.getStats());
         try {
             if (out != null) {
                 LoggerUtil.INSTANCE.info("Closing output stream");
@@ -27,6 +27,7 @@ import Project.Client.Views.RoomsView;
 import Project.Client.Views.UserDetailsView;
 import Project.Common.Constants;
 import Project.Common.LoggerUtil;
+import Project.Common.User;
 
 public class ClientUI extends JFrame implements ICardControls, IConnectionEvents, IRoomEvents {
     private CardLayout cardLayout = new CardLayout();
@@ -222,6 +223,11 @@ public class ClientUI extends JFrame implements ICardControls, IConnectionEvents
         }
     }
 
+    @Override
+    public void onReceiveRoster(List<User> roster) {
+        // unused
+    }
+
     @Override
     public void onReceiveRoomList(List<String> rooms, String message) {
         // unused
@@ -0,0 +1,20 @@
+package Project.Client.Interfaces;
+
+import java.util.List;
+
+import Project.Common.HistoryPayload.HistoryEntry;
+
+/**
+ * Interface for handling the chat history of the current room.
+ */
+public interface IHistoryEvents extends IClientEvents {
+    /**
+     * Receives recorded messages of the current room.
+     *
+     * @param entries  The messages, oldest first.
+     * @param isReplay True for the latest messages sent when joining; false for
+     *                 an older page to show above what's already shown.
+     * @param hasMore  True if there are older messages to request.
+     */
+    void onReceiveHistory(List<HistoryEntry> entries, boolean isReplay, boolean hasMore);
+}
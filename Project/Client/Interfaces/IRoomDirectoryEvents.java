@@ -0,0 +1,16 @@
+package Project.Client.Interfaces;
+
+import Project.Common.RoomDirectoryPayload;
+
+/**
+ * Interface for handling the pushed room directory.
+ */
+public interface IRoomDirectoryEvents extends IClientEvents {
+    /**
+     * Receives the rooms that were added, updated or removed since the last
+     * update.
+     *
+     * @param directory The changes; isSnapshot() when it lists every room.
+     */
+    void onReceiveRoomDirectory(RoomDirectoryPayload directory);
+}
@@ -2,6 +2,8 @@ package Project.Client.Interfaces;
 
 import java.util.List;
 
+import Project.Common.User;
+
 /**
  * Interface for handling room events.
  */
@@ -21,4 +23,13 @@ public interface IRoomEvents extends IClientEvents {
      * @param roomName The room name.
      */
     void onRoomAction(long clientId, String roomName, boolean isJoin, boolean isQuiet);
+
+    /**
+     * Receives the snapshot of every member of the room just joined (quiet, all
+     * at once).
+     *
+     * @param roster The members with their ready/turn/points state (points < 0
+     *               when not shown).
+     */
+    void onReceiveRoster(List<User> roster);
 }
\ No newline at end of file
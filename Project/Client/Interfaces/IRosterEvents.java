@@ -0,0 +1,28 @@
+package Project.Client.Interfaces;
+
+import java.util.List;
+
+import Project.Common.User;
+
+/**
+ * Interface for handling the member count and paged roster of large rooms.
+ */
+public interface IRosterEvents extends IClientEvents {
+    /**
+     * Receives a page of members of a room too large to list everyone; replaces
+     * the previously shown members.
+     *
+     * @param page       The members of the page.
+     * @param offset     Index of the first member of the page.
+     * @param matchCount Members matching the query.
+     * @param query      The name filter or null.
+     */
+    void onReceiveRosterPage(List<User> page, int offset, int matchCount, String query);
+
+    /**
+     * Receives the number of members in the current room.
+     *
+     * @param memberCount The member count.
+     */
+    void onMemberCountUpdate(int memberCount);
+}
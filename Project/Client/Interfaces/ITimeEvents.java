@@ -4,10 +4,11 @@ import Project.Common.TimerType;
 
 public interface ITimeEvents extends IClientEvents {
     /**
-     * The current time of a timer
+     * The current time of a timer. Only sent when a timer starts, changes or is
+     * cancelled; implementations count down locally from this value.
      * 
      * @param timerType The specifc timer
-     * @param time      The time (use -1 to reset/cancel/stop)
+     * @param time      The seconds remaining (use -1 to reset/cancel/stop)
      */
     void onTimerUpdate(TimerType timerType, int time);
 }
\ No newline at end of file
@@ -17,6 +17,7 @@ import Project.Client.Interfaces.IPhaseEvent;
 import Project.Client.Interfaces.IRoomEvents;
 import Project.Common.Constants;
 import Project.Common.Phase;
+import Project.Common.User;
 
 public class ChatGameView extends JPanel implements IRoomEvents, IPhaseEvent {
     private final ChatView chatView;
@@ -92,6 +93,11 @@ public class ChatGameView extends JPanel implements IRoomEvents, IPhaseEvent {
 
     }
 
+    @Override
+    public void onReceiveRoster(List<User> roster) {
+        // unused
+    }
+
     @Override
     public void onReceivePhase(Phase phase) {
         showGameView();
@@ -31,17 +31,22 @@ import Project.Client.CardViewName;
 import Project.Client.Client;
 import Project.Client.Interfaces.ICardControls;
 import Project.Client.Interfaces.IConnectionEvents;
+import Project.Client.Interfaces.IHistoryEvents;
 import Project.Client.Interfaces.IMessageEvents;
 import Project.Client.Interfaces.IRoomEvents;
+import Project.Common.Html;
 import Project.Common.LoggerUtil;
+import Project.Common.HistoryPayload.HistoryEntry;
+import Project.Common.User;
 
 /**
  * ChatView represents the main chat interface where messages can be sent and
  * received.
  * Uses new view registration and naming conventions.
  */
-public class ChatView extends JPanel implements IMessageEvents, IConnectionEvents, IRoomEvents {
+public class ChatView extends JPanel implements IMessageEvents, IConnectionEvents, IRoomEvents, IHistoryEvents {
     private JPanel chatArea = new JPanel(new GridBagLayout());
+    private JButton earlierButton = new JButton("Earlier");
     private UserListView userListView;
     private final float CHAT_SPLIT_PERCENT = 0.7f;
 
@@ -104,6 +109,17 @@ public class ChatView extends JPanel implements IMessageEvents, IConnectionEvent
             });
         });
         input.add(button);
+        // scrollback; enabled while the room has older messages than those shown
+        earlierButton.setToolTipText("Load earlier messages");
+        earlierButton.setEnabled(false);
+        earlierButton.addActionListener(_ -> {
+            try {
+                earlierButton.setEnabled(Client.INSTANCE.sendHistoryRequest());
+            } catch (NullPointerException | IOException e) {
+                LoggerUtil.INSTANCE.severe("Error requesting history", e);
+            }
+        });
+        input.add(earlierButton);
 
         this.add(splitPane, BorderLayout.CENTER);
         this.add(input, BorderLayout.SOUTH);
@@ -126,25 +142,8 @@ public class ChatView extends JPanel implements IMessageEvents, IConnectionEvent
 
     public void addText(String text) {
         SwingUtilities.invokeLater(() -> {
-            JEditorPane textContainer = new JEditorPane("text/html", text);
-            textContainer.setEditable(false);
-            textContainer.setBorder(BorderFactory.createEmptyBorder());
             JScrollPane parentScrollPane = (JScrollPane) SwingUtilities.getAncestorOfClass(JScrollPane.class, chatArea);
-            int scrollBarWidth = parentScrollPane.getVerticalScrollBar().getPreferredSize().width;
-            int availableWidth = chatArea.getWidth() - scrollBarWidth - 10;
-            textContainer.setSize(new Dimension(availableWidth, Integer.MAX_VALUE));
-            Dimension d = textContainer.getPreferredSize();
-            textContainer.setPreferredSize(new Dimension(availableWidth, d.height));
-            textContainer.setOpaque(false);
-            textContainer.setBorder(BorderFactory.createEmptyBorder());
-            textContainer.setBackground(new Color(0, 0, 0, 0));
-            GridBagConstraints gbc = new GridBagConstraints();
-            gbc.gridx = 0;
-            gbc.gridy = GridBagConstraints.RELATIVE;
-            gbc.weightx = 1;
-            gbc.fill = GridBagConstraints.BOTH;
-            gbc.insets = new Insets(0, 0, 5, 5);
-            chatArea.add(textContainer, gbc);
+            addTextContainer(text, -1);
             chatArea.revalidate();
             chatArea.repaint();
             if (parentScrollPane != null) {
@@ -156,6 +155,58 @@ public class ChatView extends JPanel implements IMessageEvents, IConnectionEvent
         });
     }
 
+    /**
+     * Adds a message to the chat area
+     * 
+     * @param text
+     * @param index component index or -1 to append
+     */
+    private void addTextContainer(String text, int index) {
+        JEditorPane textContainer = new JEditorPane("text/html", text);
+        textContainer.setEditable(false);
+        textContainer.setBorder(BorderFactory.createEmptyBorder());
+        JScrollPane parentScrollPane = (JScrollPane) SwingUtilities.getAncestorOfClass(JScrollPane.class, chatArea);
+        int scrollBarWidth = parentScrollPane.getVerticalScrollBar().getPreferredSize().width;
+        int availableWidth = chatArea.getWidth() - scrollBarWidth - 10;
+        textContainer.setSize(new Dimension(availableWidth, Integer.MAX_VALUE));
+        Dimension d = textContainer.getPreferredSize();
+        textContainer.setPreferredSize(new Dimension(availableWidth, d.height));
+        textContainer.setOpaque(false);
+        textContainer.setBorder(BorderFactory.createEmptyBorder());
+        textContainer.setBackground(new Color(0, 0, 0, 0));
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.gridx = 0;
+        gbc.gridy = GridBagConstraints.RELATIVE;
+        gbc.weightx = 1;
+        gbc.fill = GridBagConstraints.BOTH;
+        gbc.insets = new Insets(0, 0, 5, 5);
+        chatArea.add(textContainer, gbc, index);
+    }
+
+    @Override
+    public void onReceiveHistory(List<HistoryEntry> entries, boolean isReplay, boolean hasMore) {
+        SwingUtilities.invokeLater(() -> {
+            earlierButton.setEnabled(hasMore);
+            if (isReplay) {
+                // the replay arrives right after joining, so it goes below the join message
+                entries.forEach(entry -> addText(formatHistory(entry)));
+                addText("<font color=gray>*Earlier messages above*</font>");
+                return;
+            }
+            // older page; insert above everything shown (index 0 is the vertical glue)
+            for (int i = 0; i < entries.size(); i++) {
+                addTextContainer(formatHistory(entries.get(i)), 1 + i);
+            }
+            chatArea.revalidate();
+            chatArea.repaint();
+        });
+    }
+
+    private String formatHistory(HistoryEntry entry) {
+        // the message is HTML already; the sender name (a client or Room[name]) isn't
+        return String.format("<font color=gray>%s</font>: %s", Html.escape(entry.getSenderName()), entry.getMessage());
+    }
+
     private void resizeEditorPanes() {
         JScrollPane parentScrollPane = (JScrollPane) SwingUtilities.getAncestorOfClass(JScrollPane.class, chatArea);
         int scrollBarWidth = parentScrollPane.getVerticalScrollBar().getPreferredSize().width;
@@ -186,7 +237,7 @@ public class ChatView extends JPanel implements IMessageEvents, IConnectionEvent
         // added color to differentiate between room and user messages
         String name = clientId == Constants.DEFAULT_CLIENT_ID ? "<font color=blue>%s</font>"
                 : "<font color=purple>%s</font>";
-        name = String.format(name, displayName);
+        name = String.format(name, Html.escape(displayName)); // names are plain text
         addText(String.format("%s: %s", name, message));
     }
 
@@ -195,7 +246,7 @@ public class ChatView extends JPanel implements IMessageEvents, IConnectionEvent
 
         boolean isMe = Client.INSTANCE.isMyClientId(clientId);
         String message = String.format("*%s disconnected*",
-                isMe ? "You" : Client.INSTANCE.getDisplayNameFromId(clientId));
+                isMe ? "You" : Html.escape(Client.INSTANCE.getDisplayNameFromId(clientId)));
         addText(message);
     }
 
@@ -215,13 +266,18 @@ public class ChatView extends JPanel implements IMessageEvents, IConnectionEvent
             boolean isMe = Client.INSTANCE.isMyClientId(clientId);
             // Example 1: Client generated join/leave message (see Room.java for Example 2)
             String message = String.format("<font color=blue>*%s %s the Room %s*</font>",
-                    /* 1st %s */ isMe ? "You" : displayName,
+                    /* 1st %s */ isMe ? "You" : Html.escape(displayName),
                     /* 2nd %s */ isJoin ? "joined" : "left",
-                    /* 3rd %s */ roomName == null ? "" : roomName); // added handling of null after the demo video
+                    /* 3rd %s */ Html.escape(roomName)); // added handling of null after the demo video
             addText(message);
         }
     }
 
+    @Override
+    public void onReceiveRoster(List<User> roster) {
+        // unused; members are shown in the UserListView
+    }
+
     @Override
     public void onReceiveRoomList(List<String> rooms, String message) {
         // unused
@@ -16,6 +16,7 @@ import javax.swing.JScrollBar;
 import javax.swing.JScrollPane;
 import javax.swing.ScrollPaneConstants;
 import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 
 import Project.Client.Client;
 import Project.Client.Interfaces.IMessageEvents;
@@ -31,6 +32,9 @@ public class GameEventsView extends JPanel implements IPhaseEvent, IReadyEvent,
     private final boolean debugMode = true; // Set this to false to disable debugging styling
     private final JLabel timerText;
     private final GridBagConstraints gbcGlue = new GridBagConstraints();
+    private final Timer countdown; // local countdown, the server only sends deadlines
+    private TimerType activeTimer = null;
+    private long localDeadline = 0;
 
     public GameEventsView() {
         super(new BorderLayout(10, 10));
@@ -61,6 +65,7 @@ public class GameEventsView extends JPanel implements IPhaseEvent, IReadyEvent,
         timerText = new JLabel();
         this.add(timerText, BorderLayout.NORTH);
         timerText.setVisible(false);
+        countdown = new Timer(250, _ -> refreshTimerText());
         Client.INSTANCE.registerCallback(this);
     }
 
@@ -125,13 +130,31 @@ public class GameEventsView extends JPanel implements IPhaseEvent, IReadyEvent,
         }
     }
 
+    private void refreshTimerText() {
+        if (activeTimer == null) {
+            return;
+        }
+        long remaining = Math.max(0, localDeadline - System.currentTimeMillis());
+        timerText.setText(String.format("%s timer: %s", activeTimer.name(), (remaining + 999) / 1000));
+        if (remaining == 0) {
+            countdown.stop();
+        }
+    }
+
     @Override
     public void onTimerUpdate(TimerType timerType, int time) {
-        if (time >= 0) {
-            timerText.setText(String.format("%s timer: %s", timerType.name(), time));
-        } else {
-            timerText.setText(" ");
-        }
-        timerText.setVisible(true);
+        SwingUtilities.invokeLater(() -> {
+            if (time >= 0) {
+                activeTimer = timerType;
+                localDeadline = System.currentTimeMillis() + time * 1000L;
+                refreshTimerText();
+                countdown.restart();
+            } else if (activeTimer == null || activeTimer == timerType) {
+                activeTimer = null;
+                countdown.stop();
+                timerText.setText(" ");
+            }
+            timerText.setVisible(true);
+        });
     }
 }
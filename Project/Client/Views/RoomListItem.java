@@ -1,6 +1,7 @@
 package Project.Client.Views;
 
 import java.util.function.Consumer;
+
 import javax.swing.Box;
 import javax.swing.BoxLayout;
 import javax.swing.JButton;
@@ -8,11 +9,14 @@ import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.SwingUtilities;
 
+import Project.Common.Phase;
+
 /**
  * RoomListItem represents an item in the list of rooms with a join button.
  */
 public class RoomListItem extends JPanel {
     private final JLabel roomName;
+    private final JLabel details;
     private final JButton joinButton;
 
     /**
@@ -27,12 +31,17 @@ public class RoomListItem extends JPanel {
         roomName = new JLabel(room);
         roomName.setToolTipText("Room name");
 
+        details = new JLabel("");
+        details.setToolTipText("Members and phase");
+
         joinButton = new JButton("Join");
         joinButton.setToolTipText("Join this room");
         joinButton.addActionListener(_ -> SwingUtilities.invokeLater(() -> onJoin.accept(roomName.getText())));
 
         add(roomName);
         add(Box.createHorizontalGlue()); // Fills up horizontal space
+        add(details);
+        add(Box.createHorizontalStrut(10));
         add(joinButton);
     }
 
@@ -44,4 +53,15 @@ public class RoomListItem extends JPanel {
     public String getRoomName() {
         return roomName.getText();
     }
+
+    /**
+     * Shows the member count and, for game rooms, the current phase.
+     *
+     * @param memberCount - Clients in the room.
+     * @param phase       - Current phase or null if the room has none.
+     */
+    public void setDetails(int memberCount, Phase phase) {
+        String members = String.format("%s %s", memberCount, memberCount == 1 ? "member" : "members");
+        details.setText(phase == null ? members : String.format("%s | %s", members, phase));
+    }
 }
\ No newline at end of file
@@ -4,9 +4,15 @@ import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.Component;
 import java.awt.Dimension;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import javax.swing.BorderFactory;
 import javax.swing.Box;
@@ -25,16 +31,27 @@ import Project.Common.RoomAction;
 import Project.Client.CardViewName;
 import Project.Client.Client;
 import Project.Client.Interfaces.ICardControls;
+import Project.Client.Interfaces.IRoomDirectoryEvents;
 import Project.Client.Interfaces.IRoomEvents;
 import Project.Common.LoggerUtil;
+import Project.Common.RoomDirectoryPayload;
+import Project.Common.RoomDirectoryPayload.RoomSummary;
+import Project.Common.TopicPayload;
+import Project.Common.User;
 
 /**
  * RoomsView class represents the UI for managing chat rooms.
+ * <p>
+ * While visible the view subscribes to the server's room directory and applies
+ * the pushed changes to its list instead of re-requesting it.
+ * </p>
  */
-public class RoomsView extends JPanel implements IRoomEvents {
+public class RoomsView extends JPanel implements IRoomEvents, IRoomDirectoryEvents {
     private final JPanel container;
     private final List<RoomListItem> rooms = new ArrayList<>();
+    private final Map<String, RoomListItem> roomsByName = new HashMap<>(); // lowercase name
     private final JLabel message;
+    private String filter = "";
 
     /**
      * Constructor to create the RoomsView UI.
@@ -69,22 +86,13 @@ public class RoomsView extends JPanel implements IRoomEvents {
         JPanel messageContainer = new JPanel();
         messageContainer.setBorder(new EmptyBorder(5, 0, 0, 0));
 
-        // Search button action
+        // Search button action; filters the pushed directory (an empty query shows all)
         searchButton.addActionListener(_ -> {
             SwingUtilities.invokeLater(() -> {
-                try {
-                    String query = searchValue.getText().trim();
-                    if (!query.isEmpty()) {
-                        removeAllRooms();
-                        Client.INSTANCE.sendRoomAction(query, RoomAction.LIST);
-                        message.setText("Sent query");
-                    } else {
-                        message.setText("Can't search with an empty query");
-                    }
-                } catch (IOException e) {
-                    LoggerUtil.INSTANCE.warning("Error sending request: " + e.getMessage(), e);
-                    message.setText("Error sending request: " + e.getMessage());
-                }
+                filter = searchValue.getText().trim().toLowerCase();
+                applyFilter();
+                long shown = rooms.stream().filter(RoomListItem::isVisible).count();
+                message.setText(filter.isEmpty() ? "Showing all rooms" : "Found Rooms: " + shown);
             });
         });
 
@@ -143,6 +151,18 @@ public class RoomsView extends JPanel implements IRoomEvents {
         this.add(back, BorderLayout.SOUTH);
         this.add(scroll, BorderLayout.CENTER);
 
+        this.addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentShown(ComponentEvent e) {
+                setSubscribed(true);
+            }
+
+            @Override
+            public void componentHidden(ComponentEvent e) {
+                setSubscribed(false);
+            }
+        });
+
         this.setName(CardViewName.ROOMS.name());
         controls.registerView(CardViewName.ROOMS.name(), this);
 
@@ -159,21 +179,41 @@ public class RoomsView extends JPanel implements IRoomEvents {
     }
 
     /**
-     * Adds a room to the rooms list.
+     * Subscribes to or unsubscribes from the room directory.
      *
-     * @param room The name of the room to add.
+     * @param isSubscribed true when the view is shown.
      */
-    private void addRoom(String room) {
-        if (room != null) {
-            LoggerUtil.INSTANCE.info("Adding: " + room);
-            RoomListItem roomListItem = new RoomListItem(room, this::handleSelection);
-            roomListItem.setMaximumSize(new Dimension(Integer.MAX_VALUE, 40));
+    private void setSubscribed(boolean isSubscribed) {
+        try {
+            Client.INSTANCE.sendSubscription(TopicPayload.DIRECTORY, isSubscribed);
+        } catch (NullPointerException ne) {
+            setMessage("Not connected");
+        } catch (IOException e) {
+            LoggerUtil.INSTANCE.warning("Error sending request: " + e.getMessage(), e);
+            setMessage("Error sending request: " + e.getMessage());
+        }
+    }
 
+    /**
+     * Adds a room to the rooms list or updates its details if it's already
+     * listed.
+     *
+     * @param room The room to add.
+     */
+    private void addRoom(RoomSummary room) {
+        if (room == null) {
+            return;
+        }
+        RoomListItem roomListItem = roomsByName.get(room.getName().toLowerCase());
+        if (roomListItem == null) {
+            roomListItem = new RoomListItem(room.getName(), this::handleSelection);
+            roomListItem.setMaximumSize(new Dimension(Integer.MAX_VALUE, 40));
+            roomListItem.setVisible(matchesFilter(room.getName()));
             container.add(roomListItem);
             rooms.add(roomListItem);
-            revalidate();
-            repaint();
+            roomsByName.put(room.getName().toLowerCase(), roomListItem);
         }
+        roomListItem.setDetails(room.getMemberCount(), room.getPhase());
     }
 
     /**
@@ -182,16 +222,25 @@ public class RoomsView extends JPanel implements IRoomEvents {
      * @param room The name of the room to remove.
      */
     public void removeRoom(String room) {
-        rooms.removeIf(r -> {
-            if (r.getRoomName().equalsIgnoreCase(room)) {
-                r.removeAll();
-                container.remove(r);
-                revalidate();
-                repaint();
-                return true;
-            }
-            return false;
-        });
+        RoomListItem roomListItem = roomsByName.remove(room.toLowerCase());
+        if (roomListItem != null) {
+            rooms.remove(roomListItem);
+            container.remove(roomListItem);
+            revalidate();
+            repaint();
+        }
+    }
+
+    private boolean matchesFilter(String room) {
+        return filter.isEmpty() || room.toLowerCase().contains(filter);
+    }
+
+    private void applyFilter() {
+        for (RoomListItem roomListItem : rooms) {
+            roomListItem.setVisible(matchesFilter(roomListItem.getRoomName()));
+        }
+        revalidate();
+        repaint();
     }
 
     /**
@@ -204,6 +253,7 @@ public class RoomsView extends JPanel implements IRoomEvents {
             container.remove(roomListItem);
         }
         rooms.clear();
+        roomsByName.clear();
         revalidate();
         repaint();
     }
@@ -223,18 +273,31 @@ public class RoomsView extends JPanel implements IRoomEvents {
         });
     }
 
+    @Override
+    public void onReceiveRoomDirectory(RoomDirectoryPayload directory) {
+        SwingUtilities.invokeLater(() -> {
+            if (directory.isSnapshot()) {
+                // drop rooms that closed while unsubscribed
+                Set<String> listed = new HashSet<>();
+                directory.getAdded().forEach(r -> listed.add(r.getName().toLowerCase()));
+                new ArrayList<>(roomsByName.keySet()).stream()
+                        .filter(name -> !listed.contains(name))
+                        .forEach(this::removeRoom);
+            }
+            directory.getAdded().forEach(this::addRoom);
+            directory.getUpdated().forEach(this::addRoom);
+            directory.getRemoved().forEach(this::removeRoom);
+            revalidate();
+            repaint();
+        });
+    }
+
     @Override
     public void onReceiveRoomList(List<String> rooms, String message) {
-        removeAllRooms();
+        // the list itself comes from the room directory (the /listrooms command
+        // still prints its results)
         if (message != null && !message.isEmpty()) {
             setMessage(message);
-        } else {
-            setMessage("Found Rooms: " + (rooms != null ? rooms.size() : 0));
-        }
-        if (rooms != null) {
-            for (String room : rooms) {
-                addRoom(room);
-            }
         }
     }
 
@@ -242,4 +305,9 @@ public class RoomsView extends JPanel implements IRoomEvents {
     public void onRoomAction(long clientId, String roomName, boolean isJoin, boolean isQuiet) {
         // unused
     }
+
+    @Override
+    public void onReceiveRoster(List<User> roster) {
+        // unused
+    }
 }
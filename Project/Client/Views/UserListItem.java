@@ -8,6 +8,8 @@ import javax.swing.JEditorPane;
 import javax.swing.JPanel;
 import javax.swing.border.EmptyBorder;
 
+import Project.Common.Html;
+
 /**
  * UserListItem represents a user entry in the user list.
  */
@@ -28,7 +30,7 @@ public class UserListItem extends JPanel {
         setLayout(new BoxLayout(this, BoxLayout.Y_AXIS));
 
         // Name (first line)
-        textContainer = new JEditorPane("text/html", this.displayName);
+        textContainer = new JEditorPane("text/html", Html.escape(this.displayName));
         textContainer.setName(Long.toString(clientId));
         textContainer.setEditable(false);
         textContainer.setBorder(new EmptyBorder(0, 0, 0, 0));
@@ -5,12 +5,17 @@ import java.awt.Color;
 import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.Insets;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
 
 import javax.swing.Box;
+import javax.swing.BoxLayout;
+import javax.swing.JButton;
+import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
+import javax.swing.JTextField;
 import javax.swing.ScrollPaneConstants;
 import javax.swing.SwingUtilities;
 import javax.swing.border.EmptyBorder;
@@ -20,23 +25,50 @@ import Project.Client.Interfaces.IConnectionEvents;
 import Project.Client.Interfaces.IPointsEvent;
 import Project.Client.Interfaces.IReadyEvent;
 import Project.Client.Interfaces.IRoomEvents;
+import Project.Client.Interfaces.IRosterEvents;
 import Project.Client.Interfaces.ITurnEvent;
 import Project.Common.Constants;
 import Project.Common.LoggerUtil;
+import Project.Common.User;
 
 /**
  * UserListView represents a UI component that displays a list of users.
+ * Large rooms only show a searchable page of members at a time.
  */
 public class UserListView extends JPanel
-        implements IConnectionEvents, IRoomEvents, IReadyEvent, IPointsEvent, ITurnEvent {
+        implements IConnectionEvents, IRoomEvents, IRosterEvents, IReadyEvent, IPointsEvent, ITurnEvent {
     private final JPanel userListArea;
     private final GridBagConstraints lastConstraints; // Keep track of the last constraints for the glue
     private final HashMap<Long, UserListItem> userItemsMap; // Maintain a map of client IDs to UserListItems
+    private final JLabel memberCountLabel = new JLabel("Members: 0");
+    private final JPanel pageControls = new JPanel();
+    private final JTextField searchField = new JTextField();
+    private final JButton prevButton = new JButton("<");
+    private final JButton nextButton = new JButton(">");
+    private final JLabel pageLabel = new JLabel();
+    // current page (EDT only)
+    private int pageOffset = 0;
+    private String pageQuery = null;
 
     public UserListView() {
         super(new BorderLayout(10, 10));
         userItemsMap = new HashMap<>();
 
+        JPanel header = new JPanel(new BorderLayout(5, 5));
+        header.add(memberCountLabel, BorderLayout.NORTH);
+        pageControls.setLayout(new BoxLayout(pageControls, BoxLayout.X_AXIS));
+        searchField.setToolTipText("Search members");
+        searchField.addActionListener(_ -> requestPage(0, searchField.getText()));
+        prevButton.addActionListener(_ -> requestPage(pageOffset - Constants.ROSTER_PAGE_SIZE, pageQuery));
+        nextButton.addActionListener(_ -> requestPage(pageOffset + Constants.ROSTER_PAGE_SIZE, pageQuery));
+        pageControls.add(searchField);
+        pageControls.add(prevButton);
+        pageControls.add(pageLabel);
+        pageControls.add(nextButton);
+        pageControls.setVisible(false); // only for paged rosters
+        header.add(pageControls, BorderLayout.SOUTH);
+        this.add(header, BorderLayout.NORTH);
+
         JPanel content = new JPanel(new GridBagLayout());
         userListArea = content;
 
@@ -61,34 +93,46 @@ public class UserListView extends JPanel
      */
     private void addUserListItem(long clientId, String clientName) {
         SwingUtilities.invokeLater(() -> {
-            if (userItemsMap.containsKey(clientId)) {
-                LoggerUtil.INSTANCE.warning("User already in the list: " + clientName);
-                return;
-            }
-            LoggerUtil.INSTANCE.info("Adding user to list: " + clientName);
-            UserListItem userItem = new UserListItem(clientId, clientName);
-            GridBagConstraints gbc = new GridBagConstraints();
-            gbc.gridx = 0;
-            gbc.gridy = userListArea.getComponentCount() - 1;
-            gbc.weightx = 1;
-            gbc.anchor = GridBagConstraints.NORTH;
-            gbc.fill = GridBagConstraints.BOTH;
-            gbc.insets = new Insets(0, 0, 5, 5);
-            // Remove the last glue component if it exists
-            if (lastConstraints != null) {
-                int index = userListArea.getComponentCount() - 1;
-                if (index > -1) {
-                    userListArea.remove(index);
-                }
+            if (createUserListItem(clientId, clientName) != null) {
+                userListArea.revalidate();
+                userListArea.repaint();
             }
-            userListArea.add(userItem, gbc);
-            userListArea.add(Box.createVerticalGlue(), lastConstraints);
-            userItemsMap.put(clientId, userItem);
-            userListArea.revalidate();
-            userListArea.repaint();
         });
     }
 
+    /**
+     * Creates and places the item for a user (must be called on the EDT)
+     * 
+     * @return the new item or null if the user is already listed
+     */
+    private UserListItem createUserListItem(long clientId, String clientName) {
+        if (userItemsMap.containsKey(clientId)) {
+            // expected when a roster entry is followed by the join event
+            LoggerUtil.INSTANCE.fine("User already in the list: " + clientName);
+            return null;
+        }
+        LoggerUtil.INSTANCE.info("Adding user to list: " + clientName);
+        UserListItem userItem = new UserListItem(clientId, clientName);
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.gridx = 0;
+        gbc.gridy = userListArea.getComponentCount() - 1;
+        gbc.weightx = 1;
+        gbc.anchor = GridBagConstraints.NORTH;
+        gbc.fill = GridBagConstraints.BOTH;
+        gbc.insets = new Insets(0, 0, 5, 5);
+        // Remove the last glue component if it exists
+        if (lastConstraints != null) {
+            int index = userListArea.getComponentCount() - 1;
+            if (index > -1) {
+                userListArea.remove(index);
+            }
+        }
+        userListArea.add(userItem, gbc);
+        userListArea.add(Box.createVerticalGlue(), lastConstraints);
+        userItemsMap.put(clientId, userItem);
+        return userItem;
+    }
+
     /**
      * Removes a user from the list.
      */
@@ -117,6 +161,9 @@ public class UserListView extends JPanel
             try {
                 userItemsMap.clear();
                 userListArea.removeAll();
+                pageControls.setVisible(false);
+                pageOffset = 0;
+                pageQuery = null;
                 userListArea.revalidate();
                 userListArea.repaint();
             } catch (Exception e) {
@@ -125,6 +172,17 @@ public class UserListView extends JPanel
         });
     }
 
+    /**
+     * Asks the server for another page of members
+     */
+    private void requestPage(int offset, String query) {
+        try {
+            Client.INSTANCE.sendRosterPageRequest(Math.max(0, offset), query);
+        } catch (IOException e) {
+            LoggerUtil.INSTANCE.severe("Error requesting roster page", e);
+        }
+    }
+
     @Override
     public void onReceiveRoomList(List<String> rooms, String message) {
         // unused
@@ -144,6 +202,79 @@ public class UserListView extends JPanel
         }
     }
 
+    @Override
+    public void onReceiveRoster(List<User> roster) {
+        // copy the state now; the User objects keep changing on the reader thread
+        record Row(long clientId, String displayName, boolean isReady, boolean tookTurn, int points) {
+        }
+        List<Row> rows = roster.stream()
+                .map(u -> new Row(u.getClientId(), u.getDisplayName(), u.isReady(), u.didTakeTurn(), u.getPoints()))
+                .toList();
+        SwingUtilities.invokeLater(() -> {
+            try {
+                for (Row row : rows) {
+                    UserListItem item = userItemsMap.get(row.clientId());
+                    if (item == null) {
+                        item = createUserListItem(row.clientId(), row.displayName());
+                    }
+                    // a finished turn takes precedence over the ready indicator
+                    if (row.tookTurn()) {
+                        item.setTurn(true);
+                    } else {
+                        item.setTurn(row.isReady(), Color.GRAY);
+                    }
+                    item.setPoints(row.points());
+                }
+                // single layout pass for the whole roster
+                userListArea.revalidate();
+                userListArea.repaint();
+            } catch (Exception e) {
+                LoggerUtil.INSTANCE.severe("Error applying roster", e);
+            }
+        });
+    }
+
+    @Override
+    public void onReceiveRosterPage(List<User> page, int offset, int matchCount, String query) {
+        record Row(long clientId, String displayName, boolean isReady, boolean tookTurn, int points) {
+        }
+        List<Row> rows = page.stream()
+                .map(u -> new Row(u.getClientId(), u.getDisplayName(), u.isReady(), u.didTakeTurn(), u.getPoints()))
+                .toList();
+        SwingUtilities.invokeLater(() -> {
+            try {
+                // the page replaces whatever was shown
+                userItemsMap.clear();
+                userListArea.removeAll();
+                for (Row row : rows) {
+                    UserListItem item = createUserListItem(row.clientId(), row.displayName());
+                    if (row.tookTurn()) {
+                        item.setTurn(true);
+                    } else {
+                        item.setTurn(row.isReady(), Color.GRAY);
+                    }
+                    item.setPoints(row.points());
+                }
+                pageOffset = offset;
+                pageQuery = query;
+                pageLabel.setText(matchCount == 0 ? " 0/0 "
+                        : String.format(" %s-%s/%s ", offset + 1, offset + rows.size(), matchCount));
+                prevButton.setEnabled(offset > 0);
+                nextButton.setEnabled(offset + rows.size() < matchCount);
+                pageControls.setVisible(true);
+                revalidate();
+                repaint();
+            } catch (Exception e) {
+                LoggerUtil.INSTANCE.severe("Error applying roster page", e);
+            }
+        });
+    }
+
+    @Override
+    public void onMemberCountUpdate(int memberCount) {
+        SwingUtilities.invokeLater(() -> memberCountLabel.setText(String.format("Members: %s", memberCount)));
+    }
+
     @Override
     public void onClientDisconnect(long clientId) {
         removeUserListItem(clientId);
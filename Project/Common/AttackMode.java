@@ -0,0 +1,10 @@
+package Project.Common;
+
+/**
+ * How the rounds of Phase.ATTACK are played
+ */
+public enum AttackMode {
+    TURNS, // one player at a time in turn order
+    SIMULTANEOUS, // everyone submits during a round window, resolved together
+    AUTO, // SIMULTANEOUS for large sessions, TURNS otherwise
+}
@@ -0,0 +1,34 @@
+package Project.Common;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Wraps several logical payloads into a single frame so a burst of updates from
+ * one game step costs one write/flush instead of one per payload
+ */
+public class BatchPayload extends Payload {
+    private List<Payload> payloads = new ArrayList<Payload>();
+
+    public BatchPayload() {
+        setPayloadType(PayloadType.BATCH);
+    }
+
+    public BatchPayload(List<Payload> payloads) {
+        this();
+        this.payloads = payloads;
+    }
+
+    public List<Payload> getPayloads() {
+        return payloads;
+    }
+
+    public void setPayloads(List<Payload> payloads) {
+        this.payloads = payloads;
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + String.format(" batch of %s payloads", payloads.size());
+    }
+}
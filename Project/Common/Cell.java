@@ -18,6 +18,15 @@ public class Cell {
         this.ships = new HashMap<Long, Integer>();
     }
 
+    /**
+     * Clears the cell for the next session so its Grid can reuse it
+     */
+    public void reset() {
+        status = 0;
+        ships.clear();
+        pointsForShips = 0;
+    }
+
     public void placeShip(long clientId) {
         int value = 1;
         if(ships.containsKey(clientId))
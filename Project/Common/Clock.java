@@ -0,0 +1,17 @@
+package Project.Common;
+
+/**
+ * Source of time for timers; SYSTEM on the server and clients, virtual time in
+ * simulations (see VirtualScheduler)
+ */
+public interface Clock {
+    /**
+     * Monotonic process time, not wall-clock time
+     */
+    Clock SYSTEM = () -> System.nanoTime() / 1_000_000L;
+
+    /**
+     * @return milliseconds on this clock (only useful for differences)
+     */
+    long now();
+}
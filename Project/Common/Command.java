@@ -18,7 +18,14 @@ public enum Command {
     EXAMPLE_TURN("exampleturn"),
     PLACE("place"), // added
     ATTACK("attack"), // added
-    SKIP("skip"); // added
+    SKIP("skip"), // added
+    PRIVATE_MESSAGE("pm"),
+    MUTE("mute"),
+    UNMUTE("unmute"),
+    TEAM_MESSAGE("t"),
+    HISTORY("history"),
+    MODE("mode"),
+    ADD_BOT("addbot");
 
     private static final HashMap<String, Command> BY_COMMAND = new HashMap<>();
     static {
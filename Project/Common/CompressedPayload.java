@@ -0,0 +1,45 @@
+package Project.Common;
+
+/**
+ * A payload serialized and deflated by the connection's PayloadCodec; only
+ * sent once the peer advertised compression support during the handshake
+ */
+public class CompressedPayload extends Payload {
+    private byte[] data;
+    private int rawLength;
+
+    public CompressedPayload() {
+        setPayloadType(PayloadType.COMPRESSED);
+    }
+
+    public CompressedPayload(byte[] data, int rawLength) {
+        this();
+        this.data = data;
+        this.rawLength = rawLength;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    public void setData(byte[] data) {
+        this.data = data;
+    }
+
+    /**
+     * @return the serialized size before compression
+     */
+    public int getRawLength() {
+        return rawLength;
+    }
+
+    public void setRawLength(int rawLength) {
+        this.rawLength = rawLength;
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + String.format(" compressed %s -> %s bytes", rawLength,
+                data == null ? 0 : data.length);
+    }
+}
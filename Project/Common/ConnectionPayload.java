@@ -2,6 +2,7 @@ package Project.Common;
 
 public class ConnectionPayload extends Payload {
     private String clientName;
+    private boolean compression = false; // request (CLIENT_CONNECT) / confirm (CLIENT_ID) compression
 
     /**
      * @return the clientName
@@ -17,11 +18,19 @@ public class ConnectionPayload extends Payload {
         this.clientName = clientName;
     }
 
+    public boolean isCompression() {
+        return compression;
+    }
+
+    public void setCompression(boolean compression) {
+        this.compression = compression;
+    }
+
     @Override
     public String toString() {
         return super.toString() +
-                String.format(" ClientName: [%s]",
-                        getClientName());
+                String.format(" ClientName: [%s] Compression: [%s]",
+                        getClientName(), compression);
     }
 
 }
@@ -7,4 +7,11 @@ public abstract class Constants {
     final public static String NOT_CONNECTED = "Not Connected";
     final public static long GAME_EVENT_CHANNEL = -2;
     final public static String LOBBY = "lobby";
+    // payloads written between ObjectOutputStream.reset() calls; bounds the stream's
+    // handle table on long-lived connections
+    final public static int STREAM_RESET_INTERVAL = 100;
+    // members per page of a large Room's roster
+    final public static int ROSTER_PAGE_SIZE = 50;
+    // chat messages per history replay/scrollback page
+    final public static int HISTORY_PAGE_SIZE = 50;
 }
@@ -0,0 +1,45 @@
+package Project.Common;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Buffers writes to the wrapped stream and counts the bytes and flushes that
+ * reach it (a flush is roughly one socket write syscall)
+ */
+public class CountingOutputStream extends FilterOutputStream {
+    private final AtomicLong bytes;
+    private final AtomicLong flushes;
+
+    /**
+     * @param out     stream to wrap (usually the socket's output stream)
+     * @param bytes   counter incremented with every byte written
+     * @param flushes counter incremented with every flush
+     */
+    public CountingOutputStream(OutputStream out, AtomicLong bytes, AtomicLong flushes) {
+        super(new BufferedOutputStream(out, 8192));
+        this.bytes = bytes;
+        this.flushes = flushes;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+        bytes.incrementAndGet();
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+        bytes.addAndGet(len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+        flushes.incrementAndGet();
+    }
+}
@@ -0,0 +1,50 @@
+package Project.Common;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scheduler on the system clock backed by a ScheduledExecutorService; task
+ * exceptions are logged instead of being swallowed by the executor
+ */
+public class ExecutorScheduler implements Scheduler {
+    /**
+     * One shared daemon thread for TimedEvents that weren't given a scheduler
+     */
+    public static final ExecutorScheduler DEFAULT = new ExecutorScheduler(newDaemonExecutor("TimedEvent"));
+
+    private final ScheduledExecutorService executor;
+
+    public ExecutorScheduler(ScheduledExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * @param threadName
+     * @return a single thread executor that doesn't keep the JVM alive and drops
+     *         cancelled tasks right away
+     */
+    public static ScheduledThreadPoolExecutor newDaemonExecutor(String threadName) {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, threadName);
+            t.setDaemon(true);
+            return t;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+
+    @Override
+    public Cancellable schedule(Runnable task, long delayMs) {
+        Future<?> future = executor.schedule(() -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                LoggerUtil.INSTANCE.severe("Scheduled task failed", e);
+            }
+        }, delayMs, TimeUnit.MILLISECONDS);
+        return () -> future.cancel(false);
+    }
+}
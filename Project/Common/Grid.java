@@ -2,8 +2,21 @@ package Project.Common;
 
 public class Grid {
     private Cell[][] cells;
+    private Cell[][] spare; // cells of the last reset(), reused by the next generate() of the same size
 
         public void generate(int rows, int cols, boolean isServer) {
+        if (spare != null && spare.length == rows && spare[0].length == cols) {
+            // same size as last session, so the cells only need clearing
+            cells = spare;
+            spare = null;
+            for (int i = 0; i < rows; i++) {
+                for (int j = 0; j < cols; j++) {
+                    cells[i][j].reset();
+                }
+            }
+            return;
+        }
+        spare = null;
         cells = new Cell[rows][cols];
         for (int i = 0; i < rows; i++) {
             for (int j = 0; j < cols; j++) {
@@ -16,6 +29,29 @@ public class Grid {
         return cells != null && row >= 0 && col >= 0 && row < cells.length && col < cells[0].length;
     }
 
+    public int getRows() {
+        return cells == null ? 0 : cells.length;
+    }
+
+    public int getCols() {
+        return cells == null ? 0 : cells[0].length;
+    }
+
+    /**
+     * @return number of ships in cells that haven't been attacked yet
+     */
+    public int countShipsLeft() {
+        int ships = 0;
+        for (int i = 0; i < getRows(); i++) {
+            for (int j = 0; j < getCols(); j++) {
+                if (cells[i][j].cellStatus() == 0) {
+                    ships += cells[i][j].getShip();
+                }
+            }
+        }
+        return ships;
+    }
+
     public Cell getCell(int row, int col)
     {
         return cells[row][col];
@@ -92,13 +128,8 @@ public class Grid {
     {
         if (cells == null)
             return;
-        for (int i = 0; i < cells.length; i++) {
-            for (int j = 0; j < cells[i].length; j++) {
-                if (cells[i][j] != null) {
-                    cells[i][j] = null;
-                }
-            }
-        }
+        // kept for the next generate() instead of being reallocated every session
+        spare = cells;
         cells = null;
     }
 
@@ -0,0 +1,105 @@
+package Project.Common;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Chat history of a Room. Sent by the server with the latest messages when a
+ * client joins (replay) and in response to scrollback requests; sent by the
+ * client with beforeSeq set to request the messages before it.
+ */
+public class HistoryPayload extends Payload {
+    private List<HistoryEntry> entries = new ArrayList<HistoryEntry>(); // oldest first
+    private long beforeSeq = -1; // request: page before this sequence number (-1 for the latest)
+    private boolean replay = false;
+    private boolean hasMore = false;
+
+    public HistoryPayload() {
+        setPayloadType(PayloadType.HISTORY);
+    }
+
+    public List<HistoryEntry> getEntries() {
+        return entries;
+    }
+
+    public void setEntries(List<HistoryEntry> entries) {
+        this.entries = entries;
+    }
+
+    public long getBeforeSeq() {
+        return beforeSeq;
+    }
+
+    public void setBeforeSeq(long beforeSeq) {
+        this.beforeSeq = beforeSeq;
+    }
+
+    /**
+     * @return true if these are the latest messages sent to a joining client
+     */
+    public boolean isReplay() {
+        return replay;
+    }
+
+    public void setReplay(boolean replay) {
+        this.replay = replay;
+    }
+
+    /**
+     * @return true if there are older messages to request
+     */
+    public boolean hasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + String.format(" Entries[%s] BeforeSeq[%s] Replay[%s] HasMore[%s]", entries.size(),
+                beforeSeq, replay, hasMore);
+    }
+
+    /**
+     * A single recorded chat message; the sender's name is kept since they may
+     * have left the Room since
+     */
+    public static class HistoryEntry implements Serializable {
+        private final long seq;
+        private final long clientId;
+        private final String senderName;
+        private final String message;
+        private final long timestamp;
+
+        public HistoryEntry(long seq, long clientId, String senderName, String message, long timestamp) {
+            this.seq = seq;
+            this.clientId = clientId;
+            this.senderName = senderName;
+            this.message = message;
+            this.timestamp = timestamp;
+        }
+
+        public long getSeq() {
+            return seq;
+        }
+
+        public long getClientId() {
+            return clientId;
+        }
+
+        public String getSenderName() {
+            return senderName;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+    }
+}
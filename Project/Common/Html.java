@@ -0,0 +1,66 @@
+package Project.Common;
+
+/**
+ * HTML escaping for text that ends up in the HTML the clients render (chat,
+ * game events, history). Names and other plain text are kept as is everywhere
+ * else and only escaped where they're put into HTML.
+ */
+public abstract class Html {
+    private static final boolean[] IS_HTML = new boolean[128];
+    static {
+        for (char c : "<>&\"'".toCharArray()) {
+            IS_HTML[c] = true;
+        }
+    }
+
+    /**
+     * @param text
+     * @return the text with HTML special characters escaped ("" for null)
+     */
+    public static String escape(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder out = new StringBuilder(text.length() + 16);
+        appendEscaped(out, text, 0, text.length());
+        return out.toString();
+    }
+
+    /**
+     * Appends text[from, to) with HTML special characters escaped, copying the
+     * runs in between in bulk
+     *
+     * @param out
+     * @param text
+     * @param from first index (inclusive)
+     * @param to   last index (exclusive)
+     */
+    public static void appendEscaped(StringBuilder out, String text, int from, int to) {
+        int run = from; // start of the pending run of characters that don't need escaping
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c >= 128 || !IS_HTML[c]) {
+                continue;
+            }
+            out.append(text, run, i);
+            run = i + 1;
+            switch (c) {
+                case '<':
+                    out.append("&lt;");
+                    break;
+                case '>':
+                    out.append("&gt;");
+                    break;
+                case '&':
+                    out.append("&amp;");
+                    break;
+                case '"':
+                    out.append("&quot;");
+                    break;
+                default:
+                    out.append("&#39;");
+            }
+        }
+        out.append(text, run, to);
+    }
+}
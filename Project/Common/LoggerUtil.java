@@ -205,7 +205,10 @@ public enum LoggerUtil {
             consoleHandler.setLevel(config.getConsoleLogLevel());
             logger.addHandler(consoleHandler);
 
-            logger.setLevel(Level.ALL);
+            // anything below both handlers is dropped before a LogRecord is made
+            logger.setLevel(config.getFileLogLevel().intValue() < config.getConsoleLogLevel().intValue()
+                    ? config.getFileLogLevel()
+                    : config.getConsoleLogLevel());
             isConfigured = true;
         } catch (IOException e) {
             e.printStackTrace();
@@ -271,6 +274,19 @@ public enum LoggerUtil {
         logger.log(level, message, throwable);
     }
 
+    /**
+     * Whether a message at this level would be written anywhere; lets callers
+     * skip building expensive messages
+     * 
+     * @param level
+     * @return
+     */
+    public boolean isLoggable(Level level) {
+        if (!isConfigured)
+            setupLogger();
+        return logger.isLoggable(level);
+    }
+
     /**
      * Logs an informational message.
      * 
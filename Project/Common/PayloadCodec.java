@@ -0,0 +1,216 @@
+package Project.Common;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Per-connection payload compression.
+ * <p>
+ * The Deflater/Inflater are stateful for the whole connection (sync flush per
+ * payload) so repeated class descriptors, HTML and chat phrases compress
+ * against everything sent before, and both are primed with a shared dictionary
+ * of common tokens. Payloads that serialize smaller than the threshold (i.e.,
+ * CoordPayloads) are passed through untouched.
+ * </p>
+ * <p>
+ * Note: encode() calls must happen in the same order the results are written to
+ * the stream, and decode() in the order they're read.
+ * </p>
+ */
+public class PayloadCodec {
+    public static final int DEFAULT_THRESHOLD = 256; // bytes
+
+    private static final byte[] DICTIONARY = String.join(" ",
+            "Project.Common.Payload", "Project.Common.PayloadType", "Project.Common.ConnectionPayload",
+            "Project.Common.BatchPayload", "Project.Common.TimerPayload", "Project.Common.TimerType",
+            "Project.Common.ReadyPayload", "Project.Common.PointsPayload", "java.lang.Enum", "java.util.ArrayList",
+            "java.lang.String", "payloadType", "clientId", "clientName", "message", "MESSAGE", "SYNC_CLIENT",
+            "ROOM_JOIN", "ROOM_LEAVE", "<font color=", "</font>", "<b>", "</b>", "<i>", "</i>", "<u>", "</u>",
+            "joined the room", "left the room", " disconnected", "It's ", "'s turn", "Round ", " has started")
+            .getBytes(StandardCharsets.UTF_8);
+
+    // totals across every codec (for bandwidth measurements)
+    private static final AtomicLong totalRawBytes = new AtomicLong();
+    private static final AtomicLong totalWireBytes = new AtomicLong();
+
+    private final int threshold;
+    private Deflater deflater;
+    private Inflater inflater;
+    private ObjectInputFilter inputFilter = null;
+    private int maxRawBytes = Integer.MAX_VALUE;
+    private long rawBytes = 0;
+    private long wireBytes = 0;
+
+    public PayloadCodec() {
+        this(DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * @param threshold minimum serialized size (bytes) worth compressing
+     */
+    public PayloadCodec(int threshold) {
+        this.threshold = threshold;
+    }
+
+    /**
+     * Compresses the payload if it's large enough to benefit
+     * 
+     * @param payload
+     * @return a CompressedPayload or the original payload
+     * @throws IOException
+     */
+    public synchronized Payload encode(Payload payload) throws IOException {
+        if (payload instanceof CompressedPayload) {
+            return payload;
+        }
+        byte[] raw = serialize(payload);
+        rawBytes += raw.length;
+        totalRawBytes.addAndGet(raw.length);
+        if (raw.length < threshold) {
+            wireBytes += raw.length;
+            totalWireBytes.addAndGet(raw.length);
+            return payload;
+        }
+        if (deflater == null) {
+            deflater = new Deflater(Deflater.BEST_SPEED);
+            deflater.setDictionary(DICTIONARY);
+        }
+        deflater.setInput(raw);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(raw.length / 2 + 16);
+        byte[] buffer = new byte[1024];
+        int count;
+        do {
+            count = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+            compressed.write(buffer, 0, count);
+        } while (count == buffer.length);
+        byte[] data = compressed.toByteArray();
+        wireBytes += data.length;
+        totalWireBytes.addAndGet(data.length);
+        return new CompressedPayload(data, raw.length);
+    }
+
+    /**
+     * Restores a CompressedPayload; any other payload is returned as is
+     * 
+     * @param payload
+     * @return
+     * @throws IOException
+     */
+    public synchronized Payload decode(Payload payload) throws IOException {
+        if (!(payload instanceof CompressedPayload)) {
+            return payload;
+        }
+        CompressedPayload cp = (CompressedPayload) payload;
+        if (cp.getRawLength() > maxRawBytes) {
+            throw new IOException(String.format("Compressed payload claims %s bytes, limit is %s", cp.getRawLength(),
+                    maxRawBytes));
+        }
+        if (inflater == null) {
+            inflater = new Inflater();
+        }
+        inflater.setInput(cp.getData());
+        ByteArrayOutputStream raw = new ByteArrayOutputStream(Math.max(64, cp.getRawLength()));
+        byte[] buffer = new byte[4096];
+        try {
+            while (true) {
+                int count = inflater.inflate(buffer);
+                if (count == 0) {
+                    if (inflater.needsDictionary()) {
+                        inflater.setDictionary(DICTIONARY);
+                        continue;
+                    }
+                    break; // needs input (sync flush boundary) or finished
+                }
+                raw.write(buffer, 0, count);
+                if (raw.size() > maxRawBytes) {
+                    // don't let a small frame inflate into a large allocation
+                    throw new IOException(String.format("Decompressed payload exceeded %s bytes", maxRawBytes));
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt compressed payload", e);
+        }
+        return deserialize(raw.toByteArray());
+    }
+
+    /**
+     * Applies the same limits to decompressed payloads that the connection applies
+     * to the raw stream
+     * 
+     * @param inputFilter filter for the inner ObjectInputStream (null for none)
+     * @param maxRawBytes max size a payload may decompress to
+     */
+    public synchronized void setInputLimits(ObjectInputFilter inputFilter, int maxRawBytes) {
+        if (maxRawBytes <= 0) {
+            throw new IllegalArgumentException("Max raw bytes must be positive");
+        }
+        this.inputFilter = inputFilter;
+        this.maxRawBytes = maxRawBytes;
+    }
+
+    protected byte[] serialize(Payload payload) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            oos.writeObject(payload);
+        }
+        return bytes.toByteArray();
+    }
+
+    protected Payload deserialize(byte[] raw) throws IOException {
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(raw))) {
+            if (inputFilter != null) {
+                ois.setObjectInputFilter(inputFilter);
+            }
+            return (Payload) ois.readObject();
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Compressed data isn't a Payload", e);
+        }
+    }
+
+    /**
+     * Releases the native zlib resources
+     */
+    public synchronized void close() {
+        if (deflater != null) {
+            deflater.end();
+            deflater = null;
+        }
+        if (inflater != null) {
+            inflater.end();
+            inflater = null;
+        }
+    }
+
+    public synchronized long getRawBytes() {
+        return rawBytes;
+    }
+
+    public synchronized long getWireBytes() {
+        return wireBytes;
+    }
+
+    public static long getTotalRawBytes() {
+        return totalRawBytes.get();
+    }
+
+    public static long getTotalWireBytes() {
+        return totalWireBytes.get();
+    }
+
+    /**
+     * @return human readable compression stats for this codec
+     */
+    public synchronized String getStats() {
+        return String.format("compression %s -> %s bytes (%.1f%%)", rawBytes, wireBytes,
+                rawBytes == 0 ? 100d : wireBytes * 100d / rawBytes);
+    }
+}
@@ -31,4 +31,16 @@ public enum PayloadType {
        ATTACK, 
        SYNC_POINTS, // payload for syncing points
        SKIP, // used for skipping command
+       BATCH, // several payloads wrapped in one frame (see BatchPayload)
+       COMPRESSED, // deflated payload, only used when negotiated in the handshake
+       PRIVATE_MESSAGE, // direct message to a single client (see PrivateMessagePayload)
+       SYNC_ROSTER, // snapshot of all members of a Room for a joining client (see RosterPayload)
+       PRESENCE, // coalesced joins/leaves of a Room (see PresencePayload)
+       ROSTER_PAGE, // client requesting a page of a large Room's members (see RosterPayload)
+       SUBSCRIBE, // unmute a Room topic or join a team channel (see TopicPayload)
+       UNSUBSCRIBE, // mute a Room topic or leave a team channel (see TopicPayload)
+       ROOM_DIRECTORY, // pushed Room list changes (see RoomDirectoryPayload)
+       HISTORY, // Room chat replay/scrollback, or a client requesting older messages (see HistoryPayload)
+       ATTACK_MODE, // client choosing how the next session's attack rounds are played (see AttackMode)
+       ADD_BOT, // client adding bot players to its GameRoom (count in the message)
 }
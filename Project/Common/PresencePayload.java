@@ -0,0 +1,52 @@
+package Project.Common;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import Project.Common.RosterPayload.RosterEntry;
+
+/**
+ * Aggregated membership changes of a Room over a short window (message is the
+ * Room name). An id appears in at most one of the lists; it reflects the last
+ * change within the window. Clients viewing a paged roster only get the
+ * changes of the members they're viewing plus the member count.
+ */
+public class PresencePayload extends Payload {
+    private List<RosterEntry> joined = new ArrayList<RosterEntry>();
+    private List<Long> left = new ArrayList<Long>();
+    private int memberCount = 0;
+
+    public PresencePayload() {
+        setPayloadType(PayloadType.PRESENCE);
+    }
+
+    public List<RosterEntry> getJoined() {
+        return joined;
+    }
+
+    public void setJoined(List<RosterEntry> joined) {
+        this.joined = joined;
+    }
+
+    public List<Long> getLeft() {
+        return left;
+    }
+
+    public void setLeft(List<Long> left) {
+        this.left = left;
+    }
+
+    public int getMemberCount() {
+        return memberCount;
+    }
+
+    public void setMemberCount(int memberCount) {
+        this.memberCount = memberCount;
+    }
+
+    @Override
+    public String toString() {
+        return super.toString()
+                + String.format(" Joined[%s] Left[%s] Members[%s]", joined.size(), left.size(), memberCount);
+    }
+}
@@ -0,0 +1,49 @@
+package Project.Common;
+
+/**
+ * Direct message between two clients regardless of their Rooms.
+ * <p>
+ * Client to Server: targetId (or targetName when the id isn't known) and the
+ * message. Server to Client: clientId/senderName identify who sent it and
+ * targetId/targetName who received it (the sender gets the same payload as a
+ * delivery echo).
+ * </p>
+ */
+public class PrivateMessagePayload extends Payload {
+    private long targetId = Constants.DEFAULT_CLIENT_ID;
+    private String targetName;
+    private String senderName;
+
+    public PrivateMessagePayload() {
+        setPayloadType(PayloadType.PRIVATE_MESSAGE);
+    }
+
+    public long getTargetId() {
+        return targetId;
+    }
+
+    public void setTargetId(long targetId) {
+        this.targetId = targetId;
+    }
+
+    public String getTargetName() {
+        return targetName;
+    }
+
+    public void setTargetName(String targetName) {
+        this.targetName = targetName;
+    }
+
+    public String getSenderName() {
+        return senderName;
+    }
+
+    public void setSenderName(String senderName) {
+        this.senderName = senderName;
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + String.format(" TargetId: [%s] TargetName: [%s] SenderName: [%s]", targetId, targetName, senderName);
+    }
+}
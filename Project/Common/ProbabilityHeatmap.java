@@ -0,0 +1,352 @@
+package Project.Common;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Likelihood of an unrevealed ship in each cell of a Grid, given the hits and
+ * misses so far (for bots and hints).
+ * <p>
+ * Ships tend to be placed near each other, so every attacked cell shifts the
+ * score of the unattacked cells around it (Chebyshev distance up to RADIUS,
+ * weighted 1/distance): up by HIT_WEIGHT per ship found, down by MISS_WEIGHT
+ * for a miss. A cell's score is 1 plus that influence (never below
+ * MIN_SCORE) and 0 once attacked; its likelihood is its share of the total.
+ * </p>
+ * <p>
+ * After an attack, update() only touches the cells within RADIUS of it and
+ * adjusts their rows' totals and best cells by the change in score; a row is
+ * only rescanned when its best cell went down. So an update costs O(RADIUS^2)
+ * (O(RADIUS * cols) at worst) instead of O(rows * cols). recompute() rebuilds
+ * everything from the Grid with fork/join over bands of rows, for a new or
+ * resized Grid. Not thread-safe; use it from the thread that attacks the Grid.
+ * </p>
+ */
+public class ProbabilityHeatmap {
+    public static final int RADIUS = 2;
+    public static final double HIT_WEIGHT = 0.5;
+    public static final double MISS_WEIGHT = 0.25;
+    public static final double MIN_SCORE = 0.05;
+    private static final int ROWS_PER_TASK = 64;
+
+    // metrics
+    private static final AtomicLong recomputes = new AtomicLong();
+    private static final AtomicLong updates = new AtomicLong();
+    private static final AtomicLong cellsTouched = new AtomicLong();
+
+    private final Grid grid;
+    private int rows = 0;
+    private int cols = 0;
+    private double[] source = new double[0]; // what each attacked cell adds to its neighbours
+    private double[] influence = new double[0];
+    private boolean[] isAttacked = new boolean[0];
+    private double[] rowTotals = new double[0];
+    private int[] rowBest = new int[0]; // column of each row's highest score or -1
+    private double total = 0;
+
+    /**
+     * @param grid an initialized Grid; attacks already on it are taken into
+     *             account
+     */
+    public ProbabilityHeatmap(Grid grid) {
+        this.grid = grid;
+        recompute();
+    }
+
+    /**
+     * Rebuilds the heatmap from the Grid (in parallel on large Grids); needed
+     * after the Grid was generated again
+     */
+    public void recompute() {
+        recomputes.incrementAndGet();
+        rows = grid.getRows();
+        cols = grid.getCols();
+        int cells = rows * cols;
+        if (influence.length != cells) {
+            source = new double[cells];
+            influence = new double[cells];
+            isAttacked = new boolean[cells];
+        }
+        if (rowTotals.length != rows) {
+            rowTotals = new double[rows];
+            rowBest = new int[rows];
+        }
+        // the influence pass reads the sources of neighbouring bands, so all
+        // sources have to be in first
+        new Pass(true, 0, rows).invoke();
+        new Pass(false, 0, rows).invoke();
+        total = 0;
+        for (int row = 0; row < rows; row++) {
+            total += rowTotals[row];
+        }
+        cellsTouched.addAndGet(2L * cells);
+    }
+
+    private class Pass extends RecursiveAction {
+        private final boolean isSourcePass;
+        private final int from;
+        private final int to;
+
+        private Pass(boolean isSourcePass, int from, int to) {
+            this.isSourcePass = isSourcePass;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > ROWS_PER_TASK) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Pass(isSourcePass, from, mid), new Pass(isSourcePass, mid, to));
+                return;
+            }
+            for (int row = from; row < to; row++) {
+                if (isSourcePass) {
+                    readRow(row);
+                } else {
+                    gatherRow(row);
+                    scanRow(row);
+                }
+            }
+        }
+    }
+
+    private void readRow(int row) {
+        for (int col = 0; col < cols; col++) {
+            int cell = row * cols + col;
+            isAttacked[cell] = grid.cellStatus(row, col) != 0;
+            source[cell] = isAttacked[cell] ? contribution(row, col) : 0;
+        }
+    }
+
+    private double contribution(int row, int col) {
+        int ships = grid.getLastShips(row, col);
+        return ships > 0 ? HIT_WEIGHT * ships : -MISS_WEIGHT;
+    }
+
+    private void gatherRow(int row) {
+        int rowFrom = Math.max(0, row - RADIUS);
+        int rowTo = Math.min(rows - 1, row + RADIUS);
+        for (int col = 0; col < cols; col++) {
+            int colFrom = Math.max(0, col - RADIUS);
+            int colTo = Math.min(cols - 1, col + RADIUS);
+            double sum = 0;
+            for (int r = rowFrom; r <= rowTo; r++) {
+                for (int c = colFrom; c <= colTo; c++) {
+                    double s = source[r * cols + c];
+                    if (s != 0) {
+                        int distance = Math.max(Math.abs(r - row), Math.abs(c - col));
+                        if (distance > 0) {
+                            sum += s / distance;
+                        }
+                    }
+                }
+            }
+            influence[row * cols + col] = sum;
+        }
+    }
+
+    /**
+     * Recomputes a row's total and best cell
+     */
+    private void scanRow(int row) {
+        double rowTotal = 0;
+        int best = -1;
+        double bestScore = 0;
+        for (int col = 0; col < cols; col++) {
+            double score = score(row * cols + col);
+            rowTotal += score;
+            if (score > bestScore) {
+                bestScore = score;
+                best = col;
+            }
+        }
+        rowTotals[row] = rowTotal;
+        rowBest[row] = best;
+    }
+
+    private double score(int cell) {
+        return isAttacked[cell] ? 0 : Math.max(MIN_SCORE, 1 + influence[cell]);
+    }
+
+    /**
+     * Applies an attack on the Grid; call it after Grid.attackShip()
+     *
+     * @param x row
+     * @param y column
+     */
+    public void update(int x, int y) {
+        int cell = x * cols + y;
+        if (isAttacked[cell]) {
+            return; // attacking a cell again reveals nothing new
+        }
+        updates.incrementAndGet();
+        double s = contribution(x, y);
+        source[cell] = s;
+        int rowFrom = Math.max(0, x - RADIUS);
+        int rowTo = Math.min(rows - 1, x + RADIUS);
+        int colFrom = Math.max(0, y - RADIUS);
+        int colTo = Math.min(cols - 1, y + RADIUS);
+        long touched = 0;
+        for (int r = rowFrom; r <= rowTo; r++) {
+            double rowDelta = 0;
+            boolean isBestLowered = false;
+            for (int c = colFrom; c <= colTo; c++) {
+                int i = r * cols + c;
+                double before = score(i);
+                int distance = Math.max(Math.abs(r - x), Math.abs(c - y));
+                if (distance == 0) {
+                    isAttacked[i] = true;
+                } else {
+                    influence[i] += s / distance;
+                }
+                double after = score(i);
+                rowDelta += after - before;
+                if (c == rowBest[r]) {
+                    isBestLowered |= after < before;
+                } else if (after > 0 && (rowBest[r] < 0 || after > score(r * cols + rowBest[r]))) {
+                    rowBest[r] = c;
+                }
+            }
+            rowTotals[r] += rowDelta;
+            total += rowDelta;
+            touched += colTo - colFrom + 1;
+            if (isBestLowered) {
+                // the row's best cell went down, something else may be best now
+                total -= rowTotals[r];
+                scanRow(r);
+                total += rowTotals[r];
+                touched += cols;
+            }
+        }
+        cellsTouched.addAndGet(touched);
+    }
+
+    /**
+     * @param x row
+     * @param y column
+     * @return the unnormalized score of the cell (0 if attacked)
+     */
+    public double getScore(int x, int y) {
+        return score(x * cols + y);
+    }
+
+    /**
+     * @param x row
+     * @param y column
+     * @return the chance the next ship found is in this cell
+     */
+    public double getLikelihood(int x, int y) {
+        return total <= 0 ? 0 : score(x * cols + y) / total;
+    }
+
+    /**
+     * @return index (row * cols + col) of the most likely cell or -1 if every
+     *         cell has been attacked
+     */
+    public int getBestCell() {
+        int best = -1;
+        double bestScore = 0;
+        for (int row = 0; row < rows; row++) {
+            if (rowBest[row] >= 0) {
+                double score = score(row * cols + rowBest[row]);
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = row * cols + rowBest[row];
+                }
+            }
+        }
+        return best;
+    }
+
+    public static String getStats() {
+        return String.format("ProbabilityHeatmap recomputes[%s] updates[%s] cellsTouched[%s]", recomputes.get(),
+                updates.get(), cellsTouched.get());
+    }
+
+    /**
+     * Incremental updates against full recomputes on large Grids, checking both
+     * end up with the same heatmap
+     *
+     * @param args [sizes...] (default 100 1000)
+     */
+    public static void main(String[] args) {
+        int[] sizes = args.length > 0 ? Arrays.stream(args).mapToInt(Integer::parseInt).toArray()
+                : new int[] { 100, 1000 };
+        System.out.println(String.format("workers[%s]", ForkJoinPool.commonPool().getParallelism()));
+        for (int size : sizes) {
+            SplittableRandom random = new SplittableRandom(size);
+            Grid grid = new Grid();
+            grid.generate(size, size, true);
+            int cells = size * size;
+            for (int i = 0; i < cells / 5; i++) {
+                // clusters of ships, the way people place them
+                int x = random.nextInt(size);
+                int y = random.nextInt(size);
+                for (int j = 0; j < 4; j++) {
+                    int cx = Math.min(size - 1, x + random.nextInt(3));
+                    int cy = Math.min(size - 1, y + random.nextInt(3));
+                    grid.placeShip(cx, cy, i % 8);
+                }
+            }
+            ProbabilityHeatmap heatmap = new ProbabilityHeatmap(grid);
+            // warm up
+            for (int i = 0; i < 3; i++) {
+                heatmap.recompute();
+            }
+            int recomputeRuns = size >= 1000 ? 5 : 50;
+            long start = System.nanoTime();
+            for (int i = 0; i < recomputeRuns; i++) {
+                heatmap.recompute();
+            }
+            double recomputeMs = (System.nanoTime() - start) / 1_000_000d / recomputeRuns;
+
+            // attack a third of the Grid, half at the most likely cell
+            int attacks = cells / 3;
+            long updateNanos = 0;
+            long bestNanos = 0;
+            int hits = 0;
+            for (int i = 0; i < attacks; i++) {
+                long t0 = System.nanoTime();
+                int cell = heatmap.getBestCell();
+                long t1 = System.nanoTime();
+                if (random.nextBoolean() || cell < 0) {
+                    do {
+                        cell = random.nextInt(cells);
+                    } while (grid.cellStatus(cell / size, cell % size) != 0);
+                }
+                if (grid.attackShip(cell / size, cell % size)) {
+                    hits++;
+                }
+                long t2 = System.nanoTime();
+                heatmap.update(cell / size, cell % size);
+                updateNanos += System.nanoTime() - t2;
+                bestNanos += t1 - t0;
+            }
+            double[] incremental = new double[cells];
+            for (int cell = 0; cell < cells; cell++) {
+                incremental[cell] = heatmap.getLikelihood(cell / size, cell % size);
+            }
+            int best = heatmap.getBestCell();
+            heatmap.recompute();
+            double maxError = 0;
+            for (int cell = 0; cell < cells; cell++) {
+                maxError = Math.max(maxError,
+                        Math.abs(incremental[cell] - heatmap.getLikelihood(cell / size, cell % size)));
+            }
+            int recomputedBest = heatmap.getBestCell();
+            // ties may pick different cells, but never a less likely one
+            maxError = Math.max(maxError, Math.abs(incremental[best] - incremental[recomputedBest]));
+            double updateUs = updateNanos / 1000d / attacks;
+            System.out.println(String.format(
+                    "%sx%s recompute[%.2fms] update[%.2fus] bestCell[%.2fus] speedup[%.0fx] attacks[%s] hits[%s]"
+                            + " maxLikelihoodError[%.1e]",
+                    size, size, recomputeMs, updateUs, bestNanos / 1000d / attacks, recomputeMs * 1000 / updateUs,
+                    attacks, hits, maxError));
+        }
+        System.out.println(getStats());
+    }
+}
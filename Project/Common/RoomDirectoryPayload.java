@@ -0,0 +1,102 @@
+package Project.Common;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Changes to the server's Room directory since the last update (or every Room
+ * when snapshot is true). Pushed to clients that subscribed to
+ * TopicPayload.DIRECTORY instead of them polling ROOM_LIST.
+ */
+public class RoomDirectoryPayload extends Payload {
+    private List<RoomSummary> added = new ArrayList<RoomSummary>();
+    private List<RoomSummary> updated = new ArrayList<RoomSummary>();
+    private List<String> removed = new ArrayList<String>();
+    private boolean snapshot = false;
+
+    public RoomDirectoryPayload() {
+        setPayloadType(PayloadType.ROOM_DIRECTORY);
+    }
+
+    public List<RoomSummary> getAdded() {
+        return added;
+    }
+
+    public void setAdded(List<RoomSummary> added) {
+        this.added = added;
+    }
+
+    public List<RoomSummary> getUpdated() {
+        return updated;
+    }
+
+    public void setUpdated(List<RoomSummary> updated) {
+        this.updated = updated;
+    }
+
+    public List<String> getRemoved() {
+        return removed;
+    }
+
+    public void setRemoved(List<String> removed) {
+        this.removed = removed;
+    }
+
+    /**
+     * @return true if added holds every Room (anything not listed is gone)
+     */
+    public boolean isSnapshot() {
+        return snapshot;
+    }
+
+    public void setSnapshot(boolean snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    public boolean isEmpty() {
+        return added.isEmpty() && updated.isEmpty() && removed.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + String.format(" Added[%s] Updated[%s] Removed[%s] Snapshot[%s]", added.size(),
+                updated.size(), removed.size(), snapshot);
+    }
+
+    /**
+     * The listed state of a single Room
+     */
+    public static class RoomSummary implements Serializable {
+        private final String name;
+        private final int memberCount;
+        private final Phase phase; // null for Rooms without a game
+
+        public RoomSummary(String name, int memberCount, Phase phase) {
+            this.name = name;
+            this.memberCount = memberCount;
+            this.phase = phase;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getMemberCount() {
+            return memberCount;
+        }
+
+        public Phase getPhase() {
+            return phase;
+        }
+
+        /**
+         * @param other
+         * @return true if nothing shown in the directory changed
+         */
+        public boolean sameAs(RoomSummary other) {
+            return other != null && memberCount == other.memberCount && phase == other.phase
+                    && name.equals(other.name);
+        }
+    }
+}
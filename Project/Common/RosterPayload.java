@@ -0,0 +1,134 @@
+package Project.Common;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Snapshot of every member of a Room (sent once to a joining client instead of
+ * a SYNC_CLIENT/SYNC_READY/SYNC_TURN/SYNC_POINTS payload per member).
+ * <p>
+ * Large Rooms only send a page of members (paged is true). Clients request
+ * another page by sending a ROSTER_PAGE RosterPayload with the offset and an
+ * optional name query.
+ * </p>
+ */
+public class RosterPayload extends Payload {
+    private List<RosterEntry> entries = new ArrayList<RosterEntry>();
+    private boolean paged = false;
+    private int offset = 0;
+    private String query = null;
+    private int matchCount = 0; // members matching the query
+    private int memberCount = 0; // members in the Room
+
+    public RosterPayload() {
+        setPayloadType(PayloadType.SYNC_ROSTER);
+    }
+
+    public List<RosterEntry> getEntries() {
+        return entries;
+    }
+
+    public void setEntries(List<RosterEntry> entries) {
+        this.entries = entries;
+    }
+
+    public boolean isPaged() {
+        return paged;
+    }
+
+    public void setPaged(boolean paged) {
+        this.paged = paged;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public void setOffset(int offset) {
+        this.offset = offset;
+    }
+
+    /**
+     * @return case-insensitive part of a name or null for every member
+     */
+    public String getQuery() {
+        return query;
+    }
+
+    public void setQuery(String query) {
+        this.query = query;
+    }
+
+    public int getMatchCount() {
+        return matchCount;
+    }
+
+    public void setMatchCount(int matchCount) {
+        this.matchCount = matchCount;
+    }
+
+    public int getMemberCount() {
+        return memberCount;
+    }
+
+    public void setMemberCount(int memberCount) {
+        this.memberCount = memberCount;
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + (paged
+                ? String.format(" Roster[%s entries] Page[%s of %s] Members[%s]", entries.size(), offset, matchCount,
+                        memberCount)
+                : String.format(" Roster[%s entries]", entries.size()));
+    }
+
+    /**
+     * The synced state of a single member
+     */
+    public static class RosterEntry implements Serializable {
+        private final long clientId;
+        private final String clientName;
+        private boolean ready = false;
+        private boolean tookTurn = false;
+        private int points = -1; // <0 means not shown (outside of a session)
+
+        public RosterEntry(long clientId, String clientName) {
+            this.clientId = clientId;
+            this.clientName = clientName;
+        }
+
+        public long getClientId() {
+            return clientId;
+        }
+
+        public String getClientName() {
+            return clientName;
+        }
+
+        public boolean isReady() {
+            return ready;
+        }
+
+        public void setReady(boolean ready) {
+            this.ready = ready;
+        }
+
+        public boolean didTakeTurn() {
+            return tookTurn;
+        }
+
+        public void setTookTurn(boolean tookTurn) {
+            this.tookTurn = tookTurn;
+        }
+
+        public int getPoints() {
+            return points;
+        }
+
+        public void setPoints(int points) {
+            this.points = points;
+        }
+    }
+}
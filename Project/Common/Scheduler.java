@@ -0,0 +1,26 @@
+package Project.Common;
+
+/**
+ * Runs delayed tasks for TimedEvent and the game rooms: on a Room's game loop
+ * on the server, on a plain executor (see ExecutorScheduler), or on virtual
+ * time in simulations (see VirtualScheduler). Delays are measured on the
+ * scheduler's own clock.
+ */
+public interface Scheduler extends Clock {
+    /**
+     * @param task
+     * @param delayMs
+     * @return cancelling it from the thread the scheduler runs tasks on
+     *         guarantees the task won't run
+     */
+    Cancellable schedule(Runnable task, long delayMs);
+
+    @Override
+    default long now() {
+        return Clock.SYSTEM.now();
+    }
+
+    interface Cancellable {
+        void cancel();
+    }
+}
@@ -2,20 +2,27 @@ package Project.Common;
 
 /* Originally based off of https://gist.github.com/MattToegel/c55747f26c5092d6362678d5b1729ec6 */
 
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.function.Consumer;
 
 /**
- * Simple countdown timer demo of java.util.Timer facility.
- * Formerly called Countdown
+ * Countdown that calls back when it expires (and optionally every second).
+ * Formerly called Countdown.
+ * <p>
+ * Runs on a Scheduler and measures time on the scheduler's clock, so the same
+ * timer can expire on a Room's game loop on the server or instantly on virtual
+ * time in simulations. Without a scheduler all TimedEvents share
+ * ExecutorScheduler.DEFAULT.
+ * </p>
  */
 
 public class TimedEvent {
-    private int secondsRemaining;
-    private Runnable expireCallback = null;
-    private Consumer<Integer> tickCallback = null;
-    final private Timer timer;
+    private final Scheduler scheduler;
+    private volatile long expiresAt; // on the scheduler's clock
+    private volatile Runnable expireCallback = null;
+    private volatile Consumer<Integer> tickCallback = null;
+    private Scheduler.Cancellable expiry = null;
+    private Scheduler.Cancellable tick = null;
+    private final Runnable expireTask = this::expire;
 
     /**
      * Create a TimedEvent to trigger the passed in callback after a set duration
@@ -24,8 +31,21 @@ public class TimedEvent {
      * @param callback
      */
     public TimedEvent(int durationInSeconds, Runnable callback) {
-        this(durationInSeconds);
-        this.expireCallback = callback;
+        this(durationInSeconds, callback, ExecutorScheduler.DEFAULT);
+    }
+
+    /**
+     * Create a TimedEvent that runs on the passed scheduler; cancelling it from
+     * the scheduler's thread guarantees the callback won't run
+     * 
+     * @param durationInSeconds
+     * @param callback
+     * @param scheduler
+     */
+    public TimedEvent(int durationInSeconds, Runnable callback, Scheduler scheduler) {
+        this.scheduler = scheduler;
+        expireCallback = callback;
+        setDurationInSeconds(durationInSeconds);
     }
 
     /**
@@ -36,23 +56,7 @@ public class TimedEvent {
      * @param durationInSeconds
      */
     public TimedEvent(int durationInSeconds) {
-        timer = new Timer();
-        secondsRemaining = durationInSeconds;
-        timer.scheduleAtFixedRate(new TimerTask() {
-            public void run() {
-                secondsRemaining--;
-                if (tickCallback != null) {
-                    tickCallback.accept(secondsRemaining);
-                }
-                if (secondsRemaining <= 0) {
-                    timer.cancel();
-                    secondsRemaining = 0;
-                    if (expireCallback != null) {
-                        expireCallback.run();
-                    }
-                }
-            }
-        }, 1000, 1000);
+        this(durationInSeconds, null, ExecutorScheduler.DEFAULT);
     }
 
     /**
@@ -61,8 +65,27 @@ public class TimedEvent {
      * 
      * @param callback
      */
-    public void setTickCallback(Consumer<Integer> callback) {
+    public synchronized void setTickCallback(Consumer<Integer> callback) {
         tickCallback = callback;
+        if (tick == null && callback != null) {
+            scheduleTick();
+        }
+    }
+
+    private synchronized void scheduleTick() {
+        tick = scheduler.schedule(this::tick, 1000);
+    }
+
+    private void tick() {
+        Consumer<Integer> callback = tickCallback;
+        if (callback == null) {
+            return;
+        }
+        int remaining = getRemainingTime();
+        callback.accept(remaining);
+        if (remaining > 0) {
+            scheduleTick();
+        }
     }
 
     /**
@@ -77,21 +100,75 @@ public class TimedEvent {
     /**
      * Removes all callback references and cancels the timer
      */
-    public void cancel() {
+    public synchronized void cancel() {
         expireCallback = null;
         tickCallback = null;
-        timer.cancel();
+        if (expiry != null) {
+            expiry.cancel();
+        }
+        if (tick != null) {
+            tick.cancel();
+        }
+    }
+
+    /**
+     * Starts a cancelled or expired timer again with a new callback, so a
+     * Room can keep one TimedEvent per timer instead of a new one each time
+     * 
+     * @param durationInSeconds
+     * @param callback
+     */
+    public synchronized void restart(int durationInSeconds, Runnable callback) {
+        cancel();
+        tick = null;
+        expireCallback = callback;
+        setDurationInSeconds(durationInSeconds);
     }
 
     /**
      * Used to override the remaining countdown durationInSeconds
      */
-    public void setDurationInSeconds(int d) {
-        secondsRemaining = d;
+    public synchronized void setDurationInSeconds(int d) {
+        expiresAt = scheduler.now() + d * 1000L;
+        if (expiry != null) {
+            expiry.cancel();
+        }
+        expiry = scheduler.schedule(expireTask, d * 1000L);
     }
 
+    private void expire() {
+        Runnable callback = expireCallback;
+        // an expiry that was already running when the timer was restarted is early
+        if (callback != null && scheduler.now() >= expiresAt) {
+            callback.run();
+        }
+    }
+
+    /**
+     * @return whole seconds left, rounded up
+     */
     public int getRemainingTime() {
-        return secondsRemaining;
+        return (int) Math.max(0, (expiresAt - scheduler.now() + 999) / 1000);
+    }
+
+    /**
+     * The time on the scheduler's clock (see now() for the server) this timer
+     * is due to expire; shared with clients so they can count down locally
+     * 
+     * @return
+     */
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    /**
+     * Monotonic clock in milliseconds (not wall-clock time, only useful for
+     * differences)
+     * 
+     * @return
+     */
+    public static long now() {
+        return Clock.SYSTEM.now();
     }
 
     /**
@@ -100,11 +177,14 @@ public class TimedEvent {
      * @param args
      */
     public static void main(String args[]) {
+        // on virtual time the 30 seconds pass instantly
+        VirtualScheduler scheduler = new VirtualScheduler();
         TimedEvent cd = new TimedEvent(30, () -> {
             System.out.println("Time expired");
-        });
+        }, scheduler);
         cd.setTickCallback((tick) -> {
             System.out.println("Tick: " + tick);
         });
+        scheduler.advance(30_000);
     }
 }
\ No newline at end of file
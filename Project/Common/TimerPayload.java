@@ -3,6 +3,8 @@ package Project.Common;
 public class TimerPayload extends Payload {
     private int time;
     private TimerType timerType;
+    private long expiresAt = -1; // server monotonic millis when the timer expires
+    private long serverTime = -1; // server monotonic millis when this was sent
 
     public TimerPayload() {
         setPayloadType(PayloadType.TIME);
@@ -23,4 +25,39 @@ public class TimerPayload extends Payload {
     public void setTime(int time) {
         this.time = time;
     }
+
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(long expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    public long getServerTime() {
+        return serverTime;
+    }
+
+    public void setServerTime(long serverTime) {
+        this.serverTime = serverTime;
+    }
+
+    /**
+     * Remaining duration relative to the server's clock at send time; the
+     * receiver counts down locally from here so no per-second ticks are needed
+     * 
+     * @return remaining millis or -1 if the timer was cancelled
+     */
+    public long getRemainingMillis() {
+        if (time < 0 || expiresAt < 0 || serverTime < 0) {
+            return -1;
+        }
+        return Math.max(0, expiresAt - serverTime);
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + String.format(" timer [%s] time [%s] remaining [%sms]", timerType, time,
+                getRemainingMillis());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,31 @@
+package Project.Common;
+
+/**
+ * Targets a Room topic: SUBSCRIBE/UNSUBSCRIBE to (un)mute a topic or
+ * join/leave a team channel, MESSAGE to chat on a team channel (e.g.,
+ * "team:red"). SUBSCRIBE/UNSUBSCRIBE with DIRECTORY toggle the pushed Room
+ * directory instead.
+ */
+public class TopicPayload extends Payload {
+    public static final String TEAM_PREFIX = "team:";
+    public static final String DIRECTORY = "rooms";
+    private String topic;
+
+    public TopicPayload(PayloadType payloadType, String topic) {
+        setPayloadType(payloadType);
+        this.topic = topic;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public void setTopic(String topic) {
+        this.topic = topic;
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + String.format(" Topic[%s]", topic);
+    }
+}
@@ -66,6 +66,15 @@ public class User {
         return placedShips >= maxShips;
     }
 
+    public void resetPlacedShips() // every session starts with all ships to place
+    {
+        placedShips = 0;
+    }
+
+    public int getMaxShips() {
+        return maxShips;
+    }
+
     /**
      * @return the clientId
      */
@@ -0,0 +1,95 @@
+package Project.Common;
+
+import java.util.PriorityQueue;
+
+/**
+ * Scheduler on virtual time for simulations: nothing runs until the owner
+ * calls runNext() or advance(), and the clock jumps straight to the next
+ * deadline, so a 30 second timer costs nothing. Tasks due at the same time run
+ * in the order they were scheduled. Not thread-safe; one thread drives it and
+ * exceptions from tasks propagate to that thread.
+ */
+public class VirtualScheduler implements Scheduler {
+    private final PriorityQueue<Entry> queue = new PriorityQueue<>();
+    private long now = 0;
+    private long sequence = 0;
+    private long tasksRun = 0;
+
+    private static class Entry implements Comparable<Entry>, Cancellable {
+        private final long time;
+        private final long sequence;
+        private final Runnable task;
+        private boolean isCancelled = false;
+
+        private Entry(long time, long sequence, Runnable task) {
+            this.time = time;
+            this.sequence = sequence;
+            this.task = task;
+        }
+
+        @Override
+        public void cancel() {
+            isCancelled = true;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            return time != other.time ? Long.compare(time, other.time) : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    @Override
+    public Cancellable schedule(Runnable task, long delayMs) {
+        Entry entry = new Entry(now + Math.max(0, delayMs), sequence++, task);
+        queue.add(entry);
+        return entry;
+    }
+
+    /**
+     * Moves the clock to the next task and runs it
+     * 
+     * @return false if nothing is scheduled
+     */
+    public boolean runNext() {
+        Entry entry;
+        while ((entry = queue.poll()) != null) {
+            if (entry.isCancelled) {
+                continue;
+            }
+            now = entry.time;
+            tasksRun++;
+            entry.task.run();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Runs everything due within the next ms milliseconds
+     * 
+     * @param ms
+     */
+    public void advance(long ms) {
+        long until = now + ms;
+        while (!queue.isEmpty() && queue.peek().time <= until) {
+            runNext();
+        }
+        now = until;
+    }
+
+    /**
+     * @return virtual milliseconds since this scheduler was created
+     */
+    @Override
+    public long now() {
+        return now;
+    }
+
+    public long getTasksRun() {
+        return tasksRun;
+    }
+
+    public boolean isIdle() {
+        return queue.stream().allMatch(entry -> entry.isCancelled);
+    }
+}
@@ -0,0 +1,12 @@
+package Project.Exceptions;
+
+public class PayloadRejectedException extends CustomIT114Exception {
+    public PayloadRejectedException(String message) {
+        super(message);
+    }
+
+    public PayloadRejectedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+}
@@ -1,10 +1,16 @@
 package Project.Server;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 import Project.Common.Constants;
+import Project.Common.ExecutorScheduler;
 import Project.Common.LoggerUtil;
 import Project.Common.Phase;
+import Project.Common.RosterPayload.RosterEntry;
+import Project.Common.Scheduler;
 import Project.Common.TimedEvent;
 import Project.Common.TimerType;
 import Project.Exceptions.NotReadyException;
@@ -12,21 +18,110 @@ import Project.Exceptions.PhaseMismatchException;
 import Project.Exceptions.PlayerNotFoundException;
 
 /**
- * No edits should be needed in this file, this prepares the core logic for the
- * GameRoom
+ * The game plumbing under GameRoom; GameRoom adds the rules on top.
+ * <p>
+ * Game logic and timers run one task at a time on the Room's game loop, a
+ * GameExecutor.RoomQueue, or on an injected Scheduler in simulations (see
+ * execute() and getScheduler()). Membership changes take the Room lock and
+ * write to sockets, so they run off the loop (changeMembers()).
+ * </p>
+ * <p>
+ * currentPhase is only used on the loop; publishedPhase is its volatile copy
+ * for readers elsewhere (getPhase()). Clients that join mid-session are
+ * spectators and get coalesced updates from the SpectatorBroadcaster until the
+ * session ends. The ready timer is pooled: a cancelled one is kept as the
+ * spare and restarted by the next ready check. beginBatch()/endBatch() and
+ * runBatched() send everything a step produces as one batch per client.
+ * </p>
  */
 public abstract class BaseGameRoom extends Room {
 
-    private TimedEvent readyTimer = null;
+    private TimedEvent readyTimer = null; // while it's running
+    private TimedEvent spareReadyTimer = null; // restarted by the next ready check
+    private final Runnable onReadyTimeout = () -> runBatched(this::checkReadyStatus);
 
     protected final int MINIMUM_REQUIRED_TO_START = 2;
 
+    // only read or written on the game loop (see execute())
     protected Phase currentPhase = Phase.READY;
+    // copy of currentPhase for readers off the game loop (directory, rosters)
+    private volatile Phase publishedPhase = Phase.READY;
 
     protected boolean allowToggleReady = false;
 
+    // clients that aren't part of the active session; they get coalesced updates
+    protected final SpectatorBroadcaster spectators;
+    // topics spectators receive through the SpectatorBroadcaster instead of directly
+    private static final List<String> SPECTATED_TOPICS = List.of(TopicRouter.GAME_EVENTS, TopicRouter.TIMERS,
+            TopicRouter.GAME_STATE);
+
+    // the game loop this Room is pinned to (null with an injected scheduler)
+    private final GameExecutor.RoomQueue gameQueue;
+    // where all game logic and timers run
+    private final Scheduler scheduler;
+    // membership changes of game loop Rooms; they take the Room lock and write to sockets
+    private static final ExecutorScheduler MEMBERSHIP = new ExecutorScheduler(
+            ExecutorScheduler.newDaemonExecutor("RoomMembership"));
+
     public BaseGameRoom(String name) {
         super(name);
+        gameQueue = GameExecutor.INSTANCE.register(name);
+        scheduler = gameQueue;
+        spectators = new SpectatorBroadcaster(name, scheduler);
+    }
+
+    /**
+     * A Room that runs its game logic and timers on the passed scheduler
+     * instead of a game loop, e.g. a VirtualScheduler in simulations
+     * 
+     * @param name
+     * @param scheduler only used from one thread at a time
+     */
+    public BaseGameRoom(String name, Scheduler scheduler) {
+        super(name);
+        gameQueue = null;
+        this.scheduler = scheduler;
+        spectators = new SpectatorBroadcaster(name, scheduler);
+    }
+
+    /**
+     * Runs game logic on this Room's game loop (see GameExecutor); tasks run
+     * one at a time in the order they were submitted
+     * 
+     * @param task
+     */
+    protected void execute(Runnable task) {
+        if (gameQueue != null) {
+            gameQueue.execute(task);
+        } else {
+            scheduler.schedule(task, 0);
+        }
+    }
+
+    /**
+     * Runs a membership change (addClients/removeClients) off the game loop so
+     * the loop never waits on the Room lock or a socket; changes run one at a
+     * time in the order they were submitted. With an injected scheduler it runs
+     * there, so simulations stay on one thread.
+     * 
+     * @param task
+     */
+    protected void changeMembers(Runnable task) {
+        if (gameQueue != null) {
+            MEMBERSHIP.schedule(task, 0);
+        } else {
+            scheduler.schedule(task, 0);
+        }
+    }
+
+    /**
+     * Where this Room's timers and delayed tasks run; its clock is the one the
+     * timer deadlines are on
+     * 
+     * @return
+     */
+    protected Scheduler getScheduler() {
+        return scheduler;
     }
 
     /**
@@ -78,43 +173,61 @@ public abstract class BaseGameRoom extends Room {
     protected abstract void onClientRemoved(ServerThread client);
 
     @Override
-    protected synchronized void addClient(ServerThread client) {
+    protected synchronized List<ServerThread> addClients(Collection<ServerThread> clients) {
         if (!isRunning()) { // block action if Room isn't running
-            return;
+            return new ArrayList<>();
         }
         // do the base Room class logic
-        super.addClient(client);
-        new Thread() {
-            @Override
-            public void run() {
-                // sleep 100
-                try {
-                    Thread.sleep(100);
-                    onClientAdded(client);
-                } catch (InterruptedException e) {
-                    LoggerUtil.INSTANCE.severe("Thread sleep interrupted", e);
-                }
+        List<ServerThread> added = super.addClients(clients);
+        if (added.isEmpty()) {
+            return added;
+        }
+        execute(() -> {
+            // decided on the game loop so it's ordered with the phase changes and
+            // releaseSpectators() of the session
+            if (currentPhase != Phase.READY) {
+                // joined mid-session so they can only watch
+                added.stream().filter(client -> clientsInRoom.containsKey(client.getClientId()))
+                        .forEach(this::addSpectator);
             }
-        }.start();
-
+            // delayed 100ms on the game loop
+            getScheduler().schedule(() -> added.forEach(client -> onClientAdded(client)), 100);
+        });
+        return added;
     }
 
     @Override
-    protected synchronized void removeClient(ServerThread client) {
+    protected synchronized List<ServerThread> removeClients(Collection<ServerThread> clients) {
         if (!isRunning()) { // block action if Room isn't running
-            return;
+            return new ArrayList<>();
         }
         LoggerUtil.INSTANCE.info("Players in room: " + clientsInRoom.size());
+        clients.forEach(spectators::remove);
         // do the base-class logic
-        super.removeClient(client);
-        onClientRemoved(client);
+        List<ServerThread> removed = super.removeClients(clients);
+        removed.forEach(client -> execute(() -> {
+            spectators.remove(client); // in case a join task still made them a spectator
+            onClientRemoved(client);
+        }));
+        return removed;
     }
 
     @Override
     protected synchronized void disconnect(ServerThread client) {
+        spectators.remove(client);
         super.disconnect(client);
         LoggerUtil.INSTANCE.info("Players in room: " + clientsInRoom.size());
-        onClientRemoved(client);
+        execute(() -> {
+            spectators.remove(client); // in case a join task still made them a spectator
+            onClientRemoved(client);
+        });
+    }
+
+    @Override
+    protected RosterEntry buildRosterEntry(ServerThread client) {
+        RosterEntry entry = super.buildRosterEntry(client);
+        entry.setReady(client.isReady());
+        return entry;
     }
 
     /**
@@ -123,6 +236,7 @@ public abstract class BaseGameRoom extends Room {
     protected void resetReadyTimer() {
         if (readyTimer != null) {
             readyTimer.cancel();
+            spareReadyTimer = readyTimer;
             readyTimer = null;
             sendCurrentTime(TimerType.READY, -1);
         }
@@ -138,14 +252,99 @@ public abstract class BaseGameRoom extends Room {
             resetReadyTimer();
         }
         if (readyTimer == null) {
-            readyTimer = new TimedEvent(30, () -> {
-                // callback to trigger when ready expires
-                checkReadyStatus();
-            });
-            readyTimer.setTickCallback((time) -> {
-                System.out.println("Ready Timer: " + time);
-                sendCurrentTime(TimerType.READY, time);
-            });
+            readyTimer = startTimer(spareReadyTimer, 30, onReadyTimeout);
+            spareReadyTimer = null;
+            // one deadline instead of per-second ticks; clients count down locally
+            sendCurrentTime(TimerType.READY, readyTimer.getExpiresAt());
+        }
+    }
+
+    /**
+     * Starts a timer on this Room's scheduler, restarting a stopped one instead
+     * of allocating a new one when there is one
+     * 
+     * @param stopped           a cancelled or expired timer of this Room or null
+     * @param durationInSeconds
+     * @param callback
+     * @return the running timer
+     */
+    protected TimedEvent startTimer(TimedEvent stopped, int durationInSeconds, Runnable callback) {
+        if (stopped == null) {
+            return new TimedEvent(durationInSeconds, callback, scheduler);
+        }
+        stopped.restart(durationInSeconds, callback);
+        return stopped;
+    }
+
+    /**
+     * Syncs an in progress ready timer to a single client
+     * 
+     * @param sp
+     */
+    protected void syncReadyTimer(ServerThread sp) {
+        TimedEvent timer = readyTimer;
+        if (timer != null) {
+            sp.sendCurrentTime(TimerType.READY, timer.getExpiresAt(), scheduler);
+        }
+    }
+
+    /**
+     * Moves everyone who isn't ready into the spectator tier for the session
+     */
+    protected void assignSpectators() {
+        clientsInRoom.values().forEach(sp -> {
+            if (sp.isSpectator()) {
+                addSpectator(sp);
+            }
+        });
+        LoggerUtil.INSTANCE.info(String.format("Session has %s spectators", spectators.size()));
+    }
+
+    /**
+     * Switches a client from the direct game topics to coalesced updates
+     * 
+     * @param sp
+     */
+    private void addSpectator(ServerThread sp) {
+        spectators.add(sp);
+        SPECTATED_TOPICS.forEach(topic -> topics.unsubscribe(sp, topic));
+    }
+
+    /**
+     * Returns all spectators to regular (direct) updates
+     */
+    protected void releaseSpectators() {
+        List<ServerThread> released = spectators.getSpectators();
+        spectators.clear();
+        released.stream().filter(sp -> clientsInRoom.containsKey(sp.getClientId()))
+                .forEach(sp -> SPECTATED_TOPICS.forEach(topic -> topics.subscribe(sp, topic)));
+    }
+
+    @Override
+    protected void resubscribe(ServerThread client, String topic) {
+        // spectators get the topic back once the session ends
+        if (!(isSpectating(client) && SPECTATED_TOPICS.contains(topic))) {
+            super.resubscribe(client, topic);
+        }
+    }
+
+    /**
+     * Whether the client currently receives coalesced spectator updates instead
+     * of direct ones
+     * 
+     * @param client
+     * @return
+     */
+    protected boolean isSpectating(ServerThread client) {
+        return spectators.contains(client);
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        releaseSpectators();
+        if (gameQueue != null) {
+            gameQueue.release();
         }
     }
 
@@ -155,8 +354,10 @@ public abstract class BaseGameRoom extends Room {
      */
     private void checkReadyStatus() {
         long numReady = clientsInRoom.values().stream().filter(p -> p.isReady()).count();
+        // clear the expired timer either way so the next ready check starts a new one
+        resetReadyTimer();
         if (numReady >= MINIMUM_REQUIRED_TO_START) {
-            resetReadyTimer();
+            assignSpectators();
             onSessionStart();
         } else {
             onSessionEnd();
@@ -177,7 +378,49 @@ public abstract class BaseGameRoom extends Room {
     protected void changePhase(Phase phase) {
         if (currentPhase != phase) {
             currentPhase = phase;
+            publishedPhase = phase;
             sendCurrentPhase();
+            RoomDirectory.INSTANCE.roomChanged(this);
+        }
+    }
+
+    @Override
+    public Phase getPhase() {
+        return publishedPhase;
+    }
+
+    /**
+     * Opens a batch on every client in the room so all output of one game step
+     * reaches each recipient as a single frame
+     * 
+     * @return the clients to pass to endBatch()
+     */
+    protected List<ServerThread> beginBatch() {
+        List<ServerThread> recipients = new ArrayList<>(clientsInRoom.values());
+        recipients.forEach(ServerThread::beginBatch);
+        return recipients;
+    }
+
+    /**
+     * Flushes the batches opened by beginBatch()
+     * 
+     * @param recipients
+     */
+    protected void endBatch(List<ServerThread> recipients) {
+        recipients.forEach(ServerThread::endBatch);
+    }
+
+    /**
+     * Runs a game step (usually a timer expiring) with its output batched
+     * 
+     * @param step
+     */
+    protected void runBatched(Runnable step) {
+        List<ServerThread> recipients = beginBatch();
+        try {
+            step.run();
+        } finally {
+            endBatch(recipients);
         }
     }
 
@@ -186,41 +429,34 @@ public abstract class BaseGameRoom extends Room {
         sendGameEvent(str, null);
     }
 
-    protected void sendGameEvent(String str, List<Long> targets) {
-        clientsInRoom.values().removeIf(spInRoom -> {
-            boolean canSend = false;
-            if (targets != null) {
-                if (targets.contains(spInRoom.getClientId())) {
-                    canSend = true;
-                }
-            } else {
-                canSend = true;
-            }
-            if (canSend) {
-                boolean failedToSend = !spInRoom.sendGameEvent(str);
-                if (failedToSend) {
-                    removeClient(spInRoom);
-                }
-                return failedToSend;
-            }
-            return false;
-        });
+    /**
+     * @param str
+     * @param targets client ids to send to (spectators included) or null for
+     *                everyone
+     */
+    protected void sendGameEvent(String str, Set<Long> targets) {
+        List<ServerThread> failed;
+        if (targets == null) {
+            spectators.queueGameEvent(str);
+            failed = topics.publish(TopicRouter.GAME_EVENTS, spInRoom -> spInRoom.sendGameEvent(str));
+        } else {
+            failed = topics.publish(TopicRouter.MEMBERS, targets,
+                    spInRoom -> spInRoom.isMuted(TopicRouter.GAME_EVENTS) || spInRoom.sendGameEvent(str));
+        }
+        failed.forEach(this::removeClient);
     }
 
     /**
-     * Note: due to log output, this will get really spammy
+     * Sends a timer's deadline; only called when a timer starts, changes or is
+     * cancelled
      * 
      * @param timerType
-     * @param time      the remaining time or -1 to cancel
+     * @param expiresAt the TimedEvent deadline or -1 to cancel
      */
-    protected void sendCurrentTime(TimerType timerType, int time) {
-        clientsInRoom.values().removeIf(spInRoom -> {
-            boolean failedToSend = !spInRoom.sendCurrentTime(timerType, time);
-            if (failedToSend) {
-                removeClient(spInRoom);
-            }
-            return failedToSend;
-        });
+    protected void sendCurrentTime(TimerType timerType, long expiresAt) {
+        spectators.queueTime(timerType, expiresAt);
+        topics.publish(TopicRouter.TIMERS, spInRoom -> spInRoom.sendCurrentTime(timerType, expiresAt, scheduler))
+                .forEach(this::removeClient);
     }
 
     /**
@@ -236,13 +472,9 @@ public abstract class BaseGameRoom extends Room {
      * Sends the current phase to all clients
      */
     protected void sendCurrentPhase() {
-        clientsInRoom.values().removeIf(spInRoom -> {
-            boolean failedToSend = !spInRoom.sendCurrentPhase(currentPhase);
-            if (failedToSend) {
-                removeClient(spInRoom);
-            }
-            return failedToSend;
-        });
+        final Phase phase = currentPhase;
+        topics.publish(TopicRouter.MEMBERS, spInRoom -> spInRoom.sendCurrentPhase(phase))
+                .forEach(this::removeClient);
     }
 
     /**
@@ -250,13 +482,7 @@ public abstract class BaseGameRoom extends Room {
      * status
      */
     protected void sendResetReadyTrigger() {
-        clientsInRoom.values().removeIf(spInRoom -> {
-            boolean failedToSend = !spInRoom.sendResetReady();
-            if (failedToSend) {
-                removeClient(spInRoom);
-            }
-            return failedToSend;
-        });
+        topics.publish(TopicRouter.MEMBERS, ServerThread::sendResetReady).forEach(this::removeClient);
     }
 
     /**
@@ -281,18 +507,15 @@ public abstract class BaseGameRoom extends Room {
      * @param isReady
      */
     protected void sendReadyStatus(ServerThread incomingSP, boolean isReady) {
-        clientsInRoom.values().removeIf(spInRoom -> {
-            boolean failedToSend = !spInRoom.sendReadyStatus(incomingSP.getClientId(), incomingSP.isReady());
-            if (failedToSend) {
-                removeClient(spInRoom);
-            }
-            return failedToSend;
-        });
+        topics.publish(TopicRouter.MEMBERS,
+                spInRoom -> spInRoom.sendReadyStatus(incomingSP.getClientId(), incomingSP.isReady()))
+                .forEach(this::removeClient);
     }
     // end send data to ServerThread(s)
 
     // receive data from ServerThread (GameRoom specific)
     protected void handleReady(ServerThread sender) {
+        List<ServerThread> batch = beginBatch();
         try {
             // early exit checks
             checkPlayerInRoom(sender);
@@ -314,6 +537,8 @@ public abstract class BaseGameRoom extends Room {
             sendReadyStatus(sp, sp.isReady());
         } catch (Exception e) {
             LoggerUtil.INSTANCE.severe("handleReady exception", e);
+        } finally {
+            endBatch(batch);
         }
 
     }
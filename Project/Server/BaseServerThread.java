@@ -4,9 +4,17 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
+import Project.Common.BatchPayload;
+import Project.Common.Constants;
+import Project.Common.CountingOutputStream;
 import Project.Common.Payload;
+import Project.Common.PayloadCodec;
 import Project.Common.User;
+import Project.Exceptions.PayloadRejectedException;
 
 /**
  * Base class the handles the underlying connection between Client and
@@ -18,7 +26,67 @@ public abstract class BaseServerThread extends Thread {
     protected ObjectOutputStream out; // exposed here for send()
     protected Socket client; // communication directly to "my" client
     protected User user = new User();
-    protected Room currentRoom;
+    protected volatile Room currentRoom; // read without the room lock when planning a migration
+    protected final RateLimiter rateLimiter = new RateLimiter(); // inbound flood protection
+    private final Object sendLock = new Object(); // serializes writes to out
+    private int batchDepth = 0; // guarded by sendLock
+    private List<Payload> pendingBatch = null; // guarded by sendLock
+    private int writesSinceReset = 0; // guarded by sendLock
+    private static volatile int resetInterval = Constants.STREAM_RESET_INTERVAL;
+
+    private final PayloadCodec codec = new PayloadCodec();
+    private volatile boolean isCompressing = false; // negotiated during the handshake
+    private static volatile boolean compressionAllowed = true;
+
+    // outbound totals across all connections (for measuring frames/bytes per step)
+    private static final AtomicLong bytesSent = new AtomicLong();
+    private static final AtomicLong framesSent = new AtomicLong();
+
+    public static long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    public static long getFramesSent() {
+        return framesSent.get();
+    }
+
+    /**
+     * How many payloads may be written before the ObjectOutputStream's handle
+     * table is cleared. Without resets the stream keeps a reference to every
+     * object ever written for the life of the connection.
+     * 
+     * @param interval 1 resets after every payload
+     */
+    public static void setResetInterval(int interval) {
+        if (interval < 1) {
+            throw new IllegalArgumentException("Reset interval must be at least 1");
+        }
+        resetInterval = interval;
+    }
+
+    /**
+     * Server-wide switch for honoring client compression requests
+     * 
+     * @param allowed
+     */
+    public static void setCompressionAllowed(boolean allowed) {
+        compressionAllowed = allowed;
+    }
+
+    /**
+     * Turns on outbound compression if the server allows it; the client must have
+     * requested it in CLIENT_CONNECT
+     * 
+     * @return true if compression is now active
+     */
+    protected boolean enableCompression() {
+        isCompressing = compressionAllowed;
+        return isCompressing;
+    }
+
+    protected boolean isCompressing() {
+        return isCompressing;
+    }
 
     /**
      * Returns the current Room associated with this ServerThread
@@ -103,18 +171,99 @@ public abstract class BaseServerThread extends Thread {
     protected abstract void processPayload(Payload payload);
 
     /**
-     * Sends the payload over the socket
+     * Triggered when an inbound payload was dropped by the RateLimiter
+     * 
+     * @param payload   the dropped payload
+     * @param firstDrop true for the first drop in a run of violations
+     */
+    protected abstract void onRateLimited(Payload payload, boolean firstDrop);
+
+    /**
+     * Applies the RateLimiter before a payload is dispatched
+     * 
+     * @param payload
+     * @return true if the payload can be processed
+     */
+    private boolean checkRateLimit(Payload payload) {
+        switch (rateLimiter.check(payload.getPayloadType())) {
+            case ALLOW:
+                return true;
+            case THROTTLE:
+                onRateLimited(payload, rateLimiter.isFirstViolation());
+                return false;
+            case DISCONNECT:
+            default:
+                info("Rate limit exceeded, disconnecting");
+                disconnect();
+                return false;
+        }
+    }
+
+    /**
+     * Starts collecting outgoing payloads instead of writing them; calls can be
+     * nested and the batch is written by the outermost endBatch()
+     */
+    protected void beginBatch() {
+        synchronized (sendLock) {
+            if (batchDepth++ == 0) {
+                pendingBatch = new ArrayList<Payload>();
+            }
+        }
+    }
+
+    /**
+     * Writes everything collected since beginBatch() as a single frame
+     * 
+     * @return true if no errors were encountered
+     */
+    protected boolean endBatch() {
+        synchronized (sendLock) {
+            if (batchDepth == 0) {
+                return true;
+            }
+            if (--batchDepth > 0) {
+                return true;
+            }
+            List<Payload> batch = pendingBatch;
+            pendingBatch = null;
+            if (batch.isEmpty()) {
+                return true;
+            }
+            return writeToClient(batch.size() == 1 ? batch.get(0) : new BatchPayload(batch));
+        }
+    }
+
+    /**
+     * Sends the payload over the socket (or adds it to the open batch)
      * 
      * @param payload
      * @return true if no errors were encountered
      */
     protected boolean sendToClient(Payload payload) {
+        if (!isRunning) {
+            return true;
+        }
+        synchronized (sendLock) {
+            if (batchDepth > 0) {
+                pendingBatch.add(payload);
+                return true;
+            }
+            return writeToClient(payload);
+        }
+    }
+
+    private boolean writeToClient(Payload payload) {
         if (!isRunning) {
             return true;
         }
         try {
             info("Sending to client: " + payload);
-            out.writeObject(payload);
+            out.writeObject(isCompressing ? codec.encode(payload) : payload);
+            if (++writesSinceReset >= resetInterval) {
+                // drops the back-reference table (the reader's table is cleared too)
+                out.reset();
+                writesSinceReset = 0;
+            }
             out.flush();
             return true;
         } catch (IOException e) {
@@ -143,9 +292,14 @@ public abstract class BaseServerThread extends Thread {
     @Override
     public void run() {
         info("Thread starting");
-        try (ObjectOutputStream out = new ObjectOutputStream(client.getOutputStream());
-                ObjectInputStream in = new ObjectInputStream(client.getInputStream());) {
+        try (ObjectOutputStream out = new ObjectOutputStream(
+                new CountingOutputStream(client.getOutputStream(), bytesSent, framesSent));
+                PayloadInputGuard guard = new PayloadInputGuard(client.getInputStream());
+                ObjectInputStream in = new ObjectInputStream(guard);) {
+            in.setObjectInputFilter(guard);
+            codec.setInputLimits(guard, PayloadInputGuard.MAX_FRAME_BYTES);
             this.out = out;
+            out.flush(); // push the stream header through the buffer so the client's ObjectInputStream can open
             isRunning = true;
             new java.util.Timer().schedule(new java.util.TimerTask() {
                 @Override
@@ -166,13 +320,20 @@ public abstract class BaseServerThread extends Thread {
              */
             while (isRunning) {
                 try {
-                    fromClient = (Payload) in.readObject(); // blocking method
+                    guard.beginFrame();
+                    fromClient = codec.decode((Payload) in.readObject()); // blocking method
                     if (fromClient != null) {
                         info("Received from my client: " + fromClient);
-                        processPayload(fromClient);
+                        guard.validate(fromClient);
+                        if (checkRateLimit(fromClient)) {
+                            processPayload(fromClient);
+                        }
                     } else {
                         throw new IOException("Connection interrupted"); // Specific exception for a clean break
                     }
+                } catch (PayloadRejectedException pre) {
+                    // field level violation; drop just this payload
+                    info("Rejected payload: " + pre.getMessage());
                 } catch (ClassCastException | ClassNotFoundException cce) {
                     System.err.println("Error reading object as specified type: " + cce.getMessage());
                     cce.printStackTrace();
@@ -212,6 +373,8 @@ public abstract class BaseServerThread extends Thread {
             out.close();
             client.close();
             user.reset();
+            info(codec.getStats());
+            codec.close();
             info("Closed Server-side Socket");
         } catch (IOException e) {
             info("Client already closed");
@@ -0,0 +1,313 @@
+package Project.Server;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+import Project.Common.Grid;
+import Project.Common.LoggerUtil;
+import Project.Common.Payload;
+import Project.Common.Phase;
+import Project.Common.ProbabilityHeatmap;
+import Project.Common.TimerPayload;
+
+/**
+ * In-process bot player for filling GameRooms (/addbot) and as a soak load.
+ * <p>
+ * A bot is a SocketlessClient: the Room talks to it like any other
+ * client, but instead of being written out the payloads that matter (phase
+ * changes, timer starts, ready resets) wake the bot up. It then schedules its
+ * next move on the Room's own scheduler after a short think time and plays it
+ * through the same handlers a ServerThread uses. So a bot has no thread, no
+ * socket and no queue of its own; thousands of them cost a few objects each and
+ * share the game loops with the Rooms they're in.
+ * </p>
+ * <p>
+ * Targeting uses a probability density over the Grid: the expected number of
+ * ships in each cell that hasn't been attacked yet. That's the bot's own ships
+ * in the cell plus the other players' unrevealed ships spread over the
+ * unattacked cells, weighted by where ships turned up in earlier sessions (a
+ * smoothed placement prior, since people keep using the same spots) and by
+ * the Room's ProbabilityHeatmap of this session's hits and misses. The bot
+ * attacks the densest cell and places its own ships where the prior is lowest.
+ * </p>
+ */
+public class BotPlayer extends SocketlessClient {
+    private static volatile long minThinkMs = 400;
+    private static volatile long maxThinkMs = 2_000;
+
+    // metrics
+    private static final AtomicLong bots = new AtomicLong();
+    private static final AtomicLong wakeUps = new AtomicLong();
+    private static final AtomicLong readies = new AtomicLong();
+    private static final AtomicLong placements = new AtomicLong();
+    private static final AtomicLong attacks = new AtomicLong();
+    private static final AtomicLong skips = new AtomicLong();
+    private static final AtomicLong sessions = new AtomicLong(); // counted once per bot
+
+    private final SplittableRandom random; // only used from the Room's scheduler
+    private final AtomicBoolean isMoveScheduled = new AtomicBoolean();
+    // per cell, only used from the Room's scheduler
+    private int[] seenShips = new int[0]; // ships found in earlier sessions (placement prior)
+    private int[] myShips = new int[0]; // this session
+    private boolean[] isCounted = new boolean[0]; // attacked cells already added to seenShips
+    private volatile boolean isNewSession = true;
+
+    public BotPlayer() {
+        setClientName("Bot" + getClientId());
+        random = new SplittableRandom(getClientId());
+        bots.incrementAndGet();
+    }
+
+    /**
+     * Sets the think time before each move; applies to all bots
+     *
+     * @param minMs
+     * @param maxMs
+     */
+    public static void setThinkTime(long minMs, long maxMs) {
+        if (minMs < 0 || maxMs < minMs) {
+            throw new IllegalArgumentException("Invalid think time");
+        }
+        minThinkMs = minMs;
+        maxThinkMs = maxMs;
+    }
+
+    /**
+     * Nothing is written anywhere; the game state a bot needs to react to
+     * schedules its next move
+     */
+    @Override
+    protected boolean sendToClient(Payload payload) {
+        switch (payload.getPayloadType()) {
+            case PHASE:
+                if (Phase.PLACE.name().equals(payload.getMessage())) {
+                    sessions.incrementAndGet();
+                    isNewSession = true;
+                }
+                wakeUp();
+                break;
+            case TIME:
+                // a turn, round or ready timer started
+                if (((TimerPayload) payload).getExpiresAt() >= 0) {
+                    wakeUp();
+                }
+                break;
+            case RESET_READY:
+                wakeUp();
+                break;
+            default:
+                break;
+        }
+        return true;
+    }
+
+    private void wakeUp() {
+        if (!(getCurrentRoom() instanceof GameRoom room) || !isMoveScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        wakeUps.incrementAndGet();
+        // may be called from any thread that sends to the bot
+        long thinkMs = minThinkMs
+                + (maxThinkMs > minThinkMs ? ThreadLocalRandom.current().nextLong(maxThinkMs - minThinkMs) : 0);
+        room.getScheduler().schedule(() -> move(room), thinkMs);
+    }
+
+    /**
+     * Plays whatever move the bot has in the current phase; runs on the Room's
+     * scheduler
+     */
+    private void move(GameRoom room) {
+        isMoveScheduled.set(false);
+        if (getCurrentRoom() != room) {
+            return;
+        }
+        Grid grid = room.getGrid();
+        switch (room.getPhase()) {
+            case READY:
+                if (!isReady()) {
+                    readies.incrementAndGet();
+                    room.handleReady(this);
+                }
+                break;
+            case PLACE:
+                if (isReady() && !placedAllShips() && grid.getRows() > 0) {
+                    int cell = pickPlacement(grid);
+                    placements.incrementAndGet();
+                    myShips[cell]++;
+                    room.handlePlaceAction(this, cell / grid.getCols(), cell % grid.getCols());
+                    wakeUp(); // one ship at a time, like a person
+                }
+                break;
+            case ATTACK:
+                if (!isReady() || didTakeTurn()
+                        || !room.isSimultaneous() && room.getCurrentTurnClientId() != getClientId()) {
+                    break;
+                }
+                int cell = pickTarget(grid, room.getHeatmap(), room.getPlayerCount());
+                if (cell < 0) {
+                    skips.incrementAndGet();
+                    room.handleSkipAction(this);
+                } else {
+                    attacks.incrementAndGet();
+                    room.handleAttackAction(this, cell / grid.getCols(), cell % grid.getCols());
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Sizes the per-cell state for the Grid and clears the session part of it
+     * once a new session started
+     */
+    private void prepare(Grid grid) {
+        int cells = grid.getRows() * grid.getCols();
+        if (seenShips.length != cells) {
+            seenShips = new int[cells];
+            myShips = new int[cells];
+            isCounted = new boolean[cells];
+        } else if (isNewSession) {
+            Arrays.fill(myShips, 0);
+            Arrays.fill(isCounted, false);
+        }
+        isNewSession = false;
+    }
+
+    /**
+     * @return the cell where other players are least likely to look (lowest
+     *         prior, fewest of our own ships), ties broken at random
+     */
+    private int pickPlacement(Grid grid) {
+        prepare(grid);
+        int best = -1;
+        int bestScore = Integer.MAX_VALUE;
+        int ties = 0;
+        for (int cell = 0; cell < myShips.length; cell++) {
+            int score = seenShips[cell] + myShips[cell];
+            if (score < bestScore) {
+                best = cell;
+                bestScore = score;
+                ties = 1;
+            } else if (score == bestScore && random.nextInt(++ties) == 0) {
+                best = cell;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Picks the unattacked cell with the most expected ships
+     *
+     * @param grid
+     * @param heatmap likelihoods from this session's hits and misses
+     * @param players in the session
+     * @return the cell index or -1 if every cell has been attacked
+     */
+    private int pickTarget(Grid grid, ProbabilityHeatmap heatmap, int players) {
+        prepare(grid);
+        int cols = grid.getCols();
+        int revealed = 0; // other players' ships found so far
+        double priorTotal = 0;
+        for (int cell = 0; cell < myShips.length; cell++) {
+            int x = cell / cols;
+            int y = cell % cols;
+            if (grid.cellStatus(x, y) == 0) {
+                priorTotal += (1 + seenShips[cell]) * heatmap.getScore(x, y);
+                continue;
+            }
+            int found = Math.max(0, grid.getLastShips(x, y) - myShips[cell]);
+            revealed += found;
+            if (!isCounted[cell]) {
+                isCounted[cell] = true;
+                seenShips[cell] += found;
+            }
+        }
+        if (priorTotal == 0) {
+            return -1;
+        }
+        double hidden = Math.max(0, (players - 1) * getMaxShips() - revealed);
+        int best = -1;
+        double bestDensity = -1;
+        int ties = 0;
+        for (int cell = 0; cell < myShips.length; cell++) {
+            if (grid.cellStatus(cell / cols, cell % cols) != 0) {
+                continue;
+            }
+            double density = myShips[cell]
+                    + hidden * (1 + seenShips[cell]) * heatmap.getScore(cell / cols, cell % cols) / priorTotal;
+            if (density > bestDensity) {
+                best = cell;
+                bestDensity = density;
+                ties = 1;
+            } else if (density == bestDensity && random.nextInt(++ties) == 0) {
+                best = cell;
+            }
+        }
+        return best;
+    }
+
+    public static String getStats() {
+        return String.format("BotPlayer bots[%s] wakeUps[%s] readies[%s] placements[%s] attacks[%s] skips[%s] sessions[%s]",
+                bots.get(), wakeUps.get(), readies.get(), placements.get(), attacks.get(), skips.get(), sessions.get());
+    }
+
+    /**
+     * Soak load: GameRooms full of bots playing back to back sessions on the
+     * game loops in real time, with a status line every 10 seconds
+     *
+     * @param args [rooms] [botsPerRoom] [seconds] [thinkMs]
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int roomCount = args.length > 0 ? Integer.parseInt(args[0]) : 250;
+        int botsPerRoom = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 60;
+        long thinkMs = args.length > 3 ? Long.parseLong(args[3]) : 2_000;
+
+        LoggerUtil.LoggerConfig config = new LoggerUtil.LoggerConfig();
+        config.setLogLocation("bot-soak.log");
+        config.setFileLogLevel(Level.SEVERE);
+        config.setConsoleLogLevel(Level.SEVERE);
+        LoggerUtil.INSTANCE.setConfig(config);
+        ChatHistory.setDirectory(null);
+        setThinkTime(thinkMs / 5, thinkMs);
+
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+        List<GameRoom> rooms = new ArrayList<>();
+        for (int r = 0; r < roomCount; r++) {
+            GameRoom room = new GameRoom("Soak-" + r);
+            List<ServerThread> roomBots = new ArrayList<>();
+            for (int b = 0; b < botsPerRoom; b++) {
+                roomBots.add(new BotPlayer());
+            }
+            room.addClients(roomBots);
+            rooms.add(room);
+        }
+        System.gc();
+        long heapAfter = runtime.totalMemory() - runtime.freeMemory();
+        System.out.println(String.format("rooms[%s] bots[%s] heapPerBot[~%sB] threads[%s]", roomCount,
+                roomCount * botsPerRoom, (heapAfter - heapBefore) / Math.max(1, roomCount * botsPerRoom),
+                ManagementFactory.getThreadMXBean().getThreadCount()));
+
+        long actionsBefore = 0;
+        for (int elapsed = 10; elapsed <= seconds; elapsed += 10) {
+            Thread.sleep(10_000);
+            long actions = readies.get() + placements.get() + attacks.get() + skips.get();
+            System.out.println(String.format("%3ss actionsPerSecond[%.0f] %s", elapsed,
+                    (actions - actionsBefore) / 10.0, getStats()));
+            actionsBefore = actions;
+        }
+        System.out.println(String.format("threads[%s] %s", ManagementFactory.getThreadMXBean().getThreadCount(),
+                GameExecutor.INSTANCE.getStats()));
+        System.exit(0);
+    }
+}
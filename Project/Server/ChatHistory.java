@@ -0,0 +1,402 @@
+package Project.Server;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import Project.Common.Constants;
+import Project.Common.HistoryPayload;
+import Project.Common.HistoryPayload.HistoryEntry;
+import Project.Common.LoggerUtil;
+
+/**
+ * Recent chat of a Room for clients that join late or scroll back.
+ * <p>
+ * Messages are kept in a fixed-size ring as ready-to-send HistoryEntries. The
+ * replay for joining clients is built once after a change and the same payload
+ * is shared by every joiner until the next message, so a burst of joins costs
+ * one copy. Every message is also appended to an on-disk log split into
+ * segments of SEGMENT_SIZE messages (history/&lt;room&gt;-&lt;segment&gt;.log)
+ * by a single background writer; scrollback older than the ring is read back
+ * from it. Disk reads run on the writer thread after every earlier write and
+ * are never done while holding the Room lock.
+ * </p>
+ */
+public class ChatHistory {
+    public static final int DEFAULT_CAPACITY = 200; // messages kept in memory
+    public static final int SEGMENT_SIZE = 1000; // messages per log file
+    public static final Path DEFAULT_DIRECTORY = Path.of("history");
+
+    private static volatile Path directory = DEFAULT_DIRECTORY; // null keeps history in memory only
+
+    // one writer thread shared by every Room so logging never delays a relay
+    private static final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "HistoryWriter");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // metrics (shared across Rooms)
+    private static final AtomicLong appended = new AtomicLong();
+    private static final AtomicLong replays = new AtomicLong(); // replays handed out
+    private static final AtomicLong replayBuilds = new AtomicLong();
+    private static final AtomicLong memoryPages = new AtomicLong();
+    private static final AtomicLong diskPages = new AtomicLong();
+    private static final AtomicLong diskErrors = new AtomicLong();
+
+    private final String fileName; // file-safe Room name (see toFileName())
+    private final HistoryEntry[] ring;
+    // guarded by this
+    private long nextSeq;
+    private int size = 0;
+    private HistoryPayload replay = null; // null when stale
+    private boolean isClosed = false; // a late relay can't reopen the log
+    // only used by the writer thread
+    private BufferedWriter out = null;
+    private long outSegment = -1;
+
+    public ChatHistory(String roomName) {
+        this(roomName, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param roomName
+     * @param capacity messages kept in memory
+     */
+    public ChatHistory(String roomName, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        fileName = toFileName(roomName);
+        ring = new HistoryEntry[capacity];
+        // a Room recreated under the same name continues its log
+        nextSeq = findNextSeq(directory);
+    }
+
+    /**
+     * Encodes a Room name for the segment files: letters and digits stay, every
+     * other UTF-8 byte becomes _xx. It's one to one (names that only differ in
+     * case share a file, since they name the same Room) and never contains the '-'
+     * before the segment number.
+     *
+     * @param roomName
+     * @return
+     */
+    static String toFileName(String roomName) {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : roomName.toLowerCase().getBytes(StandardCharsets.UTF_8)) {
+            if (b >= 'a' && b <= 'z' || b >= '0' && b <= '9') {
+                sb.append((char) b);
+            } else {
+                sb.append(String.format("_%02x", b & 0xff));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Where the segment logs are written; set before Rooms are created
+     *
+     * @param path the directory or null to keep history in memory only
+     */
+    public static void setDirectory(Path path) {
+        directory = path;
+    }
+
+    public static Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Records a chat message
+     *
+     * @param clientId
+     * @param senderName display name of the sender
+     * @param message
+     * @return the recorded entry
+     */
+    public synchronized HistoryEntry append(long clientId, String senderName, String message) {
+        HistoryEntry entry = new HistoryEntry(nextSeq++, clientId, senderName, message, System.currentTimeMillis());
+        ring[(int) (entry.getSeq() % ring.length)] = entry;
+        size = Math.min(size + 1, ring.length);
+        replay = null;
+        appended.incrementAndGet();
+        Path dir = directory;
+        if (dir != null && !isClosed) {
+            // queued under the lock so the log keeps sequence order
+            writer.execute(() -> write(dir, entry));
+        }
+        return entry;
+    }
+
+    /**
+     * @return the latest messages for a joining client (shared, don't modify);
+     *         has no entries if nothing was said yet
+     */
+    public synchronized HistoryPayload getReplay() {
+        replays.incrementAndGet();
+        if (replay == null) {
+            long from = Math.max(nextSeq - size, nextSeq - Constants.HISTORY_PAGE_SIZE);
+            replay = fromRing(from, nextSeq);
+            replay.setReplay(true);
+            replay.setHasMore(from > oldestSeq(directory));
+            replayBuilds.incrementAndGet();
+        }
+        return replay;
+    }
+
+    /**
+     * Sends a page of the messages before beforeSeq; served from memory when
+     * possible, otherwise read from the log on the writer thread
+     *
+     * @param beforeSeq sequence number of the oldest message the client has (-1
+     *                  for the latest)
+     * @param send
+     */
+    public void page(long beforeSeq, Consumer<HistoryPayload> send) {
+        Path dir = directory;
+        HistoryPayload hp = null;
+        long before;
+        long from;
+        long oldest;
+        synchronized (this) {
+            before = beforeSeq < 0 ? nextSeq : Math.min(beforeSeq, nextSeq);
+            oldest = oldestSeq(dir);
+            from = Math.max(oldest, before - Constants.HISTORY_PAGE_SIZE);
+            if (from >= nextSeq - size) {
+                hp = fromRing(from, before);
+            }
+        }
+        if (hp != null) {
+            memoryPages.incrementAndGet();
+            hp.setHasMore(from > oldest);
+            send.accept(hp);
+            return;
+        }
+        final long first = from;
+        final long last = before;
+        // every message older than nextSeq was queued before this, so it's on disk
+        // by the time this runs
+        writer.execute(() -> {
+            diskPages.incrementAndGet();
+            HistoryPayload page = new HistoryPayload();
+            page.setEntries(read(dir, first, last));
+            page.setHasMore(first > 0);
+            send.accept(page);
+        });
+    }
+
+    /**
+     * Closes the log (i.e., the Room closed); queued writes still complete
+     */
+    public synchronized void close() {
+        isClosed = true;
+        writer.execute(this::closeWriter);
+    }
+
+    private synchronized long oldestSeq(Path dir) {
+        return dir == null ? nextSeq - size : 0;
+    }
+
+    private HistoryPayload fromRing(long from, long to) {
+        List<HistoryEntry> entries = new ArrayList<>((int) Math.max(0, to - from));
+        for (long seq = from; seq < to; seq++) {
+            entries.add(ring[(int) (seq % ring.length)]);
+        }
+        HistoryPayload hp = new HistoryPayload();
+        hp.setEntries(Collections.unmodifiableList(entries));
+        return hp;
+    }
+
+    // start disk methods (writer thread, except findNextSeq())
+    private Path segmentPath(Path dir, long segment) {
+        return dir.resolve(String.format("%s-%s.log", fileName, segment));
+    }
+
+    private void write(Path dir, HistoryEntry entry) {
+        long segment = entry.getSeq() / SEGMENT_SIZE;
+        try {
+            if (out == null || segment != outSegment) {
+                closeWriter();
+                Files.createDirectories(dir);
+                out = Files.newBufferedWriter(segmentPath(dir, segment), StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                outSegment = segment;
+            }
+            out.write(encode(entry));
+            out.newLine();
+            out.flush();
+        } catch (IOException e) {
+            diskErrors.incrementAndGet();
+            LoggerUtil.INSTANCE.warning(String.format("Failed to log history of %s", fileName), e);
+            closeWriter();
+        }
+    }
+
+    private void closeWriter() {
+        if (out == null) {
+            return;
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            diskErrors.incrementAndGet();
+        }
+        out = null;
+        outSegment = -1;
+    }
+
+    /**
+     * @param dir
+     * @param from first sequence number (inclusive)
+     * @param to   last sequence number (exclusive)
+     * @return the logged messages in the range, oldest first
+     */
+    private List<HistoryEntry> read(Path dir, long from, long to) {
+        List<HistoryEntry> entries = new ArrayList<>((int) Math.max(0, to - from));
+        if (dir == null || to <= from) {
+            return entries;
+        }
+        for (long segment = from / SEGMENT_SIZE; segment <= (to - 1) / SEGMENT_SIZE; segment++) {
+            Path path = segmentPath(dir, segment);
+            if (!Files.exists(path)) {
+                continue;
+            }
+            try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    HistoryEntry entry = decode(line);
+                    if (entry != null && entry.getSeq() >= from && entry.getSeq() < to) {
+                        entries.add(entry);
+                    }
+                }
+            } catch (IOException e) {
+                diskErrors.incrementAndGet();
+                LoggerUtil.INSTANCE.warning(String.format("Failed to read history %s", path), e);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * @param dir
+     * @return the sequence number after the last logged message of this Room
+     */
+    private long findNextSeq(Path dir) {
+        if (dir == null || !Files.isDirectory(dir)) {
+            return 0;
+        }
+        long lastSegment = -1;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, fileName + "-*.log")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                String segment = name.substring(fileName.length() + 1, name.length() - ".log".length());
+                if (segment.chars().allMatch(Character::isDigit) && !segment.isEmpty()) {
+                    lastSegment = Math.max(lastSegment, Long.parseLong(segment));
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            diskErrors.incrementAndGet();
+            LoggerUtil.INSTANCE.warning(String.format("Failed to list history of %s", fileName), e);
+            return 0;
+        }
+        if (lastSegment < 0) {
+            return 0;
+        }
+        long next = lastSegment * SEGMENT_SIZE;
+        try (BufferedReader reader = Files.newBufferedReader(segmentPath(dir, lastSegment), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                HistoryEntry entry = decode(line);
+                if (entry != null) {
+                    next = Math.max(next, entry.getSeq() + 1);
+                }
+            }
+        } catch (IOException e) {
+            diskErrors.incrementAndGet();
+        }
+        return next;
+    }
+
+    /**
+     * One line per message: seq, clientId, timestamp, name and message separated
+     * by tabs (tabs/newlines/backslashes in the text are escaped)
+     */
+    private static String encode(HistoryEntry entry) {
+        return String.join("\t", String.valueOf(entry.getSeq()), String.valueOf(entry.getClientId()),
+                String.valueOf(entry.getTimestamp()), escape(entry.getSenderName()), escape(entry.getMessage()));
+    }
+
+    private static HistoryEntry decode(String line) {
+        String[] parts = line.split("\t", 5);
+        if (parts.length != 5) {
+            return null;
+        }
+        try {
+            return new HistoryEntry(Long.parseLong(parts[0]), Long.parseLong(parts[1]), unescape(parts[3]),
+                    unescape(parts[4]), Long.parseLong(parts[2]));
+        } catch (NumberFormatException e) {
+            return null; // e.g., a line cut off by a crash
+        }
+    }
+
+    private static String escape(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                default:
+                    sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String unescape(String text) {
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c != '\\' || i + 1 == text.length()) {
+                sb.append(c);
+                continue;
+            }
+            char next = text.charAt(++i);
+            sb.append(next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+        }
+        return sb.toString();
+    }
+    // end disk methods
+
+    public static String getStats() {
+        return String.format("History appended[%s] replays[%s] replayBuilds[%s] pages memory[%s] disk[%s] errors[%s]",
+                appended.get(), replays.get(), replayBuilds.get(), memoryPages.get(), diskPages.get(),
+                diskErrors.get());
+    }
+}
@@ -0,0 +1,201 @@
+package Project.Server;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+import Project.Common.LoggerUtil;
+
+/**
+ * Server-wide index of initialized clients.
+ * <p>
+ * Allocates client ids atomically and keeps every connected ServerThread
+ * reachable by id and by (case-insensitive) name without going through the
+ * Room that currently holds it. Names aren't unique so the name index maps to
+ * the set of ids using that name.
+ * </p>
+ */
+public enum ClientRegistry {
+    INSTANCE;
+
+    private final AtomicLong nextClientId = new AtomicLong(0);
+    private final ConcurrentHashMap<Long, ServerThread> clientsById = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Set<Long>> idsByName = new ConcurrentHashMap<>();
+
+    /**
+     * @return a new unique client id (starts at 1)
+     */
+    public long nextClientId() {
+        return nextClientId.incrementAndGet();
+    }
+
+    /**
+     * Indexes a client; expects the id and name to already be set
+     *
+     * @param client
+     */
+    public void register(ServerThread client) {
+        if (clientsById.put(client.getClientId(), client) != null) {
+            LoggerUtil.INSTANCE.warning(String.format("Client id %s was registered twice", client.getClientId()));
+        }
+        String name = normalize(client.getClientName());
+        if (name != null) {
+            long clientId = client.getClientId();
+            // adding inside compute() keeps a concurrent unregister() of the last
+            // holder of the name from dropping the set in between
+            idsByName.compute(name, (k, ids) -> {
+                if (ids == null) {
+                    ids = ConcurrentHashMap.newKeySet();
+                }
+                ids.add(clientId);
+                return ids;
+            });
+        }
+    }
+
+    /**
+     * Removes a client from the index; safe to call more than once
+     *
+     * @param client
+     */
+    public void unregister(ServerThread client) {
+        long clientId = client.getClientId();
+        if (!clientsById.remove(clientId, client)) {
+            return;
+        }
+        String name = normalize(client.getClientName());
+        if (name != null) {
+            // compute() is atomic per key, like the add in register(), so a concurrent
+            // register() of the same name can't add to a set that's being dropped
+            idsByName.computeIfPresent(name, (k, ids) -> {
+                ids.remove(clientId);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    public ServerThread get(long clientId) {
+        return clientsById.get(clientId);
+    }
+
+    /**
+     * @param name case-insensitive client name
+     * @return every client currently using the name (empty if none)
+     */
+    public List<ServerThread> findByName(String name) {
+        String key = normalize(name);
+        Set<Long> ids = key == null ? null : idsByName.get(key);
+        if (ids == null) {
+            return Collections.emptyList();
+        }
+        List<ServerThread> matches = new ArrayList<>(ids.size());
+        for (long id : ids) {
+            ServerThread client = clientsById.get(id);
+            if (client != null) {
+                matches.add(client);
+            }
+        }
+        return matches;
+    }
+
+    public int size() {
+        return clientsById.size();
+    }
+
+    private static String normalize(String name) {
+        return name == null || name.isBlank() ? null : name.trim().toLowerCase();
+    }
+
+    /**
+     * Contention benchmark: N threads allocate ids, register, look up by id and
+     * name, then unregister. Compares the atomic allocation against the old
+     * unsynchronized counter to show the lost ids.
+     *
+     * @param args [threads] [clients per thread]
+     * @throws InterruptedException
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int perThread = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        ClientRegistry registry = ClientRegistry.INSTANCE;
+        LoggerUtil.LoggerConfig config = new LoggerUtil.LoggerConfig();
+        config.setLogLocation("registry-benchmark.log");
+        config.setFileLogLevel(Level.WARNING);
+        config.setConsoleLogLevel(Level.WARNING);
+        LoggerUtil.INSTANCE.setConfig(config);
+
+        // the previous Server logic: nextClientId = Math.max(++nextClientId, 1)
+        long[] unsafeCounter = { 0 };
+        Set<Long> unsafeIds = ConcurrentHashMap.newKeySet();
+        Set<Long> atomicIds = ConcurrentHashMap.newKeySet();
+        AtomicLong lookups = new AtomicLong();
+        AtomicLong misses = new AtomicLong();
+
+        // pre-build the ServerThreads so the timed section is just the registry
+        List<List<ServerThread>> clients = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            List<ServerThread> list = new ArrayList<>(perThread);
+            for (int i = 0; i < perThread; i++) {
+                list.add(new SocketlessClient());
+            }
+            clients.add(list);
+        }
+
+        CountDownLatch startGate = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            final List<ServerThread> list = clients.get(t);
+            final int threadIndex = t;
+            new Thread(() -> {
+                try {
+                    startGate.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < list.size(); i++) {
+                        unsafeCounter[0] = Math.max(++unsafeCounter[0], 1);
+                        unsafeIds.add(unsafeCounter[0]);
+
+                        ServerThread client = list.get(i);
+                        long id = registry.nextClientId();
+                        atomicIds.add(id);
+                        client.setClientId(id);
+                        client.setClientName(String.format("User%s", random.nextInt(1000)));
+                        registry.register(client);
+
+                        ServerThread other = list.get(random.nextInt(i + 1));
+                        lookups.addAndGet(2);
+                        if (registry.get(other.getClientId()) != other) {
+                            misses.incrementAndGet();
+                        }
+                        if (registry.findByName(other.getClientName().toUpperCase()).isEmpty()) {
+                            misses.incrementAndGet();
+                        }
+                    }
+                    for (ServerThread client : list) {
+                        registry.unregister(client);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }, "RegistryBench-" + threadIndex).start();
+        }
+        long start = System.nanoTime();
+        startGate.countDown();
+        done.await();
+        double seconds = (System.nanoTime() - start) / 1_000_000_000d;
+        long total = (long) threads * perThread;
+        System.out.println(String.format("threads[%s] clients[%s] time[%.3fs] ops/s[%.0f]", threads, total, seconds,
+                (total * 3 + lookups.get()) / seconds));
+        System.out.println(String.format("atomic ids unique[%s/%s] old counter unique[%s/%s]", atomicIds.size(),
+                total, unsafeIds.size(), total));
+        System.out.println(String.format("lookups[%s] misses[%s] left registered[%s] names indexed[%s]",
+                lookups.get(), misses.get(), registry.size(), registry.idsByName.size()));
+    }
+}
@@ -0,0 +1,475 @@
+package Project.Server;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+import Project.Common.LoggerUtil;
+
+/**
+ * Server-side filter for banned words in chat messages and client names.
+ * <p>
+ * Every pattern is compiled into one Aho-Corasick automaton (a full
+ * transition table, so each character costs a single array lookup) and a
+ * message is checked in one pass regardless of how many patterns there are.
+ * Text is normalized on the way in: lowercase, common leet substitutions
+ * (4→a, 3→e, 0→o, $→s, ...) and punctuation inside words is skipped, so
+ * "B.4.d" matches "bad". Each normalized character remembers its original
+ * index so matches are masked in the original text. Matches must start and end
+ * on word boundaries so "class" isn't caught by "ass".
+ * </p>
+ * <p>
+ * The word list (one pattern per line, # for comments) is watched and
+ * recompiled when it changes; the automaton is immutable and swapped in
+ * atomically, so filtering never waits on a reload.
+ * </p>
+ */
+public enum ContentFilter {
+    INSTANCE;
+
+    public static final String DEFAULT_WORD_LIST = "filter-words.txt";
+    public static final long DEFAULT_RELOAD_INTERVAL_MS = 5000;
+    public static final char MASK = '*';
+
+    // normalized alphabet: a-z, 0-9 (digits that aren't leet), space; anything
+    // else is OTHER which no pattern contains
+    private static final int SPACE = 36;
+    private static final int OTHER = 37;
+    private static final int ALPHABET = 38;
+    private static final int SKIP = -1; // punctuation within a word
+
+    private volatile Automaton automaton = Automaton.EMPTY;
+    private Timer reloadTimer; // guarded by this
+    private Path wordList; // guarded by this
+    private long wordListModified = -1; // guarded by this
+
+    // metrics
+    private final AtomicLong checked = new AtomicLong();
+    private final AtomicLong masked = new AtomicLong(); // texts with at least one match
+    private final AtomicLong matches = new AtomicLong();
+    private final AtomicLong reloads = new AtomicLong();
+
+    /**
+     * Immutable compiled pattern set
+     */
+    private static class Automaton {
+        static final Automaton EMPTY = new Automaton(new int[1][], new int[1], new int[1], 0);
+
+        final int[][] next; // state -> symbol -> state (complete, no failure walks)
+        final int[] length; // length of the longest pattern ending in state (0 for none)
+        final int[] dictionary; // next state on the suffix chain with a pattern (0 for none)
+        final int patterns;
+
+        Automaton(int[][] next, int[] length, int[] dictionary, int patterns) {
+            this.next = next;
+            this.length = length;
+            this.dictionary = dictionary;
+            this.patterns = patterns;
+        }
+
+        int states() {
+            return length.length;
+        }
+    }
+
+    /**
+     * @param text
+     * @param i
+     * @return the normalized symbol of the character at i; ! and | only stand
+     *         for i within a word (i.e., "sh!t" but not "bad!!")
+     */
+    private static int symbol(String text, int i) {
+        char c = text.charAt(i);
+        if ((c == '!' || c == '|') && (i + 1 == text.length() || !Character.isLetterOrDigit(text.charAt(i + 1)))) {
+            return SKIP;
+        }
+        return symbol(c);
+    }
+
+    /**
+     * @param c
+     * @return the normalized symbol of a character
+     */
+    private static int symbol(char c) {
+        switch (Character.toLowerCase(c)) {
+            case '4':
+            case '@':
+                return 'a' - 'a';
+            case '8':
+                return 'b' - 'a';
+            case '3':
+                return 'e' - 'a';
+            case '6':
+                return 'g' - 'a';
+            case '1':
+            case '!':
+            case '|':
+                return 'i' - 'a';
+            case '0':
+                return 'o' - 'a';
+            case '5':
+            case '$':
+                return 's' - 'a';
+            case '7':
+            case '+':
+                return 't' - 'a';
+            default:
+                break;
+        }
+        char lower = Character.toLowerCase(c);
+        if (lower >= 'a' && lower <= 'z') {
+            return lower - 'a';
+        }
+        if (lower >= '0' && lower <= '9') {
+            return 26 + lower - '0';
+        }
+        if (Character.isWhitespace(c)) {
+            return SPACE;
+        }
+        return Character.isLetterOrDigit(c) ? OTHER : SKIP;
+    }
+
+    /**
+     * Compiles a new pattern set and swaps it in
+     *
+     * @param patterns
+     * @return the number of patterns compiled
+     */
+    public int load(Collection<String> patterns) {
+        Automaton compiled = compile(patterns);
+        automaton = compiled;
+        reloads.incrementAndGet();
+        return compiled.patterns;
+    }
+
+    private static Automaton compile(Collection<String> patterns) {
+        // trie
+        List<int[]> next = new ArrayList<>();
+        List<Integer> length = new ArrayList<>();
+        next.add(newRow());
+        length.add(0);
+        int count = 0;
+        for (String pattern : patterns) {
+            int[] symbols = normalizePattern(pattern);
+            if (symbols == null) {
+                continue;
+            }
+            int state = 0;
+            for (int s : symbols) {
+                if (next.get(state)[s] < 0) {
+                    next.get(state)[s] = next.size();
+                    next.add(newRow());
+                    length.add(0);
+                }
+                state = next.get(state)[s];
+            }
+            if (length.get(state) == 0) {
+                count++;
+            }
+            length.set(state, symbols.length);
+        }
+        // breadth first: failure links, then fill in the missing transitions so
+        // matching never follows a failure link
+        int states = next.size();
+        int[][] table = next.toArray(new int[states][]);
+        int[] lengths = new int[states];
+        for (int i = 0; i < states; i++) {
+            lengths[i] = length.get(i);
+        }
+        int[] fail = new int[states];
+        int[] dictionary = new int[states];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int s = 0; s < ALPHABET; s++) {
+            int child = table[0][s];
+            if (child < 0) {
+                table[0][s] = 0;
+            } else {
+                queue.add(child);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            int f = fail[state];
+            dictionary[state] = lengths[f] > 0 ? f : dictionary[f];
+            for (int s = 0; s < ALPHABET; s++) {
+                int child = table[state][s];
+                if (child < 0) {
+                    table[state][s] = table[f][s];
+                } else {
+                    fail[child] = table[f][s];
+                    queue.add(child);
+                }
+            }
+        }
+        return new Automaton(table, lengths, dictionary, count);
+    }
+
+    private static int[] newRow() {
+        int[] row = new int[ALPHABET];
+        Arrays.fill(row, -1);
+        return row;
+    }
+
+    /**
+     * @param pattern
+     * @return the pattern's symbols or null if it can't be matched
+     */
+    private static int[] normalizePattern(String pattern) {
+        String trimmed = pattern == null ? "" : pattern.trim();
+        if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+            return null;
+        }
+        int[] symbols = new int[trimmed.length()];
+        int count = 0;
+        for (int i = 0; i < trimmed.length(); i++) {
+            int s = symbol(trimmed, i);
+            if (s == OTHER) {
+                LoggerUtil.INSTANCE.warning(String.format("Skipping filter pattern with unsupported characters: %s",
+                        pattern));
+                return null;
+            }
+            if (s == SKIP || s == SPACE && count > 0 && symbols[count - 1] == SPACE) {
+                continue;
+            }
+            symbols[count++] = s;
+        }
+        return count == 0 ? null : Arrays.copyOf(symbols, count);
+    }
+
+    /**
+     * Masks every banned word
+     *
+     * @param text
+     * @return the text with matches replaced by MASK, or the same instance if
+     *         nothing matched
+     */
+    public String filter(String text) {
+        Automaton a = automaton;
+        if (text == null || text.isEmpty() || a.patterns == 0) {
+            return text;
+        }
+        checked.incrementAndGet();
+        int n = text.length();
+        // normalized position -> original index
+        int[] origin = null;
+        int normalized = 0;
+        int previous = SPACE; // symbol before the current one (start counts as a boundary)
+        int state = 0;
+        char[] result = null;
+        for (int i = 0; i < n; i++) {
+            int s = symbol(text, i);
+            if (s == SKIP) {
+                continue;
+            }
+            if (s == SPACE && previous == SPACE) {
+                continue; // runs of whitespace are one boundary
+            }
+            if (origin == null) {
+                origin = new int[n];
+            }
+            origin[normalized] = i;
+            state = a.next[state][s];
+            previous = s;
+            // every pattern ending here: the longest one, then its suffix chain
+            int match = a.length[state] > 0 ? state : a.dictionary[state];
+            for (; match != 0; match = a.dictionary[match]) {
+                int start = normalized - a.length[match] + 1;
+                if (isBoundaryBefore(text, origin, start) && isBoundaryAfter(text, i)) {
+                    if (result == null) {
+                        result = text.toCharArray();
+                    }
+                    for (int k = origin[start]; k <= i; k++) {
+                        if (!Character.isWhitespace(result[k])) {
+                            result[k] = MASK;
+                        }
+                    }
+                    matches.incrementAndGet();
+                }
+            }
+            normalized++;
+        }
+        if (result == null) {
+            return text;
+        }
+        masked.incrementAndGet();
+        return new String(result);
+    }
+
+    /**
+     * @param text
+     * @return true if nothing in the text is banned
+     */
+    public boolean isClean(String text) {
+        return filter(text) == text;
+    }
+
+    private static boolean isBoundaryBefore(String text, int[] origin, int start) {
+        if (start == 0) {
+            return true;
+        }
+        int s = symbol(text, origin[start - 1]);
+        return s == SPACE || s == OTHER;
+    }
+
+    private static boolean isBoundaryAfter(String text, int end) {
+        for (int i = end + 1; i < text.length(); i++) {
+            int s = symbol(text, i);
+            if (s != SKIP) {
+                return s == SPACE || s == OTHER;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Loads a word list and reloads it whenever the file changes; a missing
+     * file leaves the filter empty until it's created
+     *
+     * @param path
+     */
+    public synchronized void watch(Path path) {
+        watch(path, DEFAULT_RELOAD_INTERVAL_MS);
+    }
+
+    /**
+     * @param path
+     * @param intervalMs how often the file's modification time is checked
+     */
+    public synchronized void watch(Path path, long intervalMs) {
+        if (intervalMs <= 0) {
+            throw new IllegalArgumentException("Interval must be positive");
+        }
+        wordList = path;
+        wordListModified = -1;
+        reloadIfChanged();
+        if (reloadTimer != null) {
+            reloadTimer.cancel();
+        }
+        reloadTimer = new Timer("ContentFilterReload", true);
+        reloadTimer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                try {
+                    reloadIfChanged();
+                } catch (Exception e) {
+                    // an exception would kill the timer thread
+                    LoggerUtil.INSTANCE.severe("Content filter reload failed", e);
+                }
+            }
+        }, intervalMs, intervalMs);
+    }
+
+    private synchronized void reloadIfChanged() {
+        if (wordList == null) {
+            return;
+        }
+        try {
+            long modified = Files.exists(wordList) ? Files.getLastModifiedTime(wordList).toMillis() : 0;
+            if (modified == wordListModified) {
+                return;
+            }
+            wordListModified = modified;
+            List<String> patterns = modified == 0 ? List.of() : Files.readAllLines(wordList, StandardCharsets.UTF_8);
+            long start = System.nanoTime();
+            int count = load(patterns);
+            LoggerUtil.INSTANCE.info(String.format("Loaded %s filter patterns from %s in %.1fms", count, wordList,
+                    (System.nanoTime() - start) / 1_000_000d));
+        } catch (IOException e) {
+            LoggerUtil.INSTANCE.warning(String.format("Failed to read filter word list %s", wordList), e);
+        }
+    }
+
+    public String getStats() {
+        Automaton a = automaton;
+        return String.format("ContentFilter patterns[%s] states[%s] checked[%s] masked[%s] matches[%s] reloads[%s]",
+                a.patterns, a.states(), checked.get(), masked.get(), matches.get(), reloads.get());
+    }
+
+    /**
+     * Per-message cost with a large pattern set: compiles N random patterns and
+     * filters chat-like messages (a few containing a banned word in leet/punctuated
+     * form)
+     *
+     * @param args [patterns] [messages]
+     */
+    public static void main(String[] args) {
+        int patternCount = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int messageCount = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+        LoggerUtil.LoggerConfig config = new LoggerUtil.LoggerConfig();
+        config.setLogLocation("filter-benchmark.log");
+        config.setFileLogLevel(Level.WARNING);
+        config.setConsoleLogLevel(Level.WARNING);
+        LoggerUtil.INSTANCE.setConfig(config);
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<String> patterns = new ArrayList<>(patternCount);
+        for (int i = 0; i < patternCount; i++) {
+            patterns.add(randomWord(random, 4 + random.nextInt(6)));
+        }
+        ContentFilter filter = ContentFilter.INSTANCE;
+        long compileStart = System.nanoTime();
+        filter.load(patterns);
+        double compileMs = (System.nanoTime() - compileStart) / 1_000_000d;
+
+        String[] words = { "hey", "anyone", "want", "to", "play", "another", "round", "nice", "shot", "that",
+                "was", "close", "my", "ships", "are", "all", "gone", "gg", "well", "played" };
+        String[] messages = new String[1024];
+        for (int i = 0; i < messages.length; i++) {
+            StringBuilder sb = new StringBuilder();
+            int length = 5 + random.nextInt(15);
+            for (int w = 0; w < length; w++) {
+                sb.append(words[random.nextInt(words.length)]).append(' ');
+            }
+            if (i % 10 == 0) {
+                // disguise a banned word: uppercase, leet and punctuation
+                String banned = patterns.get(random.nextInt(patterns.size()));
+                sb.append(banned.toUpperCase().replace('A', '4').replace('E', '3').replace('O', '0')
+                        .replace("S", "$")).append("!! ");
+                sb.append(String.join(".", banned.split(""))).append(' ');
+            }
+            messages[i] = sb.toString().trim();
+        }
+        // warm up
+        for (int i = 0; i < 50_000; i++) {
+            filter.filter(messages[i % messages.length]);
+        }
+        long hits = 0;
+        long chars = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < messageCount; i++) {
+            String message = messages[i % messages.length];
+            chars += message.length();
+            if (filter.filter(message) != message) {
+                hits++;
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1_000_000_000d;
+        System.out.println(String.format("patterns[%s] states[%s] compile[%.1fms]", filter.automaton.patterns,
+                filter.automaton.states(), compileMs));
+        System.out.println(String.format("messages[%s] avgLength[%.0f] masked[%s] perMessage[%.2fus] chars/s[%.0f]",
+                messageCount, (double) chars / messageCount, hits, seconds * 1_000_000 / messageCount,
+                chars / seconds));
+        System.out.println(String.format("sample: %s", filter.filter(messages[0])));
+        System.out.println(String.format("boundaries: '%s' '%s'", filter.filter("class assignment"),
+                filter.filter(patterns.get(0) + "s " + patterns.get(0))));
+    }
+
+    private static String randomWord(ThreadLocalRandom random, int length) {
+        char[] word = new char[length];
+        for (int i = 0; i < length; i++) {
+            word[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(word);
+    }
+}
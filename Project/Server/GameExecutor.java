@@ -0,0 +1,373 @@
+package Project.Server;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.BiConsumer;
+import java.util.logging.Level;
+
+import Project.Common.LoggerUtil;
+import Project.Common.Scheduler;
+
+/**
+ * Server-wide executor for game logic.
+ * <p>
+ * A fixed number of loop threads (one per core by default) run every GameRoom.
+ * Each GameRoom is pinned to the least loaded loop when it's created and gets a
+ * RoomQueue: client actions, timers and join/leave handling for the Room all
+ * run on that one thread, so the game state needs no locks and game CPU use
+ * doesn't grow with the number of connections.
+ * </p>
+ * <p>
+ * A loop doesn't run a Room's tasks in arrival order across all of its Rooms;
+ * a RoomQueue with work is queued on its loop once and runs at most
+ * MAX_TASKS_PER_SLICE tasks before going to the back of the line, so a Room
+ * that's flooded with actions can't starve the other Rooms on its loop.
+ * </p>
+ */
+public enum GameExecutor {
+    INSTANCE;
+
+    public static final int MAX_TASKS_PER_SLICE = 8;
+
+    // guarded by this
+    private int loopCount = Runtime.getRuntime().availableProcessors();
+    private GameLoop[] loops = null;
+
+    /**
+     * @param loopCount number of loop threads; only before the first Room is
+     *                  registered
+     */
+    public synchronized void setLoopCount(int loopCount) {
+        if (loopCount <= 0) {
+            throw new IllegalArgumentException("Loop count must be positive");
+        }
+        if (loops != null) {
+            throw new IllegalStateException("Game loops are already running");
+        }
+        this.loopCount = loopCount;
+    }
+
+    /**
+     * Pins a Room to the loop with the fewest Rooms
+     *
+     * @param roomName used for logging
+     * @return the Room's queue; release() it when the Room closes
+     */
+    public synchronized RoomQueue register(String roomName) {
+        if (loops == null) {
+            loops = new GameLoop[loopCount];
+            for (int i = 0; i < loopCount; i++) {
+                loops[i] = new GameLoop(i);
+            }
+            LoggerUtil.INSTANCE.info(String.format("Started %s game loops", loopCount));
+        }
+        GameLoop loop = loops[0];
+        for (GameLoop candidate : loops) {
+            if (candidate.rooms.get() < loop.rooms.get()) {
+                loop = candidate;
+            }
+        }
+        loop.rooms.incrementAndGet();
+        return new RoomQueue(roomName, loop);
+    }
+
+    /**
+     * @return Rooms pinned to a loop that haven't been released yet
+     */
+    public synchronized int getRoomCount() {
+        int rooms = 0;
+        if (loops != null) {
+            for (GameLoop loop : loops) {
+                rooms += loop.rooms.get();
+            }
+        }
+        return rooms;
+    }
+
+    public synchronized String getStats() {
+        if (loops == null) {
+            return "GameExecutor loops[0]";
+        }
+        StringBuilder sb = new StringBuilder(String.format("GameExecutor loops[%s]", loops.length));
+        for (GameLoop loop : loops) {
+            sb.append(String.format(" [%s rooms[%s] tasks[%s] slices[%s] timers[%s] failures[%s]]", loop.index,
+                    loop.rooms.get(), loop.tasks.get(), loop.slices.get(), loop.timers.get(), loop.failures.get()));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * One loop thread and the Rooms pinned to it
+     */
+    private static class GameLoop {
+        private final int index;
+        private final ScheduledThreadPoolExecutor executor;
+        private final AtomicInteger rooms = new AtomicInteger();
+        // metrics
+        private final AtomicLong tasks = new AtomicLong();
+        private final AtomicLong slices = new AtomicLong();
+        private final AtomicLong timers = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+
+        private GameLoop(int index) {
+            this.index = index;
+            executor = new ScheduledThreadPoolExecutor(1, r -> {
+                Thread t = new Thread(r, String.format("GameLoop-%s", index));
+                t.setDaemon(true);
+                return t;
+            });
+            // turn timers are cancelled far more often than they expire
+            executor.setRemoveOnCancelPolicy(true);
+        }
+    }
+
+    /**
+     * The tasks of one Room; everything submitted through the same RoomQueue runs
+     * on the same thread, one at a time, in submission order (timers run at
+     * their deadline)
+     */
+    public static class RoomQueue implements Runnable, Scheduler {
+        private final String roomName;
+        private final GameLoop loop;
+        private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        // true while this queue is waiting on (or running on) its loop
+        private final AtomicBoolean isScheduled = new AtomicBoolean(false);
+        private final AtomicBoolean isReleased = new AtomicBoolean(false);
+
+        private RoomQueue(String roomName, GameLoop loop) {
+            this.roomName = roomName;
+            this.loop = loop;
+        }
+
+        /**
+         * Queues a task for the Room's loop; never blocks
+         *
+         * @param task
+         */
+        public void execute(Runnable task) {
+            tasks.add(task);
+            if (isScheduled.compareAndSet(false, true)) {
+                loop.executor.execute(this);
+            }
+        }
+
+        /**
+         * Runs a task on the Room's loop after a delay
+         *
+         * @param task
+         * @param delayMs
+         * @return cancelling it from the loop guarantees it won't run
+         */
+        @Override
+        public Cancellable schedule(Runnable task, long delayMs) {
+            Future<?> future = loop.executor.schedule(() -> {
+                loop.timers.incrementAndGet();
+                runTask(task);
+            }, delayMs, TimeUnit.MILLISECONDS);
+            return () -> future.cancel(false);
+        }
+
+        /**
+         * Runs one slice of this Room's tasks
+         */
+        @Override
+        public void run() {
+            loop.slices.incrementAndGet();
+            for (int i = 0; i < MAX_TASKS_PER_SLICE; i++) {
+                Runnable task = tasks.poll();
+                if (task == null) {
+                    break;
+                }
+                runTask(task);
+            }
+            if (!tasks.isEmpty()) {
+                // more work; the other Rooms on this loop go first
+                loop.executor.execute(this);
+                return;
+            }
+            isScheduled.set(false);
+            // a task added between the isEmpty() check and the flag reset would
+            // otherwise wait for the next execute()
+            if (!tasks.isEmpty() && isScheduled.compareAndSet(false, true)) {
+                loop.executor.execute(this);
+            }
+        }
+
+        private void runTask(Runnable task) {
+            loop.tasks.incrementAndGet();
+            try {
+                task.run();
+            } catch (Exception e) {
+                // an exception would otherwise be swallowed by the executor
+                loop.failures.incrementAndGet();
+                LoggerUtil.INSTANCE.severe(String.format("Game task for Room %s failed", roomName), e);
+            }
+        }
+
+        /**
+         * Unpins the Room; tasks already queued still run
+         */
+        public void release() {
+            if (isReleased.compareAndSet(false, true)) {
+                loop.rooms.decrementAndGet();
+            }
+        }
+
+        public int getLoopIndex() {
+            return loop.index;
+        }
+
+        public int getPendingTasks() {
+            return tasks.size();
+        }
+    }
+
+    /**
+     * Scheduling fairness with 1000 active Rooms: a few "flooding" Rooms submit
+     * far more actions than the loops can keep up with while the rest submit
+     * at a normal pace; reports the latency the normal Rooms see and how evenly
+     * the loops served them, compared against one shared FIFO pool
+     *
+     * @param args [rooms] [flooders] [seconds] [loops]
+     */
+    public static void main(String[] args) throws InterruptedException {
+        LoggerUtil.LoggerConfig config = new LoggerUtil.LoggerConfig();
+        config.setLogLocation("game-executor.log");
+        config.setFileLogLevel(Level.WARNING);
+        config.setConsoleLogLevel(Level.SEVERE);
+        LoggerUtil.INSTANCE.setConfig(config);
+
+        int roomCount = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int flooderCount = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        if (args.length > 3) {
+            INSTANCE.setLoopCount(Integer.parseInt(args[3]));
+        }
+
+        List<RoomQueue> queues = new ArrayList<>();
+        for (int i = 0; i < roomCount; i++) {
+            queues.add(INSTANCE.register("Fair" + i));
+        }
+        int[] perLoop = new int[INSTANCE.loops.length];
+        queues.forEach(q -> perLoop[q.getLoopIndex()]++);
+        System.out.println(String.format("rooms[%s] flooders[%s] rooms per loop%s", roomCount, flooderCount,
+                Arrays.toString(perLoop)));
+
+        System.out.println("-- GameExecutor");
+        run(roomCount, flooderCount, seconds, (room, task) -> queues.get(room).execute(task));
+
+        // same load on a plain pool of the same size where every task waits behind
+        // every other
+        ExecutorService fifo = Executors.newFixedThreadPool(INSTANCE.loops.length);
+        System.out.println("-- shared FIFO pool");
+        run(roomCount, flooderCount, seconds, (room, task) -> fifo.execute(task));
+        fifo.shutdownNow();
+        queues.forEach(RoomQueue::release);
+        System.out.println(INSTANCE.getStats());
+        System.exit(0);
+    }
+
+    private static void run(int roomCount, int flooderCount, int seconds, BiConsumer<Integer, Runnable> submit)
+            throws InterruptedException {
+        long taskNanos = 20_000; // simulated cost of one game action
+        AtomicIntegerArray outstanding = new AtomicIntegerArray(roomCount);
+        AtomicLongArray completed = new AtomicLongArray(roomCount);
+        AtomicLong flooded = new AtomicLong();
+        AtomicLongArray maxLatency = new AtomicLongArray(roomCount);
+        AtomicLong latencySum = new AtomicLong();
+        long end = System.nanoTime() + seconds * 1_000_000_000L;
+        CountDownLatch done = new CountDownLatch(2);
+        // flooders: 1000 actions at a time whenever their backlog drops below 500,
+        // far more than the loops can run
+        new Thread(() -> {
+            while (System.nanoTime() < end) {
+                for (int r = 0; r < flooderCount; r++) {
+                    int room = r;
+                    if (outstanding.get(room) >= 500) {
+                        continue;
+                    }
+                    for (int i = 0; i < 1000; i++) {
+                        outstanding.incrementAndGet(room);
+                        submit.accept(room, () -> {
+                            spin(taskNanos);
+                            flooded.incrementAndGet();
+                            outstanding.decrementAndGet(room);
+                        });
+                    }
+                }
+                sleep(5);
+            }
+            done.countDown();
+        }).start();
+        // everyone else: one action per Room every ~200ms
+        new Thread(() -> {
+            while (System.nanoTime() < end) {
+                for (int r = flooderCount; r < roomCount; r++) {
+                    int room = r;
+                    long submitted = System.nanoTime();
+                    outstanding.incrementAndGet(room);
+                    submit.accept(room, () -> {
+                        long latency = System.nanoTime() - submitted;
+                        latencySum.addAndGet(latency);
+                        maxLatency.accumulateAndGet(room, latency, Math::max);
+                        spin(taskNanos);
+                        completed.incrementAndGet(room);
+                        outstanding.decrementAndGet(room);
+                    });
+                }
+                sleep(200 + ThreadLocalRandom.current().nextInt(20));
+            }
+            done.countDown();
+        }).start();
+        done.await();
+        // let the backlog drain so the next run starts from idle
+        for (int r = 0; r < roomCount; r++) {
+            while (outstanding.get(r) > 0) {
+                sleep(10);
+            }
+        }
+        // fairness over the normal Rooms (Jain's index: 1.0 is perfectly even)
+        double sum = 0;
+        double sumSquares = 0;
+        long worst = 0;
+        for (int r = flooderCount; r < roomCount; r++) {
+            sum += completed.get(r);
+            sumSquares += (double) completed.get(r) * completed.get(r);
+            worst = Math.max(worst, maxLatency.get(r));
+        }
+        int normal = roomCount - flooderCount;
+        System.out.println(String.format(
+                "normal rooms: actions[%.0f] avgLatency[%.2fms] worstLatency[%.2fms] fairness[%.3f] flooderActions[%s]",
+                sum, sum == 0 ? 0 : latencySum.get() / 1_000_000d / sum, worst / 1_000_000d,
+                sumSquares == 0 ? 0 : sum * sum / (normal * sumSquares), flooded));
+    }
+
+    private static void spin(long nanos) {
+        long until = System.nanoTime() + nanos;
+        while (System.nanoTime() < until) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -2,13 +2,26 @@ package Project.Server;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Level;
 import java.util.stream.Collectors;
 
+import Project.Common.AttackMode;
 import Project.Common.Constants;
 import Project.Common.LoggerUtil;
 import Project.Common.Phase;
+import Project.Common.ProbabilityHeatmap;
+import Project.Common.RosterPayload.RosterEntry;
+import Project.Common.Scheduler;
 import Project.Common.TimedEvent;
 import Project.Common.TimerType;
 import Project.Exceptions.MissingCurrentPlayerException;
@@ -24,34 +37,135 @@ public class GameRoom extends BaseGameRoom {
 
     // used for general rounds (usually phase-based turns)
     private TimedEvent roundTimer = null;
+    private TimedEvent spareRoundTimer = null; // stopped roundTimer, restarted next time
+    private final Runnable onRoundTimeout = () -> runBatched(this::onRoundEnd);
 
     // used for granular turn handling (usually turn-order turns)
     private TimedEvent turnTimer = null;
-    private List<ServerThread> turnOrder = new ArrayList<>();
+    private TimedEvent spareTurnTimer = null; // stopped turnTimer, restarted next time
+    private final Runnable onTurnTimeout = () -> runBatched(this::onTurnEnd);
+    private final List<ServerThread> turnOrder = new ArrayList<>(); // refilled every session
     private long currentTurnClientId = Constants.DEFAULT_CLIENT_ID;
     private int round = 0;
-    private Grid grid = new Grid(); // yaw4 12/11, used to init grid on server
+    // only held during a session (see acquireBoard())
+    private Board board = null;
+    private Grid grid = null; // yaw4 12/11, used to init grid on server
+    private ProbabilityHeatmap heatmap = null; // likely ship locations, for bots
+
+    // Boards of finished sessions, shared by all GameRooms so room churn
+    // (tournaments, /createroom) doesn't reallocate grid cells and heatmap arrays
+    public static final int MAX_POOLED_BOARDS = 256;
+    private static final ConcurrentLinkedQueue<Board> boardPool = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger pooledBoards = new AtomicInteger();
+    private static volatile int maxPooledBoards = MAX_POOLED_BOARDS;
+
+    // metrics
+    private static final AtomicLong boardsCreated = new AtomicLong();
+    private static final AtomicLong boardsReused = new AtomicLong();
+    private static final AtomicLong boardsDropped = new AtomicLong(); // pool was full
+
+    // simultaneous attack rounds: everyone picks a target during the round timer
+    // and all attacks are resolved together (see resolveAttacks())
+    public static final int SIMULTANEOUS_MIN_PLAYERS = 6; // for AttackMode.AUTO
+    public static final int MAX_ATTACK_ROUNDS = 10;
+    public static final int MAX_BOTS = 16; // per Room, for /addbot
+    public static final int POINTS_TO_WIN = 6; // a player reaching this after an attack ends the session
+    private AttackMode attackMode = AttackMode.AUTO;
+    private boolean isSimultaneous = false; // attackMode resolved for the current session
+    private int attackRound = 0;
+    private final Map<Long, Attack> pendingAttacks = new LinkedHashMap<>();
+
+    // ships each player hit this session, reported to the session listener
+    private final Map<Long, Integer> sessionScores = new HashMap<>();
+    private boolean isSessionRunning = false;
+    private volatile Consumer<SessionResult> sessionListener = null;
+
+    /**
+     * How a session ended: the players still in it, best first
+     */
+    public static class SessionResult {
+        private final List<ServerThread> standings;
+        private final Map<Long, Integer> scores;
+
+        private SessionResult(List<ServerThread> standings, Map<Long, Integer> scores) {
+            this.standings = standings;
+            this.scores = scores;
+        }
+
+        /**
+         * @return players by ships hit, most first (ties in turn order)
+         */
+        public List<ServerThread> getStandings() {
+            return standings;
+        }
+
+        /**
+         * @param client
+         * @return ships the client hit
+         */
+        public int getScore(ServerThread client) {
+            return scores.getOrDefault(client.getClientId(), 0);
+        }
+    }
+
+    /**
+     * The session state a GameRoom borrows from the pool: the Grid (which keeps
+     * its cells between sessions, see Grid.reset()) and the heatmap over it
+     */
+    private static class Board {
+        private final Grid grid = new Grid();
+        private final ProbabilityHeatmap heatmap = new ProbabilityHeatmap(grid);
+    }
+
+    /**
+     * An attack submitted during a simultaneous round
+     */
+    private static class Attack {
+        private final ServerThread attacker;
+        private final int x;
+        private final int y;
+
+        private Attack(ServerThread attacker, int x, int y) {
+            this.attacker = attacker;
+            this.x = x;
+            this.y = y;
+        }
+    }
 
     public GameRoom(String name) {
         super(name);
     }
 
+    /**
+     * @param name
+     * @param scheduler runs the game logic and timers instead of a game loop
+     *                  (see BaseGameRoom)
+     */
+    public GameRoom(String name, Scheduler scheduler) {
+        super(name, scheduler);
+    }
+
     /** {@inheritDoc} */
     @Override
     protected void onClientAdded(ServerThread sp) {
         // sync GameRoom state to new client
 
         syncCurrentPhase(sp); 
-        // sync only what's necessary for the specific phase
-        // if you blindly sync everything, you'll get visual artifacts/discrepancies
-        syncReadyStatus(sp);
-        syncTurnStatus(sp);
-        if (currentPhase != Phase.READY) {
-                                // turn/ready use the same visual process so ensure turn status is only called
-                                // outside of ready phase
-            syncPlayerPoints(sp);
-        }
+        // ready/turn/points of existing members arrive with the roster (see
+        // buildRosterEntry())
+        syncTimers(sp);
+
+    }
 
+    @Override
+    protected RosterEntry buildRosterEntry(ServerThread client) {
+        RosterEntry entry = super.buildRosterEntry(client);
+        entry.setTookTurn(client.didTakeTurn());
+        if (getPhase() != Phase.READY) { // built off the game loop too
+            // points are only shown during a session
+            entry.setPoints(client.getPoints());
+        }
+        return entry;
     }
 
     /** {@inheritDoc} */
@@ -61,45 +175,63 @@ public class GameRoom extends BaseGameRoom {
         // Stops the timers so room can clean up
         LoggerUtil.INSTANCE.info("Player Removed, remaining: " + clientsInRoom.size());
         long removedClient = sp.getClientId();
+        int removedIndex = 0;
+        while (removedIndex < turnOrder.size() && turnOrder.get(removedIndex).getClientId() != removedClient) {
+            removedIndex++;
+        }
         turnOrder.removeIf(player -> player.getClientId() == sp.getClientId());
-        if (clientsInRoom.isEmpty()) {
+        if (!(sp instanceof BotPlayer) && !clientsInRoom.isEmpty()
+                && clientsInRoom.values().stream().allMatch(BotPlayer.class::isInstance)) {
+            // bots only fill the Room for people; removing them closes it
+            changeMembers(this::removeLeftoverBots);
+            return;
+        }
+        if (clientsInRoom.isEmpty() || (currentPhase != Phase.READY && turnOrder.isEmpty())) {
             resetReadyTimer();
             resetTurnTimer();
             resetRoundTimer();
             onSessionEnd();
         } else if (removedClient == currentTurnClientId) {
-            onTurnStart();
+            // the turn goes to whoever came after the removed player
+            if (removedIndex >= turnOrder.size()) {
+                resetTurnTimer();
+                onRoundEnd();
+            } else {
+                currentTurnClientId = removedIndex > 0 ? turnOrder.get(removedIndex - 1).getClientId()
+                        : Constants.DEFAULT_CLIENT_ID;
+                onTurnStart();
+            }
+        } else if (isSimultaneous && currentPhase == Phase.ATTACK) {
+            endAttackWindowIfAllIn();
         }
     }
 
     // timer handlers
     private void startRoundTimer() {
-        roundTimer = new TimedEvent(30, () -> onRoundEnd());
-        roundTimer.setTickCallback((time) -> {
-            System.out.println("Round Time: " + time);
-            sendCurrentTime(TimerType.ROUND, time);
-        });
+        roundTimer = startTimer(spareRoundTimer, 30, onRoundTimeout);
+        spareRoundTimer = null;
+        sendCurrentTime(TimerType.ROUND, roundTimer.getExpiresAt());
     }
 
     private void resetRoundTimer() {
         if (roundTimer != null) {
             roundTimer.cancel();
+            spareRoundTimer = roundTimer;
             roundTimer = null;
             sendCurrentTime(TimerType.ROUND, -1);
         }
     }
 
     private void startTurnTimer() {
-        turnTimer = new TimedEvent(30, () -> onTurnEnd());
-        turnTimer.setTickCallback((time) -> {
-            System.out.println("Turn Time: " + time);
-            sendCurrentTime(TimerType.TURN, time);
-        });
+        turnTimer = startTimer(spareTurnTimer, 30, onTurnTimeout);
+        spareTurnTimer = null;
+        sendCurrentTime(TimerType.TURN, turnTimer.getExpiresAt());
     }
 
     private void resetTurnTimer() {
         if (turnTimer != null) {
             turnTimer.cancel();
+            spareTurnTimer = turnTimer;
             turnTimer = null;
             sendCurrentTime(TimerType.TURN, -1);
         }
@@ -117,10 +249,23 @@ public class GameRoom extends BaseGameRoom {
         LoggerUtil.INSTANCE.info("onSessionStart() attack stuff");
         currentTurnClientId = Constants.DEFAULT_CLIENT_ID; // added for phase based turn
         setTurnOrder();
+        turnOrder.forEach(ServerThread::resetPlacedShips);
+        sessionScores.clear();
+        isSessionRunning = true;
+        isSimultaneous = attackMode == AttackMode.SIMULTANEOUS
+                || attackMode == AttackMode.AUTO && turnOrder.size() >= SIMULTANEOUS_MIN_PLAYERS;
+        attackRound = 0;
+        if (isSimultaneous) {
+            sendGameEvent("Everyone attacks at the same time this game");
+        }
 
         round = 0;
+        acquireBoard();
         grid.generate(5,5, true); // yaw4 12/10 used to generate grid and start turn order and game logic when game starts
-        LoggerUtil.INSTANCE.info(TextFX.colorize("Grid generated: " + grid, Color.PURPLE));
+        heatmap.recompute();
+        if (LoggerUtil.INSTANCE.isLoggable(Level.INFO)) { // the Grid dump isn't free
+            LoggerUtil.INSTANCE.info(TextFX.colorize("Grid generated: " + grid, Color.PURPLE));
+        }
         LoggerUtil.INSTANCE.info("onSessionStart() end");
         onRoundStart();
     }
@@ -150,6 +295,10 @@ public class GameRoom extends BaseGameRoom {
         // if you do decide to use it, ensure it's reasonable and based on the number of
         // players
         LoggerUtil.INSTANCE.info("onRoundStart() end");
+        if (isSimultaneous && currentPhase == Phase.ATTACK) {
+            startAttackWindow();
+            return;
+        }
         onTurnStart();
     }
 
@@ -214,91 +363,104 @@ public class GameRoom extends BaseGameRoom {
         LoggerUtil.INSTANCE.info("onRoundEnd() start");
         resetRoundTimer(); // reset timer if round ended without the time expiring
 
-        LoggerUtil.INSTANCE.info(TextFX.colorize("Grid status: " + grid, Color.PURPLE));  // yaw4 12/11, resets the round timer and then 
+        if (LoggerUtil.INSTANCE.isLoggable(Level.INFO)) {
+            LoggerUtil.INSTANCE.info(TextFX.colorize("Grid status: " + grid, Color.PURPLE));  // yaw4 12/11, resets the round timer and then 
+        }
         LoggerUtil.INSTANCE.info("onRoundEnd() end");                            // shows status of grid on server
+        if (isSimultaneous && currentPhase == Phase.ATTACK) {
+            if (resolveAttacks()) {
+                onSessionEnd();
+            } else {
+                onRoundStart();
+            }
+            return;
+        }
         if (round >= 3) {
             onSessionEnd();
         } else {
             onRoundStart();
         }
-       onRoundStart();
     }
 
     /** {@inheritDoc} */
     @Override
     protected void onSessionEnd() {
         LoggerUtil.INSTANCE.info("onSessionEnd() start");
+        if (isSessionRunning) {
+            // a failed ready check also ends up here
+            isSessionRunning = false;
+            reportSessionResult();
+        }
         turnOrder.clear();
         currentTurnClientId = Constants.DEFAULT_CLIENT_ID;
         resetReadyStatus(); // yaw4 12/11, resets ready,turn status and turn timer
         resetTurnStatus(); // it then changes phase back to ready
         resetTurnTimer();
+        resetRoundTimer();
+        pendingAttacks.clear();
+        isSimultaneous = false;
         
-        grid.reset(); // added for yaw4 resets grid on server 
+        releaseBoard(); // added for yaw4 resets grid on server 
 
         changePhase(Phase.READY);
+        releaseSpectators(); // everyone gets direct updates again for the ready check
 
         LoggerUtil.INSTANCE.info("onSessionEnd() end");
     }
     // end lifecycle methods
 
+    /**
+     * Passes the standings of the session that just ended to the listener
+     */
+    private void reportSessionResult() {
+        Consumer<SessionResult> listener = sessionListener;
+        if (listener == null) {
+            return;
+        }
+        List<ServerThread> standings = new ArrayList<>(turnOrder);
+        standings.sort(Comparator.comparingInt(
+                (ServerThread player) -> sessionScores.getOrDefault(player.getClientId(), 0)).reversed());
+        try {
+            listener.accept(new SessionResult(standings, new HashMap<>(sessionScores)));
+        } catch (Exception e) {
+            LoggerUtil.INSTANCE.severe("Session listener failed", e);
+        }
+    }
+
     // send/sync data to ServerThread(s)
     private void sendResetTurnStatus() {
-        clientsInRoom.values().forEach(spInRoom -> {
-            boolean failedToSend = !spInRoom.sendResetTurnStatus();
-            if (failedToSend) {
-                removeClient(spInRoom);
-            }
-        });
+        topics.publish(TopicRouter.MEMBERS, ServerThread::sendResetTurnStatus).forEach(this::removeClient);
     }
 
     private void sendTurnStatus(ServerThread client, boolean tookTurn) {
-        clientsInRoom.values().removeIf(spInRoom -> {
-            boolean failedToSend = !spInRoom.sendTurnStatus(client.getClientId(), client.didTakeTurn());
-            if (failedToSend) {
-                removeClient(spInRoom);
-            }
-            return failedToSend;
-        });
+        spectators.queueTurnStatus(client.getClientId(), client.didTakeTurn());
+        topics.publish(TopicRouter.GAME_STATE,
+                spInRoom -> spInRoom.sendTurnStatus(client.getClientId(), client.didTakeTurn()))
+                .forEach(this::removeClient);
     }
 
       // send/sync data to ServerThread(s) added for syncing points
-     private void syncPlayerPoints(ServerThread incomingClient) {
-        clientsInRoom.values().forEach(serverUser -> {
-            if (serverUser.getClientId() != incomingClient.getClientId()) {
-                boolean failedToSync = !incomingClient.sendPlayerPoints(serverUser.getClientId(),
-                        serverUser.getPoints());
-                if (failedToSync) {
-                    LoggerUtil.INSTANCE.warning(
-                            String.format("Removing disconnected %s from list", serverUser.getDisplayName()));
-                    disconnect(serverUser);
-                }
-            }
-        });
-    }
-
     private void sendPlayerPoints(ServerThread sp) {
-        clientsInRoom.values().removeIf(spInRoom -> {
-            boolean failedToSend = !spInRoom.sendPlayerPoints(sp.getClientId(), sp.getPoints());
-            if (failedToSend) {
-                removeClient(spInRoom);
-            }
-            return failedToSend;
-        });
+        spectators.queuePoints(sp.getClientId(), sp.getPoints());
+        topics.publish(TopicRouter.GAME_STATE, spInRoom -> spInRoom.sendPlayerPoints(sp.getClientId(), sp.getPoints()))
+                .forEach(this::removeClient);
     }
 
-    private void syncTurnStatus(ServerThread incomingClient) {
-        clientsInRoom.values().forEach(serverUser -> {
-            if (serverUser.getClientId() != incomingClient.getClientId()) {
-                boolean failedToSync = !incomingClient.sendTurnStatus(serverUser.getClientId(),
-                        serverUser.didTakeTurn(), true);
-                if (failedToSync) {
-                    LoggerUtil.INSTANCE.warning(
-                            String.format("Removing disconnected %s from list", serverUser.getDisplayName()));
-                    disconnect(serverUser);
-                }
-            }
-        });
+    /**
+     * Syncs any running timer deadlines to a single client
+     * 
+     * @param sp
+     */
+    private void syncTimers(ServerThread sp) {
+        syncReadyTimer(sp);
+        TimedEvent timer = turnTimer;
+        if (timer != null) {
+            sp.sendCurrentTime(TimerType.TURN, timer.getExpiresAt(), getScheduler());
+        }
+        timer = roundTimer;
+        if (timer != null) {
+            sp.sendCurrentTime(TimerType.ROUND, timer.getExpiresAt(), getScheduler());
+        }
     }
 
     private void sendPlaceShipUpdate(ServerThread client, int x, int y) // used to send data of placing ship to client
@@ -324,7 +486,11 @@ public class GameRoom extends BaseGameRoom {
      */
     private void setTurnOrder() { //yaw4 12/11, sets turn orders of users in room
         turnOrder.clear();
-        turnOrder = clientsInRoom.values().stream().filter(ServerThread::isReady).collect(Collectors.toList());
+        clientsInRoom.values().forEach(sp -> {
+            if (sp.isReady()) {
+                turnOrder.add(sp);
+            }
+        });
         Collections.shuffle(turnOrder);
     }
 
@@ -410,6 +576,196 @@ public class GameRoom extends BaseGameRoom {
         }
     }
 
+    // simultaneous attack rounds
+
+    /**
+     * Opens a simultaneous attack round; the round timer closes it
+     */
+    private void startAttackWindow() {
+        resetTurnTimer(); // the PLACE phase's turn timer may still be running
+        pendingAttacks.clear();
+        attackRound++;
+        sendGameEvent(String.format("Attack round %d: everyone pick a target before the timer runs out", attackRound));
+        startRoundTimer();
+    }
+
+    /**
+     * Ends the round early once every player has attacked or skipped
+     */
+    private void endAttackWindowIfAllIn() {
+        if (!turnOrder.isEmpty() && turnOrder.stream().allMatch(ServerThread::didTakeTurn)) {
+            onRoundEnd();
+        }
+    }
+
+    /**
+     * Records an attack to be resolved at the end of the round
+     * 
+     * @param currentUser
+     * @param x
+     * @param y
+     */
+    private void queueAttack(ServerThread currentUser, int x, int y) {
+        if (currentUser.didTakeTurn()) {
+            currentUser.sendMessage(Constants.DEFAULT_CLIENT_ID, "You have already attacked this round");
+            return;
+        }
+        if (!grid.isValidCoordinate(x, y)) {
+            currentUser.sendMessage(Constants.DEFAULT_CLIENT_ID, "Coordinates out of bounds");
+            return;
+        }
+        pendingAttacks.put(currentUser.getClientId(), new Attack(currentUser, x, y));
+        currentUser.setTookTurn(true);
+        sendTurnStatus(currentUser, currentUser.didTakeTurn());
+        currentUser.sendMessage(Constants.DEFAULT_CLIENT_ID, String.format("Attack on (%d, %d) locked in", x, y));
+        endAttackWindowIfAllIn();
+    }
+
+    /**
+     * Resolves every attack of the round in one pass over the Grid and sends
+     * the results as a single game event. Each targeted cell is attacked once;
+     * everyone who picked a cell with ships gets its points and coins.
+     * 
+     * @return true if the session is over (no ships left, nobody attacked or
+     *         MAX_ATTACK_ROUNDS reached)
+     */
+    private boolean resolveAttacks() {
+        Map<Integer, List<Attack>> byCell = new LinkedHashMap<>();
+        for (Attack attack : pendingAttacks.values()) {
+            byCell.computeIfAbsent(attack.x * grid.getCols() + attack.y, k -> new ArrayList<>()).add(attack);
+        }
+        pendingAttacks.clear();
+        List<String> results = new ArrayList<>();
+        results.add(String.format("Attack round %d results:", attackRound));
+        for (List<Attack> attacks : byCell.values()) {
+            int x = attacks.get(0).x;
+            int y = attacks.get(0).y;
+            boolean isHit = grid.attackShip(x, y);
+            heatmap.update(x, y);
+            int ships = isHit ? grid.getLastShips(x, y) : 0;
+            String names = attacks.stream().map(attack -> attack.attacker.getDisplayName())
+                    .collect(Collectors.joining(", "));
+            for (Attack attack : attacks) {
+                if (isHit) {
+                    sessionScores.merge(attack.attacker.getClientId(), ships, Integer::sum);
+                    attack.attacker.addGamePoints(ships);
+                    attack.attacker.addCurrency(10);
+                    attack.attacker.sendAttackShipUpdate(attack.attacker.getClientId(), x, y);
+                }
+            }
+            results.add(isHit ? String.format("%s hit %d ships at (%d, %d) and got 10 coins", names, ships, x, y)
+                    : String.format("%s missed at (%d, %d)", names, x, y));
+        }
+        int shipsLeft = grid.countShipsLeft();
+        boolean isOver = byCell.isEmpty() || shipsLeft == 0 || attackRound >= MAX_ATTACK_ROUNDS;
+        if (byCell.isEmpty()) {
+            results.add("Nobody attacked");
+        }
+        results.add(isOver ? "Game over" : String.format("%d ships left", shipsLeft));
+        sendGameEvent(String.join("\n", results));
+        return isOver;
+    }
+    // end simultaneous attack rounds
+
+    // used by GameSimulator's players and BotPlayer
+    protected long getCurrentTurnClientId() {
+        return currentTurnClientId;
+    }
+
+    protected boolean isSimultaneous() {
+        return isSimultaneous;
+    }
+
+    protected Grid getGrid() {
+        return grid;
+    }
+
+    /**
+     * @return the ship likelihoods of the current session's Grid (only valid
+     *         outside READY)
+     */
+    protected ProbabilityHeatmap getHeatmap() {
+        return heatmap;
+    }
+
+    /**
+     * Gets called on the game loop with the result of every session that
+     * started (see Tournament)
+     * 
+     * @param listener or null
+     */
+    protected void setSessionListener(Consumer<SessionResult> listener) {
+        sessionListener = listener;
+    }
+
+    /**
+     * @return players in the current session
+     */
+    protected int getPlayerCount() {
+        return turnOrder.size();
+    }
+
+    /**
+     * Takes a Board for the session starting, so idle and closed GameRooms
+     * don't hold on to one
+     */
+    private void acquireBoard() {
+        if (board == null) {
+            board = boardPool.poll();
+            if (board == null) {
+                boardsCreated.incrementAndGet();
+                board = new Board();
+            } else {
+                pooledBoards.decrementAndGet();
+                boardsReused.incrementAndGet();
+            }
+        }
+        grid = board.grid;
+        heatmap = board.heatmap;
+    }
+
+    /**
+     * Resets the Grid and hands the Board to the next session; anything that
+     * still touches the Grid afterwards fails instead of playing on another
+     * Room's
+     */
+    private void releaseBoard() {
+        if (board == null) {
+            return;
+        }
+        board.grid.reset();
+        if (pooledBoards.incrementAndGet() <= maxPooledBoards) {
+            boardPool.add(board);
+        } else {
+            pooledBoards.decrementAndGet();
+            boardsDropped.incrementAndGet();
+        }
+        board = null;
+        grid = null;
+        heatmap = null;
+    }
+
+    /**
+     * Limits how many Boards of finished sessions are kept for the next ones (0
+     * turns pooling off)
+     *
+     * @param max
+     */
+    public static void setMaxPooledBoards(int max) {
+        if (max < 0) {
+            throw new IllegalArgumentException("Invalid pool size");
+        }
+        maxPooledBoards = max;
+        while (pooledBoards.get() > max && boardPool.poll() != null) {
+            pooledBoards.decrementAndGet();
+        }
+    }
+
+    public static String getStats() {
+        return String.format("GameRoom boardsCreated[%s] boardsReused[%s] boardsDropped[%s] pooled[%s]",
+                boardsCreated.get(), boardsReused.get(), boardsDropped.get(), pooledBoards.get());
+    }
+
     // start check methods
     private void checkCurrentPlayer(long clientId) throws NotPlayersTurnException {
         if (currentTurnClientId != clientId) {
@@ -422,6 +778,7 @@ public class GameRoom extends BaseGameRoom {
     // receive data from ServerThread (GameRoom specific)
     protected void handleSkipAction(ServerThread currentUser) // yaw4 12/11, called to skip on serverside, called by serverThread
     {
+        List<ServerThread> batch = beginBatch();
         try
         {
             checkPlayerInRoom(currentUser);
@@ -431,7 +788,11 @@ public class GameRoom extends BaseGameRoom {
 
             currentUser.setTookTurn(true);
             sendTurnStatus(currentUser, currentUser.didTakeTurn());
-            onTurnEnd();
+            if (isSimultaneous) {
+                endAttackWindowIfAllIn();
+            } else {
+                onTurnEnd();
+            }
         }
         catch (NotPlayersTurnException e) {
             currentUser.sendMessage(Constants.DEFAULT_CLIENT_ID, "It's not your turn");
@@ -448,17 +809,27 @@ public class GameRoom extends BaseGameRoom {
             LoggerUtil.INSTANCE.severe("handleSkipAction exception", e);
         } catch (Exception e) {
             LoggerUtil.INSTANCE.severe("handleSkipAction exception", e);
+        } finally {
+            endBatch(batch);
         }
     }
 
     //attempting attack action code yaw4 
     protected void handleAttackAction(ServerThread currentUser, int x, int y) // yaw4 12/11, called to attack ship on serverside grid and called by serverThread
     {
+        // measure what one attack step costs on the wire (frames ~ write syscalls)
+        long framesBefore = BaseServerThread.getFramesSent();
+        long bytesBefore = BaseServerThread.getBytesSent();
+        List<ServerThread> batch = beginBatch();
         try
         {
             checkPlayerInRoom(currentUser);
             checkCurrentPhase(currentUser, Phase.ATTACK);
             checkIsReady(currentUser);
+            if (isSimultaneous) {
+                queueAttack(currentUser, x, y);
+                return;
+            }
             checkCurrentPlayer(currentUser.getClientId());
             checkTookTurn(currentUser);
             checkCoordinateBounds(x, y); 
@@ -472,22 +843,24 @@ public class GameRoom extends BaseGameRoom {
               if(grid.attackShip(x,y) && grid.cellStatus(x,y) == 1) // yaw4 12/11, used to attack ship in grid when attack command
                 {
                     currentUser.addGamePoints(grid.getLastShips(x, y));
+                    sessionScores.merge(currentUser.getClientId(), grid.getLastShips(x, y), Integer::sum);
                     currentUser.addCurrency(10); // yaw4 12/11, used to give currency to user 
                     currentUser.sendAttackShipUpdate(currentUser.getClientId(), x, y); // sends attack command to client
-                    relay(null, String.format("%s hit " + grid.getLastShips(x,y) + " ships!", currentUser.getDisplayName())); 
-                    relay(null, String.format("%s got 10 coins for hitting ships!", currentUser.getDisplayName()));   // yaw4 12/11, code to show coins given to user
+                    relay(null, String.format("%s hit " + grid.getLastShips(x,y) + " ships!", MessageFormatter.escape(currentUser.getDisplayName()))); 
+                    relay(null, String.format("%s got 10 coins for hitting ships!", MessageFormatter.escape(currentUser.getDisplayName())));   // yaw4 12/11, code to show coins given to user
                     LoggerUtil.INSTANCE.warning("ship successfully attacked and user's points now: " + currentUser.getPoints() + " Client ID:" + currentUser.getClientId());
                 }
                 else 
                 {
-                    relay(null, String.format("%s missed and hit " + grid.getLastShips(x,y) + " ships!", currentUser.getDisplayName()));
+                    relay(null, String.format("%s missed and hit " + grid.getLastShips(x,y) + " ships!", MessageFormatter.escape(currentUser.getDisplayName())));
                     LoggerUtil.INSTANCE.info("ship failed attack and user's points now " + currentUser.getPoints());
                 } // yaw4 attack ship logic to be added here
+                heatmap.update(x, y);
             }
-            if(currentUser.getPoints() >= 6)
+            if(currentUser.getPoints() >= POINTS_TO_WIN)
             {
                 onSessionEnd();
-                //resetTurnTimer();
+                return; // the session is over, so there's no turn left to end
             }
             currentUser.setTookTurn(true);
             sendTurnStatus(currentUser, currentUser.didTakeTurn());
@@ -508,12 +881,17 @@ public class GameRoom extends BaseGameRoom {
             LoggerUtil.INSTANCE.severe("handleAttackAction exception", e);
         } catch (Exception e) {
             LoggerUtil.INSTANCE.severe("handleAttackAction exception", e);
+        } finally {
+            endBatch(batch);
+            LoggerUtil.INSTANCE.fine(String.format("Attack step sent %s frames / %s bytes",
+                    BaseServerThread.getFramesSent() - framesBefore, BaseServerThread.getBytesSent() - bytesBefore));
         }
     }
 
     // attempting place action code yaw4
     protected void handlePlaceAction(ServerThread currentUser, int x, int y) // yaw4 12/11, called to place ship on serverside grid and called by serverThread
     {
+        List<ServerThread> batch = beginBatch();
         try
         {
             checkPlayerInRoom(currentUser);
@@ -554,6 +932,88 @@ public class GameRoom extends BaseGameRoom {
             LoggerUtil.INSTANCE.severe("handlePlaceAction exception", e);
         } catch (Exception e) {
             LoggerUtil.INSTANCE.severe("handlePlaceAction exception", e);
+        } finally {
+            endBatch(batch);
+        }
+    }
+
+    /**
+     * Fills the Room with up to MAX_BOTS BotPlayers
+     * 
+     * @param sender
+     * @param count  number of bots to add (default 1)
+     */
+    protected void handleAddBots(ServerThread sender, String count) {
+        List<ServerThread> batch = beginBatch();
+        try {
+            checkPlayerInRoom(sender);
+            int requested = count == null || count.isBlank() ? 1 : Integer.parseInt(count.trim());
+            if (requested < 1) {
+                throw new NumberFormatException();
+            }
+            changeMembers(() -> addBots(sender, requested));
+        } catch (NumberFormatException e) {
+            sender.sendMessage(Constants.DEFAULT_CLIENT_ID, "Usage: /addbot [count]");
+        } catch (Exception e) {
+            LoggerUtil.INSTANCE.severe("handleAddBots exception", e);
+        } finally {
+            endBatch(batch);
+        }
+    }
+
+    /**
+     * Adds the bots off the game loop (see changeMembers()); membership changes
+     * run one at a time, so the count can't overshoot MAX_BOTS
+     */
+    private void addBots(ServerThread sender, int requested) {
+        long bots = clientsInRoom.values().stream().filter(BotPlayer.class::isInstance).count();
+        int toAdd = (int) Math.min(requested, MAX_BOTS - bots);
+        if (toAdd < 1) {
+            sender.sendMessage(Constants.DEFAULT_CLIENT_ID,
+                    String.format("This room already has %d bots", MAX_BOTS));
+            return;
+        }
+        List<ServerThread> added = new ArrayList<>();
+        for (int i = 0; i < toAdd; i++) {
+            added.add(new BotPlayer());
+        }
+        if (addClients(added).isEmpty()) {
+            return; // the Room closed in the meantime
+        }
+        execute(() -> runBatched(() -> sendGameEvent(
+                String.format("%s added %d bot%s", sender.getDisplayName(), toAdd, toAdd == 1 ? "" : "s"))));
+    }
+
+    /**
+     * Removes the bots left once the last person is gone; runs off the game
+     * loop (see changeMembers()) and re-checks since someone may have joined
+     */
+    private synchronized void removeLeftoverBots() {
+        if (!clientsInRoom.isEmpty() && clientsInRoom.values().stream().allMatch(BotPlayer.class::isInstance)) {
+            removeClients(new ArrayList<>(clientsInRoom.values()));
+        }
+    }
+
+    /**
+     * Chooses how the attack rounds of the next session are played
+     * 
+     * @param sender
+     * @param mode   name of an AttackMode
+     */
+    protected void handleAttackMode(ServerThread sender, String mode) {
+        List<ServerThread> batch = beginBatch();
+        try {
+            checkPlayerInRoom(sender);
+            checkCurrentPhase(sender, Phase.READY);
+            attackMode = AttackMode.valueOf(mode.trim().toUpperCase());
+            sendGameEvent(String.format("%s set attacks to %s", sender.getDisplayName(),
+                    attackMode.name().toLowerCase()));
+        } catch (IllegalArgumentException | NullPointerException e) {
+            sender.sendMessage(Constants.DEFAULT_CLIENT_ID, "Usage: /mode <turns|simultaneous|auto>");
+        } catch (Exception e) {
+            LoggerUtil.INSTANCE.severe("handleAttackMode exception", e);
+        } finally {
+            endBatch(batch);
         }
     }
 
@@ -566,6 +1026,7 @@ public class GameRoom extends BaseGameRoom {
      */
     protected void handleTurnAction(ServerThread currentUser, String exampleText) {
         // check if the client is in the room
+        List<ServerThread> batch = beginBatch();
         try {
             checkPlayerInRoom(currentUser);
             checkCurrentPhase(currentUser, Phase.IN_PROGRESS);
@@ -603,6 +1064,8 @@ public class GameRoom extends BaseGameRoom {
             LoggerUtil.INSTANCE.severe("handleTurnAction exception", e);
         } catch (Exception e) {
             LoggerUtil.INSTANCE.severe("handleTurnAction exception", e);
+        } finally {
+            endBatch(batch);
         }
     }
 
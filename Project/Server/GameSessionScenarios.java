@@ -0,0 +1,337 @@
+package Project.Server;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+
+import Project.Common.AttackMode;
+import Project.Common.Constants;
+import Project.Common.LoggerUtil;
+import Project.Common.Payload;
+import Project.Common.PayloadType;
+import Project.Common.Phase;
+import Project.Common.TimedEvent;
+import Project.Common.TimerPayload;
+import Project.Common.TimerType;
+import Project.Common.VirtualScheduler;
+
+/**
+ * Scripted GameRoom sessions on virtual time: every ready, turn and round
+ * timeout of a session is driven through a VirtualScheduler, so the whole set
+ * (several virtual minutes of 30 second timers) runs in milliseconds. Players
+ * are socketless ServerThreads that record what they're sent, and each
+ * scenario checks the phase, the timers and the game events at the exact
+ * virtual time they're due.
+ * <p>
+ * Exits with 1 if a scenario fails.
+ * </p>
+ */
+class GameSessionScenarios {
+    private static final long TIMEOUT_MS = 30_000;
+
+    /**
+     * A player that keeps everything the Room sends it
+     */
+    private static class RecordingClient extends SocketlessClient {
+        private final List<Payload> received = new ArrayList<>();
+
+        private RecordingClient(String name) {
+            super(name);
+        }
+
+        @Override
+        protected boolean sendToClient(Payload payload) {
+            received.add(payload);
+            return true;
+        }
+
+        private boolean hasEvent(String text) {
+            return countEvents(text) > 0;
+        }
+
+        private long countEvents(String text) {
+            return received.stream().filter(p -> p.getPayloadType() == PayloadType.MESSAGE
+                    && p.getClientId() == Constants.GAME_EVENT_CHANNEL && p.getMessage().contains(text)).count();
+        }
+
+        private TimerPayload lastTimer(TimerType timerType) {
+            TimerPayload last = null;
+            for (Payload payload : received) {
+                if (payload instanceof TimerPayload && ((TimerPayload) payload).getTimerType() == timerType) {
+                    last = (TimerPayload) payload;
+                }
+            }
+            return last;
+        }
+    }
+
+    /**
+     * A GameRoom with its players, all on one VirtualScheduler
+     */
+    private static class Session {
+        private final VirtualScheduler scheduler = new VirtualScheduler();
+        private final GameRoom room;
+        private final List<RecordingClient> players = new ArrayList<>();
+
+        private Session(String name, int playerCount) {
+            room = new GameRoom(name, scheduler);
+            for (int i = 0; i < playerCount; i++) {
+                players.add(new RecordingClient(name + "-" + i));
+            }
+            room.addClients(new ArrayList<>(players));
+            scheduler.advance(100); // onClientAdded()
+        }
+
+        private RecordingClient player(int index) {
+            return players.get(index);
+        }
+
+        private RecordingClient currentPlayer() {
+            long clientId = room.getCurrentTurnClientId();
+            return players.stream().filter(p -> p.getClientId() == clientId).findFirst().orElse(null);
+        }
+
+        /**
+         * Runs an action on the Room's scheduler, as ServerThread would
+         */
+        private void act(Runnable action) {
+            room.execute(action);
+            scheduler.advance(0);
+        }
+
+        private void ready(int... indexes) {
+            for (int index : indexes) {
+                RecordingClient client = player(index);
+                act(() -> room.handleReady(client));
+            }
+        }
+
+        /**
+         * Ready check done and ships placed by timeout: ATTACK phase
+         */
+        private void startAttack() {
+            ready(0, 1);
+            scheduler.advance(TIMEOUT_MS); // PLACE
+            scheduler.advance(TIMEOUT_MS); // ATTACK
+        }
+
+        private void close() {
+            room.removeClients(new ArrayList<>(players));
+            while (scheduler.runNext()) {
+            }
+        }
+    }
+
+    private interface Scenario {
+        void run(Session session);
+    }
+
+    private static void check(boolean condition, String description) {
+        if (!condition) {
+            throw new IllegalStateException(description);
+        }
+    }
+
+    private static final Map<String, Scenario> SCENARIOS = new LinkedHashMap<>();
+    static {
+        SCENARIOS.put("ready timeout without enough players", session -> {
+            session.ready(0);
+            check(session.player(0).isReady(), "player 0 is ready");
+            session.scheduler.advance(TIMEOUT_MS);
+            check(session.room.getPhase() == Phase.READY, "still READY");
+            check(!session.player(0).isReady(), "ready status reset");
+            check(session.player(1).lastTimer(TimerType.READY).getExpiresAt() == -1, "ready timer cancelled");
+            // the next ready check gets a new timer
+            session.ready(0, 1);
+            session.scheduler.advance(TIMEOUT_MS);
+            check(session.room.getPhase() == Phase.PLACE, "second ready check starts the session");
+        });
+        SCENARIOS.put("ready timer deadline is on the Room's clock", session -> {
+            session.scheduler.advance(5_000);
+            session.ready(0);
+            TimerPayload timer = session.player(1).lastTimer(TimerType.READY);
+            check(timer.getServerTime() == 5_100 && timer.getExpiresAt() == 35_100, "deadline " + timer.getExpiresAt());
+            check(timer.getTime() == 30, "30 seconds left, got " + timer.getTime());
+        });
+        SCENARIOS.put("ready timeout starts the session", session -> {
+            session.ready(0, 1);
+            session.scheduler.advance(TIMEOUT_MS - 1);
+            check(session.room.getPhase() == Phase.READY, "READY just before the timeout");
+            session.scheduler.advance(1);
+            check(session.room.getPhase() == Phase.PLACE, "PLACE at the timeout");
+            check(session.room.isSpectating(session.player(2)), "unready player spectates");
+            check(session.player(0).lastTimer(TimerType.TURN).getTime() == 30, "PLACE turn timer started");
+        });
+        SCENARIOS.put("spectators get coalesced updates on the Room's scheduler", session -> {
+            session.ready(0, 1);
+            session.scheduler.advance(TIMEOUT_MS);
+            RecordingClient spectator = session.player(2);
+            TimerPayload direct = session.player(0).lastTimer(TimerType.TURN);
+            check(spectator.lastTimer(TimerType.TURN) == null, "no direct turn timer for the spectator");
+            session.scheduler.advance(SpectatorBroadcaster.DEFAULT_INTERVAL_MS);
+            TimerPayload coalesced = spectator.lastTimer(TimerType.TURN);
+            check(coalesced != null && coalesced.getExpiresAt() == direct.getExpiresAt(), "turn deadline flushed");
+            check(coalesced.getServerTime() == session.scheduler.now(), "sent on the Room's clock");
+            int received = spectator.received.size();
+            session.scheduler.advance(10 * SpectatorBroadcaster.DEFAULT_INTERVAL_MS);
+            check(spectator.received.size() == received, "nothing new, nothing flushed");
+        });
+        SCENARIOS.put("joining mid-session watches until the session ends", session -> {
+            session.startAttack();
+            RecordingClient late = new RecordingClient("Scenario-late");
+            session.players.add(late);
+            session.room.addClients(List.of(late));
+            session.scheduler.advance(0);
+            check(session.room.isSpectating(late), "spectator right after joining");
+            session.scheduler.advance(3 * 2 * TIMEOUT_MS);
+            check(session.room.getPhase() == Phase.READY, "READY after round 3");
+            check(!session.room.isSpectating(late), "released when the session ended");
+            session.ready(0);
+            check(late.lastTimer(TimerType.READY) != null, "direct ready timer");
+        });
+        SCENARIOS.put("PLACE turn timeout moves on to ATTACK", session -> {
+            session.ready(0, 1);
+            session.scheduler.advance(TIMEOUT_MS);
+            session.scheduler.advance(TIMEOUT_MS);
+            check(session.room.getPhase() == Phase.ATTACK, "ATTACK");
+            check(session.player(0).hasEvent("Round 1 has started"), "round 1 announced");
+            RecordingClient current = session.currentPlayer();
+            check(current != null && session.player(1).hasEvent("It's " + current.getDisplayName() + "'s turn"),
+                    "first turn announced");
+        });
+        SCENARIOS.put("ATTACK turn timeout passes the turn", session -> {
+            session.startAttack();
+            RecordingClient first = session.currentPlayer();
+            session.scheduler.advance(TIMEOUT_MS);
+            RecordingClient second = session.currentPlayer();
+            check(second != null && second != first, "turn passed on");
+            check(first.hasEvent("It's " + second.getDisplayName() + "'s turn"), "second turn announced");
+        });
+        SCENARIOS.put("attacking ends the turn before the timeout", session -> {
+            session.startAttack();
+            RecordingClient first = session.currentPlayer();
+            session.scheduler.advance(5_000);
+            session.act(() -> session.room.handleAttackAction(first, 0, 0));
+            check(session.currentPlayer() != first, "turn passed on");
+            TimerPayload timer = first.lastTimer(TimerType.TURN);
+            check(timer.getExpiresAt() == session.scheduler.now() + TIMEOUT_MS, "turn timer restarted");
+        });
+        SCENARIOS.put("last turn timeout ends the round", session -> {
+            session.startAttack();
+            session.scheduler.advance(2 * TIMEOUT_MS);
+            check(session.player(0).hasEvent("Round 2 has started"), "round 2 announced");
+            check(session.room.getPhase() == Phase.ATTACK, "still ATTACK");
+        });
+        SCENARIOS.put("session ends after the last round", session -> {
+            session.startAttack();
+            session.scheduler.advance(3 * 2 * TIMEOUT_MS - 1);
+            check(session.room.getPhase() == Phase.ATTACK, "ATTACK before the last timeout");
+            session.scheduler.advance(1);
+            check(session.room.getPhase() == Phase.READY, "READY after round 3");
+            check(session.players.stream().noneMatch(ServerThread::isReady), "ready status reset");
+            check(session.scheduler.isIdle(), "no timers left running");
+        });
+        SCENARIOS.put("reaching the points limit ends the session", session -> {
+            session.startAttack();
+            RecordingClient first = session.currentPlayer();
+            first.setPoints(GameRoom.POINTS_TO_WIN);
+            long roundsAnnounced = first.countEvents("has started");
+            session.act(() -> session.room.handleAttackAction(first, 0, 0));
+            check(session.room.getPhase() == Phase.READY, "READY after the winning attack");
+            session.scheduler.advance(TIMEOUT_MS + 1_000);
+            check(first.countEvents("has started") == roundsAnnounced, "no round started after the session ended");
+            check(session.room.getPhase() == Phase.READY, "still READY");
+            check(session.scheduler.isIdle(), "no timers left running");
+        });
+        SCENARIOS.put("simultaneous round timeout without attacks ends the session", session -> {
+            session.act(() -> session.room.handleAttackMode(session.player(0), AttackMode.SIMULTANEOUS.name()));
+            session.startAttack();
+            check(session.room.isSimultaneous(), "simultaneous session");
+            check(session.player(0).lastTimer(TimerType.ROUND).getTime() == 30, "attack round timer started");
+            session.scheduler.advance(TIMEOUT_MS);
+            check(session.player(1).hasEvent("Nobody attacked"), "empty round resolved");
+            check(session.room.getPhase() == Phase.READY, "READY after the empty round");
+            check(session.scheduler.isIdle(), "no timers left running");
+        });
+        SCENARIOS.put("leaving on your turn passes the turn", session -> {
+            session.startAttack();
+            RecordingClient first = session.currentPlayer();
+            session.room.removeClients(List.of(first));
+            session.scheduler.advance(0);
+            RecordingClient second = session.currentPlayer();
+            check(second != null && second != first, "turn passed on");
+            session.scheduler.advance(TIMEOUT_MS);
+            check(session.room.getPhase() == Phase.ATTACK, "session goes on");
+            session.room.removeClients(List.of(second));
+            session.scheduler.advance(0);
+            check(session.room.getPhase() == Phase.READY, "session ends without players");
+            check(session.scheduler.isIdle(), "no timers left running");
+        });
+        SCENARIOS.put("bots play sessions on their own and leave with the last person", session -> {
+            session.act(() -> session.room.handleAddBots(session.player(0), "4"));
+            check(session.player(1).hasEvent("added 4 bots"), "bots announced");
+            session.scheduler.advance(TIMEOUT_MS + 5_000);
+            check(session.room.getPhase() == Phase.PLACE, "bots readied up");
+            long start = session.scheduler.now();
+            while (session.room.getPhase() != Phase.READY && session.scheduler.now() - start < 30 * TIMEOUT_MS) {
+                session.scheduler.runNext();
+            }
+            check(session.room.getPhase() == Phase.READY, "bots finished the session");
+            check(session.scheduler.now() - start < 10 * TIMEOUT_MS,
+                    "bots didn't wait out every timer: " + (session.scheduler.now() - start) + "ms");
+            session.scheduler.advance(TIMEOUT_MS + 5_000);
+            check(session.room.getPhase() == Phase.PLACE, "bots started the next session");
+            session.room.removeClients(new ArrayList<>(session.players));
+            session.scheduler.advance(0);
+            check(!session.room.isRunning(), "Room closed without people");
+        });
+        SCENARIOS.put("TimedEvent counts down on virtual time", session -> {
+            List<Integer> ticks = new ArrayList<>();
+            boolean[] expired = { false };
+            TimedEvent timer = new TimedEvent(3, () -> expired[0] = true, session.scheduler);
+            timer.setTickCallback(ticks::add);
+            session.scheduler.advance(1_500);
+            check(timer.getRemainingTime() == 2, "2 seconds left, got " + timer.getRemainingTime());
+            session.scheduler.advance(1_500);
+            check(expired[0] && ticks.equals(List.of(2, 1, 0)), "expired after ticks " + ticks);
+            TimedEvent cancelled = new TimedEvent(1, () -> expired[0] = false, session.scheduler);
+            cancelled.cancel();
+            session.scheduler.advance(TIMEOUT_MS);
+            check(expired[0], "cancelled timer didn't run");
+        });
+    }
+
+    public static void main(String[] args) {
+        LoggerUtil.LoggerConfig config = new LoggerUtil.LoggerConfig();
+        config.setLogLocation("game-session-scenarios.log");
+        config.setFileLogLevel(Level.WARNING);
+        config.setConsoleLogLevel(Level.OFF);
+        LoggerUtil.INSTANCE.setConfig(config);
+        ChatHistory.setDirectory(null);
+
+        int failures = 0;
+        long virtualMs = 0;
+        long start = System.nanoTime();
+        for (Map.Entry<String, Scenario> scenario : SCENARIOS.entrySet()) {
+            Session session = new Session("Scenario", 3);
+            long scenarioStart = System.nanoTime();
+            String result = "ok";
+            try {
+                scenario.getValue().run(session);
+            } catch (RuntimeException e) {
+                failures++;
+                result = "FAILED: " + e.getMessage();
+            } finally {
+                virtualMs += session.scheduler.now();
+                session.close();
+            }
+            System.out.println(String.format("%-62s %6.1fms %s", scenario.getKey(),
+                    (System.nanoTime() - scenarioStart) / 1_000_000d, result));
+        }
+        System.out.println(String.format("scenarios[%s] failures[%s] virtual[%.1fmin] real[%.0fms]", SCENARIOS.size(),
+                failures, virtualMs / 60_000d, (System.nanoTime() - start) / 1_000_000d));
+        System.exit(failures == 0 ? 0 : 1);
+    }
+}
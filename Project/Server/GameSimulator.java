@@ -0,0 +1,334 @@
+package Project.Server;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.logging.Level;
+
+import Project.Common.AttackMode;
+import Project.Common.Grid;
+import Project.Common.LoggerUtil;
+import Project.Common.Phase;
+import Project.Common.VirtualScheduler;
+
+/**
+ * Headless GameRoom simulator.
+ * <p>
+ * Plays complete sessions (ready check, PLACE, ATTACK, session end) of the real
+ * GameRoom with socketless ServerThreads as players (sends are no-ops while a
+ * ServerThread isn't running). Each session runs on its own VirtualScheduler
+ * in place of the Room's game loop, so the 30 second ready/turn/round timers
+ * expire instantly, and sessions are spread over all cores with fork/join.
+ * Players act after a random think time and sometimes not at all, so the
+ * timeouts are exercised as well.
+ * </p>
+ * <p>
+ * Every session is checked against a few rules (it ends, hits never exceed
+ * attacks, nothing throws), so a run doubles as a regression and profiling
+ * harness. Sessions are reproducible from their seed except for the turn
+ * order shuffle.
+ * </p>
+ * <p>
+ * Usage: GameSimulator [sessions] [players] [turns|simultaneous|auto|all]
+ * [idle%]
+ * </p>
+ */
+public class GameSimulator {
+    // virtual time after which a session counts as stuck
+    private static final long MAX_SESSION_MS = 4 * 60 * 60 * 1000L;
+    private static final long IDLE_MS = 31_000; // long enough for the timer to expire
+    private static final int SESSIONS_PER_TASK = 32;
+
+    private final int playerCount;
+    private final AttackMode mode;
+    private final double idleChance;
+
+    /**
+     * @param playerCount players per session
+     * @param mode        picked with /mode before the ready check
+     * @param idleChance  chance a player lets a move time out
+     */
+    public GameSimulator(int playerCount, AttackMode mode, double idleChance) {
+        if (playerCount < 1) {
+            throw new IllegalArgumentException("A session needs players");
+        }
+        this.playerCount = playerCount;
+        this.mode = mode;
+        this.idleChance = idleChance;
+    }
+
+    /**
+     * Totals over a set of sessions
+     */
+    public static class Stats {
+        private long sessions;
+        private long simultaneous; // sessions played with simultaneous attacks
+        private long stuck; // didn't end within MAX_SESSION_MS
+        private long failures; // a task threw or a rule was broken
+        private String firstFailure;
+        private long virtualMs;
+        private long tasks;
+        private long placements;
+        private long attacks;
+        private long hits;
+        private long skips;
+        private long idles;
+
+        private void add(Stats other) {
+            sessions += other.sessions;
+            simultaneous += other.simultaneous;
+            stuck += other.stuck;
+            failures += other.failures;
+            if (firstFailure == null) {
+                firstFailure = other.firstFailure;
+            }
+            virtualMs += other.virtualMs;
+            tasks += other.tasks;
+            placements += other.placements;
+            attacks += other.attacks;
+            hits += other.hits;
+            skips += other.skips;
+            idles += other.idles;
+        }
+
+        private void fail(String reason) {
+            failures++;
+            if (firstFailure == null) {
+                firstFailure = reason;
+            }
+        }
+
+        public long getSessions() {
+            return sessions;
+        }
+
+        public long getFailures() {
+            return failures + stuck;
+        }
+
+        /**
+         * @return average virtual session length in milliseconds
+         */
+        public double getAverageSessionMs() {
+            return sessions == 0 ? 0 : (double) virtualMs / sessions;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "sessions[%s] simultaneous[%s] avgSession[%.1fmin] gamesPerRoomHour[%.1f] tasks[%s] placements[%s]"
+                            + " attacks[%s] hits[%s] hitRate[%.1f%%] skips[%s] idles[%s] stuck[%s] failures[%s]%s",
+                    sessions, simultaneous, getAverageSessionMs() / 60_000, 3_600_000 / Math.max(1, getAverageSessionMs()),
+                    tasks, placements, attacks, hits, attacks == 0 ? 0 : 100.0 * hits / attacks, skips, idles, stuck,
+                    failures, firstFailure == null ? "" : " first: " + firstFailure);
+        }
+    }
+
+    private static class Player {
+        private final ServerThread client;
+        private final Set<Integer> targeted = new HashSet<>(); // cells this player attacked
+        private boolean isActing = false; // a move is scheduled
+        private long idleUntil = -1;
+
+        private Player(ServerThread client) {
+            this.client = client;
+        }
+    }
+
+    /**
+     * Runs sessions over all cores
+     *
+     * @param sessions
+     * @param seed     session i uses seed + i
+     * @return
+     */
+    public Stats run(int sessions, long seed) {
+        return ForkJoinPool.commonPool().invoke(new Sessions(seed, 0, sessions));
+    }
+
+    private class Sessions extends RecursiveTask<Stats> {
+        private final long seed;
+        private final int from;
+        private final int to;
+
+        private Sessions(long seed, int from, int to) {
+            this.seed = seed;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Stats compute() {
+            if (to - from <= SESSIONS_PER_TASK) {
+                Stats stats = new Stats();
+                for (int i = from; i < to; i++) {
+                    stats.add(runSession(seed + i));
+                }
+                return stats;
+            }
+            int mid = (from + to) >>> 1;
+            Sessions left = new Sessions(seed, from, mid);
+            left.fork();
+            Stats stats = new Sessions(seed, mid, to).compute();
+            stats.add(left.join());
+            return stats;
+        }
+    }
+
+    /**
+     * Plays one session from the ready check until the Room is back in READY
+     *
+     * @param seed
+     * @return
+     */
+    public Stats runSession(long seed) {
+        Stats stats = new Stats();
+        stats.sessions = 1;
+        SplittableRandom random = new SplittableRandom(seed);
+        VirtualScheduler scheduler = new VirtualScheduler();
+        GameRoom room = new GameRoom("Sim-" + seed, scheduler);
+        List<Player> players = new ArrayList<>();
+        List<ServerThread> clients = new ArrayList<>();
+        for (int i = 0; i < playerCount; i++) {
+            ServerThread client = new SocketlessClient("Sim" + i);
+            clients.add(client);
+            players.add(new Player(client));
+        }
+        try {
+            room.addClients(clients);
+            ServerThread first = clients.get(0);
+            room.execute(() -> room.handleAttackMode(first, mode.name()));
+            clients.forEach(client -> room.execute(() -> room.handleReady(client)));
+            boolean hasStarted = false;
+            while (true) {
+                if (room.getPhase() != Phase.READY) {
+                    hasStarted = true;
+                    if (room.isSimultaneous()) {
+                        stats.simultaneous = 1;
+                    }
+                } else if (hasStarted) {
+                    break;
+                }
+                if (scheduler.now() > MAX_SESSION_MS) {
+                    stats.stuck++;
+                    break;
+                }
+                plan(room, players, scheduler, random, stats);
+                if (!scheduler.runNext()) {
+                    stats.stuck++;
+                    break;
+                }
+            }
+            stats.virtualMs = scheduler.now();
+            // every hit pays 10 coins
+            stats.hits = clients.stream().mapToInt(ServerThread::getCurrency).sum() / 10;
+            if (stats.hits > stats.attacks) {
+                stats.fail(String.format("session %s: %s hits from %s attacks", seed, stats.hits, stats.attacks));
+            }
+        } catch (RuntimeException e) {
+            stats.fail(String.format("session %s: %s", seed, e));
+        } finally {
+            // empties (and closes) the Room, then lets the removal handling run
+            room.removeClients(clients);
+            while (scheduler.runNext()) {
+            }
+        }
+        stats.tasks = scheduler.getTasksRun();
+        return stats;
+    }
+
+    /**
+     * Schedules a move for every player that has one and isn't already about to
+     * move or letting it time out
+     */
+    private void plan(GameRoom room, List<Player> players, VirtualScheduler scheduler, SplittableRandom random,
+            Stats stats) {
+        long now = scheduler.now();
+        for (Player player : players) {
+            if (player.isActing || player.idleUntil > now || !hasMove(room, player)) {
+                continue;
+            }
+            if (random.nextDouble() < idleChance) {
+                player.idleUntil = now + IDLE_MS;
+                stats.idles++;
+                continue;
+            }
+            player.isActing = true;
+            // think time
+            scheduler.schedule(() -> move(room, player, random, stats), 200 + random.nextInt(3000));
+        }
+    }
+
+    private boolean hasMove(GameRoom room, Player player) {
+        ServerThread client = player.client;
+        switch (room.getPhase()) {
+            case PLACE:
+                return !client.placedAllShips();
+            case ATTACK:
+                return !client.didTakeTurn()
+                        && (room.isSimultaneous() || room.getCurrentTurnClientId() == client.getClientId());
+            default:
+                return false;
+        }
+    }
+
+    private void move(GameRoom room, Player player, SplittableRandom random, Stats stats) {
+        player.isActing = false;
+        if (!hasMove(room, player)) {
+            return; // the phase or turn moved on while thinking
+        }
+        Grid grid = room.getGrid();
+        int rows = grid.getRows();
+        int cols = grid.getCols();
+        if (room.getPhase() == Phase.PLACE) {
+            stats.placements++;
+            room.handlePlaceAction(player.client, random.nextInt(rows), random.nextInt(cols));
+            return;
+        }
+        if (random.nextInt(20) == 0 || player.targeted.size() >= rows * cols) {
+            stats.skips++;
+            room.handleSkipAction(player.client);
+            return;
+        }
+        int cell;
+        do {
+            cell = random.nextInt(rows * cols);
+        } while (!player.targeted.add(cell));
+        stats.attacks++;
+        room.handleAttackAction(player.client, cell / cols, cell % cols);
+    }
+
+    public static void main(String[] args) {
+        int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int players = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        String modeName = args.length > 2 ? args[2] : "all";
+        double idleChance = args.length > 3 ? Integer.parseInt(args[3]) / 100.0 : 0.05;
+
+        LoggerUtil.LoggerConfig config = new LoggerUtil.LoggerConfig();
+        config.setLogLocation("game-simulator.log");
+        config.setFileLogLevel(Level.SEVERE);
+        config.setConsoleLogLevel(Level.SEVERE);
+        LoggerUtil.INSTANCE.setConfig(config);
+        ChatHistory.setDirectory(null);
+
+        List<AttackMode> modes = "all".equalsIgnoreCase(modeName) ? List.of(AttackMode.TURNS, AttackMode.SIMULTANEOUS)
+                : List.of(AttackMode.valueOf(modeName.toUpperCase()));
+        System.out.println(String.format("players[%s] idle[%.0f%%] workers[%s]", players, idleChance * 100,
+                ForkJoinPool.commonPool().getParallelism()));
+        for (AttackMode mode : modes) {
+            GameSimulator simulator = new GameSimulator(players, mode, idleChance);
+            simulator.run(Math.min(sessions, 500), 0); // warm up
+            long start = System.nanoTime();
+            Stats stats = simulator.run(sessions, 1);
+            double seconds = (System.nanoTime() - start) / 1_000_000_000d;
+            System.out.println(String.format("%-12s gamesPerSecond[%.0f] %s", mode.name().toLowerCase(),
+                    stats.getSessions() / seconds, stats));
+        }
+        System.out.println(GameExecutor.INSTANCE.getStats());
+        System.exit(0);
+    }
+}
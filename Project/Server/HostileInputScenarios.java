@@ -0,0 +1,240 @@
+package Project.Server;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.zip.Deflater;
+
+import Project.Common.BatchPayload;
+import Project.Common.CompressedPayload;
+import Project.Common.ConnectionPayload;
+import Project.Common.LoggerUtil;
+import Project.Common.Payload;
+import Project.Common.PayloadCodec;
+import Project.Common.PayloadType;
+import Project.Exceptions.PayloadRejectedException;
+
+/**
+ * Hostile client input against PayloadInputGuard and PayloadCodec. Each
+ * scenario writes what a client would put on the wire (the bad frame followed
+ * by a valid message) and reads it back the way BaseServerThread.run() does.
+ * Field violations must only drop the payload, so the valid message after it
+ * still arrives; stream violations (oversized frame, deep or over-referenced
+ * graph, a class outside the allow list, a compressed bomb) must end the
+ * connection. Every read has to finish within MAX_MILLIS and allocate at most
+ * MAX_ALLOCATED_BYTES on the reading thread.
+ * <p>
+ * Exits with 1 if a scenario fails.
+ * </p>
+ */
+class HostileInputScenarios {
+    private static final long MAX_MILLIS = 100;
+    private static final long MAX_ALLOCATED_BYTES = 16L * PayloadInputGuard.MAX_FRAME_BYTES;
+
+    private enum Outcome {
+        ACCEPTED, // decoded and validated
+        DROPPED, // rejected payload, the connection stays open
+        DISCONNECTED // the read failed, the connection is dropped
+    }
+
+    private interface Frames {
+        void write(ObjectOutputStream out) throws IOException;
+    }
+
+    private record Scenario(Frames frames, List<Outcome> expected) {
+    }
+
+    private static final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+            .getThreadMXBean();
+
+    private static Payload message(String text) {
+        Payload payload = new Payload();
+        payload.setPayloadType(PayloadType.MESSAGE);
+        payload.setMessage(text);
+        return payload;
+    }
+
+    /**
+     * A client's stream: the handshake header, the frames and a valid message
+     */
+    private static byte[] clientStream(Frames frames) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            frames.write(out);
+            out.writeObject(message("still connected"));
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Reads frames like BaseServerThread.run() until the stream ends or a frame
+     * drops the connection
+     */
+    private static List<Outcome> read(byte[] stream) {
+        List<Outcome> outcomes = new ArrayList<>();
+        PayloadCodec codec = new PayloadCodec();
+        try (PayloadInputGuard guard = new PayloadInputGuard(new ByteArrayInputStream(stream));
+                ObjectInputStream in = new ObjectInputStream(guard)) {
+            in.setObjectInputFilter(guard);
+            codec.setInputLimits(guard, PayloadInputGuard.MAX_FRAME_BYTES);
+            while (true) {
+                try {
+                    guard.beginFrame();
+                    guard.validate(codec.decode((Payload) in.readObject()));
+                    outcomes.add(Outcome.ACCEPTED);
+                } catch (PayloadRejectedException | ClassCastException | ClassNotFoundException e) {
+                    outcomes.add(Outcome.DROPPED);
+                }
+            }
+        } catch (EOFException e) {
+            // everything was read; the connection is still open
+        } catch (IOException e) {
+            outcomes.add(Outcome.DISCONNECTED);
+        } finally {
+            codec.close();
+        }
+        return outcomes;
+    }
+
+    /**
+     * Deflates the bytes without the codec's dictionary (the Inflater only asks
+     * for one if it was used)
+     */
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        deflater.setInput(raw);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int count;
+        do {
+            count = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+            compressed.write(buffer, 0, count);
+        } while (count == buffer.length);
+        deflater.end();
+        return compressed.toByteArray();
+    }
+
+    private static final List<Outcome> SURVIVES = List.of(Outcome.ACCEPTED, Outcome.ACCEPTED);
+    private static final List<Outcome> DROPS = List.of(Outcome.DROPPED, Outcome.ACCEPTED);
+    private static final List<Outcome> DISCONNECTS = List.of(Outcome.DISCONNECTED);
+
+    private static final Map<String, Scenario> SCENARIOS = new LinkedHashMap<>();
+    static {
+        SCENARIOS.put("valid handshake and message", new Scenario(out -> {
+            ConnectionPayload cp = new ConnectionPayload();
+            cp.setPayloadType(PayloadType.CLIENT_CONNECT);
+            cp.setClientName("Player");
+            out.writeObject(cp);
+        }, SURVIVES));
+        SCENARIOS.put("message over the length limit is dropped", new Scenario(
+                out -> out.writeObject(message("x".repeat(PayloadInputGuard.MAX_MESSAGE_LENGTH + 1))), DROPS));
+        SCENARIOS.put("client name over the length limit is dropped", new Scenario(out -> {
+            ConnectionPayload cp = new ConnectionPayload();
+            cp.setPayloadType(PayloadType.CLIENT_CONNECT);
+            cp.setClientName("n".repeat(PayloadInputGuard.MAX_NAME_LENGTH + 1));
+            out.writeObject(cp);
+        }, DROPS));
+        SCENARIOS.put("server-only payload is dropped",
+                new Scenario(out -> out.writeObject(new BatchPayload(new ArrayList<>(List.of(message("forged"))))),
+                        DROPS));
+        SCENARIOS.put("frame over 64KB disconnects", new Scenario(
+                out -> out.writeObject(message("z".repeat(PayloadInputGuard.MAX_FRAME_BYTES + 16 * 1024))),
+                DISCONNECTS));
+        SCENARIOS.put("graph deeper than the limit disconnects", new Scenario(out -> {
+            Payload nested = message("bottom");
+            for (int i = 0; i < PayloadInputGuard.MAX_DEPTH * 2; i++) {
+                nested = new BatchPayload(new ArrayList<>(List.of(nested)));
+            }
+            out.writeObject(nested);
+        }, DISCONNECTS));
+        SCENARIOS.put("graph with too many references disconnects", new Scenario(out -> {
+            List<Payload> payloads = new ArrayList<>();
+            Payload shared = message("x");
+            for (int i = 0; i <= PayloadInputGuard.MAX_REFERENCES; i++) {
+                payloads.add(shared);
+            }
+            out.writeObject(new BatchPayload(payloads));
+        }, DISCONNECTS));
+        SCENARIOS.put("HashMap outside the allow list disconnects", new Scenario(out -> {
+            HashMap<String, String> map = new HashMap<>();
+            map.put("key", "value");
+            out.writeObject(map);
+        }, DISCONNECTS));
+        SCENARIOS.put("compressed bomb under a small claimed size disconnects", new Scenario(out -> {
+            byte[] zeros = new byte[16 * 1024 * 1024];
+            out.writeObject(new CompressedPayload(deflate(zeros), 1_024));
+        }, DISCONNECTS));
+        SCENARIOS.put("compressed payload claiming more than the limit disconnects", new Scenario(out -> {
+            out.writeObject(new CompressedPayload(deflate(new byte[64]), PayloadInputGuard.MAX_FRAME_BYTES + 1));
+        }, DISCONNECTS));
+    }
+
+    private static void check(boolean condition, String description) {
+        if (!condition) {
+            throw new IllegalStateException(description);
+        }
+    }
+
+    /**
+     * @return the failure or null if the scenario passed
+     */
+    private static String run(Scenario scenario, boolean isReporting, String name) throws IOException {
+        byte[] stream = clientStream(scenario.frames());
+        long threadId = Thread.currentThread().threadId();
+        long bytesBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        List<Outcome> outcomes = read(stream);
+        double millis = (System.nanoTime() - start) / 1_000_000d;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - bytesBefore;
+        String result = "ok";
+        try {
+            check(outcomes.equals(scenario.expected()), "expected " + scenario.expected() + ", got " + outcomes);
+            check(millis <= MAX_MILLIS, String.format("took %.1fms", millis));
+            check(allocated <= MAX_ALLOCATED_BYTES, String.format("allocated %.1fKB", allocated / 1024d));
+        } catch (RuntimeException e) {
+            result = "FAILED: " + e.getMessage();
+        }
+        if (isReporting) {
+            System.out.println(String.format("%-62s %6.1fms %7.1fKB streamKB[%.1f] %s", name, millis,
+                    allocated / 1024d, stream.length / 1024d, result));
+        }
+        return result.equals("ok") ? null : result;
+    }
+
+    public static void main(String[] args) throws IOException {
+        LoggerUtil.LoggerConfig config = new LoggerUtil.LoggerConfig();
+        config.setLogLocation("hostile-input-scenarios.log");
+        config.setFileLogLevel(Level.WARNING);
+        config.setConsoleLogLevel(Level.OFF);
+        LoggerUtil.INSTANCE.setConfig(config);
+
+        // warm up so class loading and JIT don't count against the bounds
+        for (Map.Entry<String, Scenario> scenario : SCENARIOS.entrySet()) {
+            run(scenario.getValue(), false, scenario.getKey());
+        }
+        long framesBefore = PayloadInputGuard.getRejectedFrames();
+        long payloadsBefore = PayloadInputGuard.getRejectedPayloads();
+        int failures = 0;
+        for (Map.Entry<String, Scenario> scenario : SCENARIOS.entrySet()) {
+            if (run(scenario.getValue(), true, scenario.getKey()) != null) {
+                failures++;
+            }
+        }
+        System.out.println(String.format("scenarios[%s] failures[%s] rejectedFrames[%s] rejectedPayloads[%s]",
+                SCENARIOS.size(), failures, PayloadInputGuard.getRejectedFrames() - framesBefore,
+                PayloadInputGuard.getRejectedPayloads() - payloadsBefore));
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+}
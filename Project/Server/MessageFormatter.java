@@ -0,0 +1,293 @@
+package Project.Server;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import Project.Common.Html;
+
+/**
+ * Server-side chat formatting.
+ * <p>
+ * Turns the chat markup into the HTML the clients render, so it's done once
+ * per broadcast instead of by every recipient:
+ * </p>
+ * <ul>
+ * <li>**bold**</li>
+ * <li>*italic*</li>
+ * <li>__underline__</li>
+ * <li>[red]color[/red] (see COLORS)</li>
+ * </ul>
+ * <p>
+ * Everything else is escaped so clients never render HTML a user typed. The
+ * markers are paired up with a stack of open spans: a marker only closes the
+ * innermost open span, so the output is always well-formed, and spans that are
+ * never closed (or are empty, like a masked "****") are shown as typed. The
+ * output is then written in one pass, copying the text between markers in
+ * bulk. Messages without markup or HTML characters are returned as is.
+ * </p>
+ */
+public abstract class MessageFormatter {
+    public static final Set<String> COLORS = Set.of("red", "green", "blue", "orange", "purple", "gray");
+
+    private static final int BOLD = 0;
+    private static final int ITALIC = 1;
+    private static final int UNDERLINE = 2;
+    private static final int COLOR = 3;
+    private static final String[] TAGS = { "b", "i", "u", "font" };
+
+    private static final char[] MARKUP_CHARS = "*_[".toCharArray();
+    private static final char[] HTML_CHARS = "<>&\"'".toCharArray();
+
+    // metrics
+    private static final AtomicLong formatted = new AtomicLong();
+    private static final AtomicLong plain = new AtomicLong(); // returned as is
+    private static final AtomicLong escapedOnly = new AtomicLong();
+
+    /**
+     * The markers found in a message and what each one turned out to be
+     */
+    private static class Markers {
+        int count = 0;
+        int[] start = new int[16];
+        int[] length = new int[16];
+        int[] type = new int[16];
+        boolean[] isTag = new boolean[16]; // false: shown as typed
+        boolean[] isOpening = new boolean[16];
+        String[] color = new String[16];
+
+        int add(int markerStart, int markerLength, int markerType, String markerColor) {
+            if (count == start.length) {
+                int size = count * 2;
+                start = Arrays.copyOf(start, size);
+                length = Arrays.copyOf(length, size);
+                type = Arrays.copyOf(type, size);
+                isTag = Arrays.copyOf(isTag, size);
+                isOpening = Arrays.copyOf(isOpening, size);
+                color = Arrays.copyOf(color, size);
+            }
+            start[count] = markerStart;
+            length[count] = markerLength;
+            type[count] = markerType;
+            color[count] = markerColor;
+            return count++;
+        }
+    }
+
+    /**
+     * @param message
+     * @return sanitized HTML
+     */
+    public static String toHtml(String message) {
+        if (message == null || message.isEmpty()) {
+            return message;
+        }
+        formatted.incrementAndGet();
+        int n = message.length();
+        // String.indexOf() is vectorized, so a few scans beat one loop over the
+        // characters for the common case of nothing to do
+        int first = n;
+        boolean hasMarkup = false;
+        for (char c : MARKUP_CHARS) {
+            int at = message.indexOf(c);
+            if (at >= 0) {
+                hasMarkup = true;
+                first = Math.min(first, at);
+            }
+        }
+        for (char c : HTML_CHARS) {
+            int at = message.indexOf(c, 0, first);
+            if (at >= 0) {
+                first = at;
+            }
+        }
+        if (first == n) {
+            plain.incrementAndGet();
+            return message;
+        }
+        StringBuilder out = new StringBuilder(n + 32);
+        out.append(message, 0, first);
+        if (!hasMarkup) {
+            escapedOnly.incrementAndGet();
+            Html.appendEscaped(out, message, first, n);
+            return out.toString();
+        }
+        Markers markers = match(message, first);
+        // emit: text between markers escaped in bulk, markers as tags or as typed
+        int position = first;
+        for (int m = 0; m < markers.count; m++) {
+            Html.appendEscaped(out, message, position, markers.start[m]);
+            position = markers.start[m] + markers.length[m];
+            if (!markers.isTag[m]) {
+                Html.appendEscaped(out, message, markers.start[m], position);
+            } else if (markers.isOpening[m]) {
+                out.append(markers.type[m] == COLOR ? "<font color=" + markers.color[m] + ">"
+                        : "<" + TAGS[markers.type[m]] + ">");
+            } else {
+                out.append("</").append(TAGS[markers.type[m]]).append('>');
+            }
+        }
+        Html.appendEscaped(out, message, position, n);
+        return out.toString();
+    }
+
+    /**
+     * Finds the markers and pairs them up with a stack; a marker only closes
+     * the innermost open span and empty spans stay literal
+     *
+     * @param message
+     * @param from    first index that may hold a marker
+     * @return
+     */
+    private static Markers match(String message, int from) {
+        Markers markers = new Markers();
+        int[] open = new int[8];
+        int depth = 0;
+        int n = message.length();
+        int i = from;
+        while (i < n) {
+            char c = message.charAt(i);
+            int type = -1;
+            int length = 0;
+            String color = null;
+            boolean isClosing = false;
+            if (c == '*') {
+                type = i + 1 < n && message.charAt(i + 1) == '*' ? BOLD : ITALIC;
+                length = type == BOLD ? 2 : 1;
+            } else if (c == '_' && i + 1 < n && message.charAt(i + 1) == '_') {
+                type = UNDERLINE;
+                length = 2;
+            } else if (c == '[') {
+                int end = message.indexOf(']', i);
+                if (end > i + 1 && end - i <= 10) {
+                    isClosing = message.charAt(i + 1) == '/';
+                    String name = message.substring(i + (isClosing ? 2 : 1), end).toLowerCase();
+                    if (COLORS.contains(name)) {
+                        type = COLOR;
+                        color = name;
+                        length = end - i + 1;
+                    }
+                }
+            }
+            if (type < 0) {
+                i++;
+                continue;
+            }
+            int marker = markers.add(i, length, type, color);
+            i += length;
+            int top = depth > 0 ? open[depth - 1] : -1;
+            boolean closesTop = top >= 0 && markers.type[top] == type
+                    && (type != COLOR || markers.color[top].equals(color));
+            if (type == COLOR ? isClosing && closesTop : closesTop) {
+                depth--;
+                if (markers.start[top] + markers.length[top] < markers.start[marker]) {
+                    markers.isTag[top] = true;
+                    markers.isTag[marker] = true;
+                }
+            } else if (type == COLOR ? !isClosing : !isOpen(markers, open, depth, type)) {
+                if (depth == open.length) {
+                    open = Arrays.copyOf(open, depth * 2);
+                }
+                open[depth++] = marker;
+                markers.isOpening[marker] = true;
+            }
+            // otherwise it closes something that isn't the innermost span; stays literal
+        }
+        return markers;
+    }
+
+    private static boolean isOpen(Markers markers, int[] open, int depth, int type) {
+        for (int d = 0; d < depth; d++) {
+            if (markers.type[open[d]] == type) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param text
+     * @return the text with HTML special characters escaped
+     */
+    public static String escape(String text) {
+        return Html.escape(text);
+    }
+
+    public static String getStats() {
+        return String.format("MessageFormatter formatted[%s] plain[%s] escapedOnly[%s]", formatted.get(),
+                plain.get(), escapedOnly.get());
+    }
+
+    // the usual regex chain, for comparison in main()
+    private static final Pattern NAIVE_BOLD = Pattern.compile("\\*\\*(.+?)\\*\\*");
+    private static final Pattern NAIVE_ITALIC = Pattern.compile("\\*(.+?)\\*");
+    private static final Pattern NAIVE_UNDERLINE = Pattern.compile("__(.+?)__");
+    private static final Pattern NAIVE_COLOR = Pattern.compile("\\[(red|green|blue|orange|purple|gray)\\](.+?)\\[/\\1\\]");
+
+    private static String naive(String message) {
+        String html = message.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;")
+                .replace("\"", "&quot;").replace("'", "&#39;");
+        html = NAIVE_BOLD.matcher(html).replaceAll("<b>$1</b>");
+        html = NAIVE_ITALIC.matcher(html).replaceAll("<i>$1</i>");
+        html = NAIVE_UNDERLINE.matcher(html).replaceAll("<u>$1</u>");
+        return NAIVE_COLOR.matcher(html).replaceAll("<font color=$1>$2</font>");
+    }
+
+    /**
+     * Formatting throughput on long messages: plain, HTML-only and markup-heavy
+     * messages, compared against a chain of regex replacements
+     *
+     * @param args [messages] [length]
+     */
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int length = args.length > 1 ? Integer.parseInt(args[1]) : 1_500;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String[] words = { "nice", "shot", "my", "ships", "are", "gone", "gg", "round", "again", "close" };
+        String[] markup = { "**%s**", "*%s*", "__%s__", "[red]%s[/red]", "[blue]**%s**[/blue]" };
+        String[][] sets = new String[3][64];
+        for (int i = 0; i < 64; i++) {
+            StringBuilder plainText = new StringBuilder();
+            StringBuilder htmlText = new StringBuilder();
+            StringBuilder markupText = new StringBuilder();
+            while (plainText.length() < length) {
+                String word = words[random.nextInt(words.length)];
+                plainText.append(word).append(' ');
+                htmlText.append(random.nextInt(8) == 0 ? "<" + word + ">" : word).append(' ');
+                markupText.append(random.nextInt(4) == 0 ? String.format(markup[random.nextInt(markup.length)], word)
+                        : word).append(' ');
+            }
+            sets[0][i] = plainText.toString();
+            sets[1][i] = htmlText.toString();
+            sets[2][i] = markupText.toString();
+        }
+        String[] names = { "plain", "html", "markup" };
+        System.out.println(String.format("sample: %s", toHtml("**bold** *it* __u__ [red]r[/red] <x> *open ****")));
+        for (int set = 0; set < sets.length; set++) {
+            String[] messages = sets[set];
+            for (int warm = 0; warm < 20_000; warm++) {
+                toHtml(messages[warm % messages.length]);
+                naive(messages[warm % messages.length]);
+            }
+            long chars = 0; // consumed so the work isn't optimized away
+            long start = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                chars += toHtml(messages[i % messages.length]).length();
+            }
+            double seconds = (System.nanoTime() - start) / 1_000_000_000d;
+            long naiveStart = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                chars += naive(messages[i % messages.length]).length();
+            }
+            double naiveSeconds = (System.nanoTime() - naiveStart) / 1_000_000_000d;
+            System.out.println(String.format(
+                    "%-6s messages[%s] length[%s] perMessage[%.2fus] MB/s[%.0f] regexChain[%.2fus] speedup[%.1fx] (%s)",
+                    names[set], count, messages[0].length(), seconds * 1_000_000 / count,
+                    (double) count * messages[0].length() / seconds / 1_000_000, naiveSeconds * 1_000_000 / count,
+                    naiveSeconds / seconds, chars));
+        }
+        System.out.println(getStats());
+    }
+}
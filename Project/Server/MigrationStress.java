@@ -0,0 +1,165 @@
+package Project.Server;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+import Project.Common.LoggerUtil;
+import Project.Exceptions.DuplicateRoomException;
+import Project.Exceptions.RoomNotFoundException;
+
+/**
+ * Stress run for Server.migrate(): worker threads concurrently create, join,
+ * leave, bulk migrate and close Rooms with socketless ServerThreads (sends are
+ * no-ops while a ServerThread isn't running). A watchdog checks for deadlocks
+ * and at the end every client must be in exactly one open Room and no closed or
+ * orphaned GameRoom may still hold a game loop queue.
+ * <p>
+ * Usage: MigrationStress [threads] [clients] [seconds]
+ * </p>
+ */
+class MigrationStress {
+    private static final int ROOM_NAMES = 8;
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int clientCount = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        LoggerUtil.LoggerConfig config = new LoggerUtil.LoggerConfig();
+        config.setLogLocation("migration-stress.log");
+        config.setFileLogLevel(Level.WARNING);
+        config.setConsoleLogLevel(Level.SEVERE);
+        LoggerUtil.INSTANCE.setConfig(config);
+
+        Server server = Server.INSTANCE;
+        server.createRoom(Room.LOBBY);
+        List<ServerThread> clients = new ArrayList<>();
+        for (int i = 0; i < clientCount; i++) {
+            ServerThread client = new SocketlessClient("Stress" + i);
+            server.joinRoom(Room.LOBBY, client);
+            clients.add(client);
+        }
+
+        AtomicLong creates = new AtomicLong();
+        AtomicLong joins = new AtomicLong();
+        AtomicLong leaves = new AtomicLong();
+        AtomicLong bulkMoves = new AtomicLong();
+        AtomicLong closes = new AtomicLong();
+        AtomicLong misses = new AtomicLong();
+        long end = System.currentTimeMillis() + seconds * 1000L;
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    while (System.currentTimeMillis() < end) {
+                        String roomName = "stress" + random.nextInt(ROOM_NAMES);
+                        ServerThread client = clients.get(random.nextInt(clients.size()));
+                        try {
+                            switch (random.nextInt(5)) {
+                                case 0:
+                                    server.createRoom(roomName);
+                                    creates.incrementAndGet();
+                                    break;
+                                case 1:
+                                    server.joinRoom(roomName, client);
+                                    joins.incrementAndGet();
+                                    break;
+                                case 2:
+                                    server.joinRoom(Room.LOBBY, client);
+                                    leaves.incrementAndGet();
+                                    break;
+                                case 3:
+                                    List<ServerThread> group = new ArrayList<>();
+                                    for (int i = random.nextInt(20); i >= 0; i--) {
+                                        group.add(clients.get(random.nextInt(clients.size())));
+                                    }
+                                    server.migrate(group, roomName);
+                                    bulkMoves.incrementAndGet();
+                                    break;
+                                default:
+                                    Room room = server.getRoom(roomName);
+                                    if (room != null) {
+                                        room.close();
+                                        closes.incrementAndGet();
+                                    }
+                                    break;
+                            }
+                        } catch (DuplicateRoomException | RoomNotFoundException e) {
+                            misses.incrementAndGet();
+                        }
+                    }
+                } finally {
+                    done.countDown();
+                }
+            }, "MigrationStress-" + t).start();
+        }
+
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        while (!done.await(500, java.util.concurrent.TimeUnit.MILLISECONDS)) {
+            long[] deadlocked = threadBean.findDeadlockedThreads();
+            if (deadlocked != null) {
+                System.out.println(String.format("DEADLOCK between %s threads", deadlocked.length));
+                System.exit(1);
+            }
+        }
+
+        // every client must be in exactly one open Room
+        int problems = 0;
+        Set<Long> seen = new HashSet<>();
+        List<Room> openRooms = new ArrayList<>();
+        openRooms.add(server.getRoom(Room.LOBBY));
+        for (int i = 0; i < ROOM_NAMES; i++) {
+            Room room = server.getRoom("stress" + i);
+            if (room != null) {
+                openRooms.add(room);
+            }
+        }
+        for (Room room : openRooms) {
+            if (room.topics.size(TopicRouter.MEMBERS) != room.clientsInRoom.size()) {
+                problems++;
+                System.out.println(String.format("%s has %s subscribers for %s members", room.getName(),
+                        room.topics.size(TopicRouter.MEMBERS), room.clientsInRoom.size()));
+            }
+            for (long id : room.clientsInRoom.keySet()) {
+                if (!seen.add(id)) {
+                    problems++;
+                    System.out.println(String.format("Client %s is in more than one Room", id));
+                }
+            }
+        }
+        for (ServerThread client : clients) {
+            Room room = client.getCurrentRoom();
+            if (room == null || !room.isRunning() || !room.clientsInRoom.containsKey(client.getClientId())) {
+                problems++;
+                System.out.println(String.format("%s isn't in its current Room %s", client.getDisplayName(),
+                        room == null ? null : room.getName()));
+            }
+            if (room != null && !room.topics.isSubscribed(TopicRouter.MEMBERS, client.getClientId())) {
+                problems++;
+                System.out.println(String.format("%s isn't subscribed in %s", client.getDisplayName(),
+                        room.getName()));
+            }
+        }
+        // a create that lost a race must not leave a Room behind pinned to a game loop
+        int gameQueues = GameExecutor.INSTANCE.getRoomCount();
+        if (gameQueues != openRooms.size() - 1) {
+            problems++;
+            System.out.println(String.format("%s game loop queues for %s open GameRooms", gameQueues,
+                    openRooms.size() - 1));
+        }
+        System.out.println(String.format(
+                "creates[%s] joins[%s] leaves[%s] bulkMoves[%s] closes[%s] misses[%s] rooms[%s] placed[%s/%s] problems[%s]",
+                creates.get(), joins.get(), leaves.get(), bulkMoves.get(), closes.get(), misses.get(),
+                openRooms.size(), seen.size(), clients.size(), problems));
+        System.exit(problems == 0 ? 0 : 1);
+    }
+}
@@ -0,0 +1,189 @@
+package Project.Server;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputFilter;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import Project.Common.BatchPayload;
+import Project.Common.ConnectionPayload;
+import Project.Common.HistoryPayload;
+import Project.Common.Payload;
+import Project.Common.PayloadType;
+import Project.Common.PrivateMessagePayload;
+import Project.Common.RoomResultPayload;
+import Project.Common.RosterPayload;
+import Project.Common.TopicPayload;
+import Project.Exceptions.PayloadRejectedException;
+
+/**
+ * Bounds what a client can make the read thread decode.
+ * <p>
+ * Wraps the socket's InputStream to cap the bytes of a single frame and the
+ * bytes per second of the whole connection, and acts as the ObjectInputFilter
+ * that only lets Project.Common payload classes (plus the few JDK types they
+ * use) through with limited depth/references/array sizes. Violations fail fast
+ * with an IOException so the connection is dropped before anything large is
+ * allocated. After decoding, validate() enforces per-field string limits.
+ * </p>
+ */
+public class PayloadInputGuard extends FilterInputStream implements ObjectInputFilter {
+    public static final int MAX_FRAME_BYTES = 64 * 1024;
+    public static final int MAX_DEPTH = 8;
+    public static final int MAX_REFERENCES = 2_000;
+    public static final int MAX_ARRAY_LENGTH = MAX_FRAME_BYTES;
+    public static final int MAX_MESSAGE_LENGTH = 2_000;
+    public static final int MAX_NAME_LENGTH = 64;
+    public static final int BYTES_PER_SECOND = 32 * 1024;
+    public static final int BYTE_BURST = 256 * 1024;
+
+    private static final String COMMON_PACKAGE = "Project.Common.";
+    private static final Set<Class<?>> ALLOWED_JDK_CLASSES = Set.of(String.class, Enum.class,
+            java.util.ArrayList.class, Object[].class, byte[].class, Long.class, Integer.class, Number.class,
+            Boolean.class);
+
+    // rejection counters across all connections
+    private static final AtomicLong rejectedFrames = new AtomicLong();
+    private static final AtomicLong rejectedPayloads = new AtomicLong();
+
+    private final RateLimiter.TokenBucket byteBudget = new RateLimiter.TokenBucket(BYTE_BURST, BYTES_PER_SECOND);
+    private long frameBytes = 0;
+
+    public PayloadInputGuard(InputStream in) {
+        super(in);
+    }
+
+    /**
+     * Resets the per-frame byte count; call before each readObject()
+     */
+    public void beginFrame() {
+        frameBytes = 0;
+    }
+
+    private void count(int bytes) throws IOException {
+        if (bytes <= 0) {
+            return;
+        }
+        frameBytes += bytes;
+        if (frameBytes > MAX_FRAME_BYTES) {
+            rejectedFrames.incrementAndGet();
+            throw new IOException(String.format("Frame exceeded %s bytes", MAX_FRAME_BYTES));
+        }
+        if (!byteBudget.tryConsume(bytes)) {
+            rejectedFrames.incrementAndGet();
+            throw new IOException("Connection exceeded its byte budget");
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+            count(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        // never read more than the frame has left so an oversized frame can't be
+        // buffered in one go
+        int allowed = (int) Math.min(len, MAX_FRAME_BYTES - frameBytes + 1);
+        int count = super.read(b, off, Math.max(1, allowed));
+        count(count);
+        return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(Math.min(n, MAX_FRAME_BYTES - frameBytes + 1));
+        count((int) skipped);
+        return skipped;
+    }
+
+    @Override
+    public Status checkInput(FilterInfo info) {
+        if (info.depth() > MAX_DEPTH || info.references() > MAX_REFERENCES
+                || info.arrayLength() > MAX_ARRAY_LENGTH) {
+            rejectedFrames.incrementAndGet();
+            return Status.REJECTED;
+        }
+        Class<?> type = info.serialClass();
+        if (type == null) {
+            return Status.UNDECIDED; // limit-only callback, already checked above
+        }
+        if (ALLOWED_JDK_CLASSES.contains(type) || type.isPrimitive()) {
+            return Status.ALLOWED;
+        }
+        if (type.getName().startsWith(COMMON_PACKAGE)
+                && (Payload.class.isAssignableFrom(type) || type.isEnum())) {
+            return Status.ALLOWED;
+        }
+        rejectedFrames.incrementAndGet();
+        return Status.REJECTED;
+    }
+
+    /**
+     * Field level checks after the payload was decoded
+     * 
+     * @param payload
+     * @throws PayloadRejectedException
+     */
+    public void validate(Payload payload) throws PayloadRejectedException {
+        if (payload.getPayloadType() == null) {
+            reject("Missing payload type");
+        }
+        checkLength("message", payload.getMessage(), MAX_MESSAGE_LENGTH);
+        if (payload instanceof ConnectionPayload) {
+            checkLength("clientName", ((ConnectionPayload) payload).getClientName(), MAX_NAME_LENGTH);
+        }
+        if (payload instanceof PrivateMessagePayload) {
+            checkLength("targetName", ((PrivateMessagePayload) payload).getTargetName(), MAX_NAME_LENGTH);
+        }
+        PayloadType type = payload.getPayloadType();
+        boolean isTopicRequest = type == PayloadType.SUBSCRIBE || type == PayloadType.UNSUBSCRIBE;
+        if (isTopicRequest && !(payload instanceof TopicPayload)
+                || type == PayloadType.ROSTER_PAGE && !(payload instanceof RosterPayload)
+                || type == PayloadType.HISTORY && !(payload instanceof HistoryPayload)) {
+            reject(String.format("%s requires its payload subclass", type));
+        }
+        if (payload instanceof TopicPayload) {
+            checkLength("topic", ((TopicPayload) payload).getTopic(), MAX_NAME_LENGTH);
+        }
+        if (payload instanceof RosterPayload) {
+            RosterPayload rp = (RosterPayload) payload;
+            checkLength("query", rp.getQuery(), MAX_NAME_LENGTH);
+            if (rp.getOffset() < 0 || !rp.getEntries().isEmpty()) {
+                reject("Invalid roster page request");
+            }
+        }
+        if (payload instanceof HistoryPayload && !((HistoryPayload) payload).getEntries().isEmpty()) {
+            reject("Invalid history request");
+        }
+        if (payload instanceof BatchPayload || payload instanceof RoomResultPayload) {
+            // server-to-client only
+            reject(String.format("%s isn't accepted from clients", payload.getPayloadType()));
+        }
+    }
+
+    private void checkLength(String field, String value, int max) throws PayloadRejectedException {
+        if (value != null && value.length() > max) {
+            reject(String.format("%s exceeds %s characters", field, max));
+        }
+    }
+
+    private void reject(String reason) throws PayloadRejectedException {
+        rejectedPayloads.incrementAndGet();
+        throw new PayloadRejectedException(reason);
+    }
+
+    public static long getRejectedFrames() {
+        return rejectedFrames.get();
+    }
+
+    public static long getRejectedPayloads() {
+        return rejectedPayloads.get();
+    }
+}
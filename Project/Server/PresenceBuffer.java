@@ -0,0 +1,310 @@
+package Project.Server;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import Project.Common.Constants;
+import Project.Common.LoggerUtil;
+import Project.Common.PresencePayload;
+import Project.Common.RosterPayload.RosterEntry;
+
+/**
+ * Coalesces the joins/leaves of a Room.
+ * <p>
+ * Instead of every membership change being sent to every member (O(N) each,
+ * O(N²) for a burst of N joins), changes are buffered for a short window and
+ * each member then receives a single PresencePayload plus one summary message.
+ * Only the last change per client within the window is kept. The clients
+ * joining/leaving are notified directly by the Room, so the window only
+ * delays what everyone else sees.
+ * </p>
+ * <p>
+ * Members viewing a paged roster (see Room#sendRosterPage) only receive the
+ * changes of the members they were sent plus the new member count.
+ * </p>
+ */
+public class PresenceBuffer {
+    public static final long DEFAULT_WINDOW_MS = 250;
+    private static final int MAX_NAMES = 3; // names listed in a summary before "and N others"
+
+    // one timer thread shared by every Room
+    private static final Timer flushTimer = new Timer("PresenceFlush", true);
+
+    // metrics (shared across Rooms)
+    private static final AtomicLong events = new AtomicLong(); // queued changes
+    private static final AtomicLong coalesced = new AtomicLong(); // changes replaced within a window
+    private static final AtomicLong flushes = new AtomicLong();
+    private static final AtomicLong framesSent = new AtomicLong(); // one per recipient per flush
+    private static final AtomicLong uncoalescedSends = new AtomicLong(); // what per-change relaying would have sent
+
+    /**
+     * Last change of a client within the window; entry is null for a leave
+     */
+    private record Change(RosterEntry entry, String displayName, boolean disconnected) {
+    }
+
+    private final Room room;
+    private long windowMs = DEFAULT_WINDOW_MS;
+    // guarded by this
+    private Map<Long, Change> pending = new LinkedHashMap<>();
+    private int pendingEvents = 0;
+    private boolean isScheduled = false;
+    private boolean isClosed = false;
+
+    public PresenceBuffer(Room room) {
+        this.room = room;
+    }
+
+    /**
+     * @param windowMs how long changes are collected before being sent
+     */
+    public synchronized void setWindow(long windowMs) {
+        if (windowMs <= 0) {
+            throw new IllegalArgumentException("Window must be positive");
+        }
+        this.windowMs = windowMs;
+    }
+
+    public long getWindow() {
+        return windowMs;
+    }
+
+    public synchronized void queueJoin(RosterEntry entry) {
+        queue(entry.getClientId(),
+                new Change(entry, String.format("%s#%s", entry.getClientName(), entry.getClientId()), false));
+    }
+
+    public synchronized void queueLeave(ServerThread client, boolean disconnected) {
+        queue(client.getClientId(), new Change(null, client.getDisplayName(), disconnected));
+    }
+
+    private void queue(long clientId, Change change) {
+        if (isClosed) {
+            return;
+        }
+        events.incrementAndGet();
+        pendingEvents++;
+        // a leave after a join (or the reverse) replaces it; members that got the
+        // join via a roster in the meantime still receive the final state
+        if (pending.remove(clientId) != null) {
+            coalesced.incrementAndGet();
+        }
+        pending.put(clientId, change);
+        if (!isScheduled) {
+            isScheduled = true;
+            flushTimer.schedule(new TimerTask() {
+                @Override
+                public void run() {
+                    try {
+                        flush();
+                    } catch (Exception e) {
+                        // an exception would kill the shared timer thread
+                        LoggerUtil.INSTANCE.severe("Presence flush failed", e);
+                    }
+                }
+            }, windowMs);
+        }
+    }
+
+    /**
+     * Drops anything pending (i.e., the Room closed)
+     */
+    public synchronized void close() {
+        isClosed = true;
+        pending.clear();
+        pendingEvents = 0;
+    }
+
+    /**
+     * Sends the window's changes to every member as one frame each; the pending
+     * changes are swapped out under the lock and sent outside of it
+     */
+    protected void flush() {
+        Map<Long, Change> changes;
+        int eventCount;
+        synchronized (this) {
+            isScheduled = false;
+            if (pending.isEmpty()) {
+                return;
+            }
+            changes = pending;
+            eventCount = pendingEvents;
+            pending = new LinkedHashMap<>();
+            pendingEvents = 0;
+        }
+        int memberCount = room.clientsInRoom.size();
+        PresencePayload payload = build(changes, memberCount);
+        // shared by every windowed recipient none of the changes were visible to
+        PresencePayload countOnly = build(Map.of(), memberCount);
+        String summary = summarize(changes, Constants.DEFAULT_CLIENT_ID);
+        List<ServerThread> recipients = new ArrayList<>(room.clientsInRoom.values());
+        flushes.incrementAndGet();
+        uncoalescedSends.addAndGet(2L * eventCount * recipients.size()); // SYNC info + text per change
+        for (ServerThread recipient : recipients) {
+            Set<Long> window = room.rosterWindows.get(recipient.getClientId());
+            PresencePayload recipientPayload = payload;
+            String message;
+            if (window != null) {
+                Map<Long, Change> visible = visibleChanges(changes, window);
+                recipientPayload = visible.isEmpty() ? countOnly : build(visible, memberCount);
+                message = summarize(visible, recipient.getClientId());
+            } else if (changes.containsKey(recipient.getClientId())) {
+                // the changed clients already got their own update directly
+                message = summarize(changes, recipient.getClientId());
+                if (message == null) {
+                    continue; // nothing but their own change
+                }
+            } else {
+                message = summary;
+            }
+            recipient.beginBatch();
+            boolean sent = recipient.sendPresence(recipientPayload);
+            if (message != null) {
+                sent &= recipient.sendMessage(Constants.DEFAULT_CLIENT_ID, message);
+            }
+            sent &= recipient.endBatch();
+            framesSent.incrementAndGet();
+            if (!sent) {
+                // the owning Room cleans up the connection via the read thread
+                LoggerUtil.INSTANCE.warning(
+                        String.format("Failed to send presence to %s", recipient.getDisplayName()));
+            }
+        }
+    }
+
+    private PresencePayload build(Map<Long, Change> changes, int memberCount) {
+        PresencePayload pp = new PresencePayload();
+        pp.setMessage(room.getName());
+        pp.setMemberCount(memberCount);
+        changes.forEach((id, change) -> {
+            if (change.entry() != null) {
+                pp.getJoined().add(change.entry());
+            } else {
+                pp.getLeft().add(id);
+            }
+        });
+        return pp;
+    }
+
+    /**
+     * Narrows the changes to a paged roster's window; members that left are
+     * dropped from the window
+     * 
+     * @param changes
+     * @param window
+     * @return the changes of members in the window
+     */
+    private static Map<Long, Change> visibleChanges(Map<Long, Change> changes, Set<Long> window) {
+        Map<Long, Change> visible = new LinkedHashMap<>();
+        // walk the smaller side; a page is usually much smaller than a burst
+        if (window.size() < changes.size()) {
+            for (Long id : window) {
+                Change change = changes.get(id);
+                if (change != null) {
+                    visible.put(id, change);
+                }
+            }
+        } else {
+            changes.forEach((id, change) -> {
+                if (window.contains(id)) {
+                    visible.put(id, change);
+                }
+            });
+        }
+        visible.forEach((id, change) -> {
+            if (change.entry() == null) {
+                window.remove(id);
+            }
+        });
+        return visible;
+    }
+
+    /**
+     * @param changes
+     * @param skipId  client to leave out of the summary (their own change)
+     * @return e.g., "a#1, b#2 joined the room; c#3 left the room" or null if
+     *         there's nothing to report
+     */
+    private static String summarize(Map<Long, Change> changes, long skipId) {
+        List<String> joined = new ArrayList<>();
+        List<String> left = new ArrayList<>();
+        List<String> disconnected = new ArrayList<>();
+        changes.forEach((id, change) -> {
+            if (id == skipId) {
+                return;
+            }
+            if (change.entry() != null) {
+                joined.add(change.displayName());
+            } else if (change.disconnected()) {
+                disconnected.add(change.displayName());
+            } else {
+                left.add(change.displayName());
+            }
+        });
+        List<String> parts = new ArrayList<>();
+        if (!joined.isEmpty()) {
+            parts.add(describe(joined) + " joined the room");
+        }
+        if (!left.isEmpty()) {
+            parts.add(describe(left) + " left the room");
+        }
+        if (!disconnected.isEmpty()) {
+            parts.add(describe(disconnected) + " disconnected");
+        }
+        return parts.isEmpty() ? null : String.join("; ", parts);
+    }
+
+    /**
+     * @param names
+     * @return display names (escaped for the HTML summary), shortened when many
+     *         clients changed at once
+     */
+    private static String describe(List<String> names) {
+        String listed = names.stream().limit(MAX_NAMES).map(MessageFormatter::escape)
+                .collect(Collectors.joining(", "));
+        return names.size() > MAX_NAMES ? String.format("%s and %s others", listed, names.size() - MAX_NAMES)
+                : listed;
+    }
+
+    public static long getEventCount() {
+        return events.get();
+    }
+
+    public static long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    public static long getFlushCount() {
+        return flushes.get();
+    }
+
+    /**
+     * @return average membership changes delivered per flush
+     */
+    public static double getCoalescingRatio() {
+        long flushCount = flushes.get();
+        return flushCount == 0 ? 0 : (double) events.get() / flushCount;
+    }
+
+    /**
+     * @return sends per-change relaying would have needed per frame actually sent
+     */
+    public static double getSendReduction() {
+        long frames = framesSent.get();
+        return frames == 0 ? 0 : (double) uncoalescedSends.get() / frames;
+    }
+
+    public static String getStats() {
+        return String.format(
+                "Presence events[%s] coalesced[%s] flushes[%s] ratio[%.1f] frames[%s] uncoalescedSends[%s] reduction[%.1fx]",
+                events.get(), coalesced.get(), flushes.get(), getCoalescingRatio(), framesSent.get(),
+                uncoalescedSends.get(), getSendReduction());
+    }
+}
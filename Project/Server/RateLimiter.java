@@ -0,0 +1,277 @@
+package Project.Server;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import Project.Common.PayloadType;
+
+/**
+ * Per-client token bucket rate limiting of inbound payloads.
+ * <p>
+ * Each connection owns one RateLimiter (one overall bucket plus one bucket per
+ * configured PayloadType). It's only used from the connection's read thread so
+ * the buckets don't need locking. The counters are static and shared so they
+ * can be polled for monitoring.
+ * </p>
+ */
+public class RateLimiter {
+
+    /**
+     * What happens to a payload that exceeded its limit
+     */
+    public enum Action {
+        ALLOW, // within limits
+        THROTTLE, // drop the payload but keep the connection
+        DISCONNECT // drop the connection
+    }
+
+    /**
+     * Simple token bucket; tokens refill continuously up to capacity
+     */
+    public static class TokenBucket {
+        private final double capacity;
+        private final double refillPerNano;
+        private double tokens;
+        private long lastRefill;
+
+        public TokenBucket(double capacity, double refillPerSecond) {
+            this.capacity = capacity;
+            this.refillPerNano = refillPerSecond / 1_000_000_000d;
+            this.tokens = capacity;
+            this.lastRefill = System.nanoTime();
+        }
+
+        public boolean tryConsume() {
+            return tryConsume(1);
+        }
+
+        /**
+         * @param amount tokens to take (i.e., bytes for a byte budget)
+         * @return true if there were enough tokens
+         */
+        public boolean tryConsume(double amount) {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * refillPerNano);
+            lastRefill = now;
+            if (tokens >= amount) {
+                tokens -= amount;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Limits for a bucket
+     */
+    public static class Limit {
+        private final int burst;
+        private final double perSecond;
+
+        public Limit(int burst, double perSecond) {
+            if (burst < 1 || perSecond <= 0) {
+                throw new IllegalArgumentException("Limits must be positive");
+            }
+            this.burst = burst;
+            this.perSecond = perSecond;
+        }
+
+        public int getBurst() {
+            return burst;
+        }
+
+        public double getPerSecond() {
+            return perSecond;
+        }
+    }
+
+    /**
+     * Server-wide configuration applied to new connections
+     */
+    public static class RateLimitConfig {
+        private Limit overallLimit = new Limit(30, 15);
+        private final EnumMap<PayloadType, Limit> payloadLimits = new EnumMap<>(PayloadType.class);
+        private Action violationAction = Action.THROTTLE;
+        private int maxViolations = 100; // consecutive throttles before escalating to a disconnect
+
+        public RateLimitConfig() {
+            // defaults for payloads that fan out or scan on the server
+            payloadLimits.put(PayloadType.MESSAGE, new Limit(5, 2));
+            payloadLimits.put(PayloadType.REVERSE, new Limit(5, 2));
+            payloadLimits.put(PayloadType.ROOM_LIST, new Limit(3, 0.5));
+            payloadLimits.put(PayloadType.ROSTER_PAGE, new Limit(5, 2));
+            payloadLimits.put(PayloadType.HISTORY, new Limit(5, 1));
+            payloadLimits.put(PayloadType.SUBSCRIBE, new Limit(5, 1));
+            payloadLimits.put(PayloadType.UNSUBSCRIBE, new Limit(5, 1));
+            payloadLimits.put(PayloadType.ROOM_CREATE, new Limit(2, 0.2));
+            payloadLimits.put(PayloadType.ROOM_JOIN, new Limit(3, 1));
+            payloadLimits.put(PayloadType.ROOM_LEAVE, new Limit(3, 1));
+            payloadLimits.put(PayloadType.READY, new Limit(3, 1));
+            payloadLimits.put(PayloadType.PLACE, new Limit(10, 5));
+            payloadLimits.put(PayloadType.ATTACK, new Limit(5, 2));
+            payloadLimits.put(PayloadType.ATTACK_MODE, new Limit(3, 1));
+            payloadLimits.put(PayloadType.ADD_BOT, new Limit(2, 0.2));
+        }
+
+        public Limit getOverallLimit() {
+            return overallLimit;
+        }
+
+        public void setOverallLimit(Limit overallLimit) {
+            this.overallLimit = overallLimit;
+        }
+
+        public Limit getLimit(PayloadType payloadType) {
+            return payloadLimits.get(payloadType);
+        }
+
+        /**
+         * @param payloadType
+         * @param limit       null to remove the type specific limit
+         */
+        public void setLimit(PayloadType payloadType, Limit limit) {
+            if (limit == null) {
+                payloadLimits.remove(payloadType);
+            } else {
+                payloadLimits.put(payloadType, limit);
+            }
+        }
+
+        public Action getViolationAction() {
+            return violationAction;
+        }
+
+        /**
+         * @param violationAction THROTTLE or DISCONNECT
+         */
+        public void setViolationAction(Action violationAction) {
+            if (violationAction == Action.ALLOW) {
+                throw new IllegalArgumentException("Violation action can't be ALLOW");
+            }
+            this.violationAction = violationAction;
+        }
+
+        public int getMaxViolations() {
+            return maxViolations;
+        }
+
+        public void setMaxViolations(int maxViolations) {
+            this.maxViolations = maxViolations;
+        }
+    }
+
+    private static volatile RateLimitConfig config = new RateLimitConfig();
+
+    // monitoring counters (shared across connections)
+    private static final AtomicLong allowed = new AtomicLong();
+    private static final AtomicLong throttled = new AtomicLong();
+    private static final AtomicLong disconnected = new AtomicLong();
+    private static final AtomicLongArray throttledByType = new AtomicLongArray(PayloadType.values().length);
+
+    private final RateLimitConfig activeConfig;
+    private final TokenBucket overall;
+    private final EnumMap<PayloadType, TokenBucket> buckets = new EnumMap<>(PayloadType.class);
+    private int consecutiveViolations = 0;
+
+    public RateLimiter() {
+        activeConfig = config;
+        Limit limit = activeConfig.getOverallLimit();
+        overall = new TokenBucket(limit.getBurst(), limit.getPerSecond());
+    }
+
+    /**
+     * Replaces the configuration used by connections created afterwards
+     *
+     * @param newConfig
+     */
+    public static void setConfig(RateLimitConfig newConfig) {
+        if (newConfig == null) {
+            throw new NullPointerException("Config can't be null");
+        }
+        config = newConfig;
+    }
+
+    public static RateLimitConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Consumes a token for the payload type
+     *
+     * @param payloadType
+     * @return ALLOW or the configured action for a violation
+     */
+    public Action check(PayloadType payloadType) {
+        boolean ok = overall.tryConsume();
+        if (ok && payloadType != null) {
+            Limit limit = activeConfig.getLimit(payloadType);
+            if (limit != null) {
+                ok = buckets.computeIfAbsent(payloadType,
+                        k -> new TokenBucket(limit.getBurst(), limit.getPerSecond())).tryConsume();
+            }
+        }
+        if (ok) {
+            consecutiveViolations = 0;
+            allowed.incrementAndGet();
+            return Action.ALLOW;
+        }
+        consecutiveViolations++;
+        if (payloadType != null) {
+            throttledByType.incrementAndGet(payloadType.ordinal());
+        }
+        if (activeConfig.getViolationAction() == Action.DISCONNECT
+                || consecutiveViolations > activeConfig.getMaxViolations()) {
+            disconnected.incrementAndGet();
+            return Action.DISCONNECT;
+        }
+        throttled.incrementAndGet();
+        return Action.THROTTLE;
+    }
+
+    /**
+     * Used to only notify a client on the first of a run of throttled payloads
+     *
+     * @return true if the last check was the first violation in a row
+     */
+    public boolean isFirstViolation() {
+        return consecutiveViolations == 1;
+    }
+
+    public static long getAllowedCount() {
+        return allowed.get();
+    }
+
+    public static long getThrottledCount() {
+        return throttled.get();
+    }
+
+    public static long getDisconnectCount() {
+        return disconnected.get();
+    }
+
+    public static long getThrottledCount(PayloadType payloadType) {
+        return throttledByType.get(payloadType.ordinal());
+    }
+
+    /**
+     * @return throttled counts of each PayloadType that has been throttled at least
+     *         once
+     */
+    public static Map<PayloadType, Long> getThrottledByType() {
+        EnumMap<PayloadType, Long> result = new EnumMap<>(PayloadType.class);
+        for (PayloadType type : PayloadType.values()) {
+            long count = throttledByType.get(type.ordinal());
+            if (count > 0) {
+                result.put(type, count);
+            }
+        }
+        return result;
+    }
+
+    public static String getStats() {
+        return String.format("RateLimiter allowed[%s] throttled[%s] disconnected[%s] byType%s", getAllowedCount(),
+                getThrottledCount(), getDisconnectCount(), getThrottledByType());
+    }
+}
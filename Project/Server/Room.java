@@ -1,9 +1,21 @@
 package Project.Server;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import Project.Common.Constants;
+import Project.Common.HistoryPayload;
 import Project.Common.LoggerUtil;
+import Project.Common.Payload;
+import Project.Common.Phase;
+import Project.Common.PresencePayload;
+import Project.Common.RosterPayload;
+import Project.Common.RosterPayload.RosterEntry;
 import Project.Common.RoomAction;
 import Project.Common.TextFX;
 import Project.Common.TextFX.Color;
@@ -11,11 +23,20 @@ import Project.Exceptions.DuplicateRoomException;
 import Project.Exceptions.RoomNotFoundException;
 
 public class Room implements AutoCloseable {
+    private static final AtomicLong nextRoomId = new AtomicLong(0);
     private final String name;// unique name of the Room
+    private final long roomId = nextRoomId.incrementAndGet();
     private volatile boolean isRunning = false;
     protected final ConcurrentHashMap<Long, ServerThread> clientsInRoom = new ConcurrentHashMap<Long, ServerThread>();
+    protected final PresenceBuffer presence = new PresenceBuffer(this); // coalesced joins/leaves
+    protected final TopicRouter topics = new TopicRouter(); // every fan-out goes through a topic
+    protected final ChatHistory history; // recent chat replayed to joiners
+    // members viewing a paged roster -> ids they've been sent (their interest window)
+    protected final ConcurrentHashMap<Long, Set<Long>> rosterWindows = new ConcurrentHashMap<>();
 
     public final static String LOBBY = "lobby";
+    private final static int MAX_CLOSE_ATTEMPTS = 5;
+    public final static int ROSTER_PAGE_THRESHOLD = 200; // members before joiners get a paged roster
 
     private void info(String message) {
         LoggerUtil.INSTANCE.info(TextFX.colorize(String.format("Room[%s]: %s", name, message), Color.PURPLE));
@@ -23,6 +44,7 @@ public class Room implements AutoCloseable {
 
     public Room(String name) {
         this.name = name;
+        history = new ChatHistory(name);
         isRunning = true;
         info("Created");
     }
@@ -31,85 +53,224 @@ public class Room implements AutoCloseable {
         return this.name;
     }
 
+    /**
+     * @return the game phase shown in the Room directory (null without a game)
+     */
+    public Phase getPhase() {
+        return null;
+    }
+
     protected boolean isRunning() {
         return isRunning;
     }
 
-    protected synchronized void addClient(ServerThread client) {
+    /**
+     * Unique, increasing id; Rooms are always locked in this order when several
+     * are involved (see Server.migrate())
+     */
+    protected long getRoomId() {
+        return roomId;
+    }
+
+    protected void addClient(ServerThread client) {
+        addClients(List.of(client));
+    }
+
+    /**
+     * Adds several clients at once. Every member receives the whole change as a
+     * single batched update instead of one broadcast per client.
+     * 
+     * @param clients
+     * @return the clients that were actually added
+     */
+    protected synchronized List<ServerThread> addClients(Collection<ServerThread> clients) {
+        List<ServerThread> added = new ArrayList<>();
         if (!isRunning) { // block action if Room isn't running
-            return;
+            return added;
         }
-        if (clientsInRoom.containsKey(client.getClientId())) {
-            info("Attempting to add a client that already exists in the room");
-            return;
+        for (ServerThread client : clients) {
+            if (clientsInRoom.putIfAbsent(client.getClientId(), client) != null) {
+                info("Attempting to add a client that already exists in the room");
+                continue;
+            }
+            client.setCurrentRoom(this);
+            TopicRouter.DEFAULT_TOPICS.forEach(topic -> topics.subscribe(client, topic));
+            added.add(client);
         }
-        clientsInRoom.put(client.getClientId(), client);
-        client.setCurrentRoom(this);
-        client.sendResetUserList();
-        syncExistingClients(client);
-        // notify clients of someone joining
-        joinStatusRelay(client, true);
+        if (added.isEmpty()) {
+            return added;
+        }
+        RoomDirectory.INSTANCE.roomChanged(this);
+        boolean isPaged = isRosterPaged();
+        if (isPaged) {
+            // members that got the full list before the Room grew past the threshold
+            // switch to a page once
+            clientsInRoom.values().stream()
+                    .filter(member -> !added.contains(member) && !rosterWindows.containsKey(member.getClientId()))
+                    .forEach(member -> sendRosterPage(member, 0, null));
+        }
+        added.forEach(ServerThread::beginBatch);
+        try {
+            // one snapshot of every member (joiners included) shared by all joiners
+            List<RosterEntry> roster = isPaged ? null : new ArrayList<>(clientsInRoom.size());
+            // likewise one replay of the recent chat; it's only queued on the joiners'
+            // batches here and written once the Room locks are released
+            HistoryPayload replay = history.getReplay();
+            if (!isPaged) {
+                clientsInRoom.values().forEach(member -> roster.add(buildRosterEntry(member)));
+            }
+            for (ServerThread client : added) {
+                client.sendResetUserList();
+                if (isPaged) {
+                    sendRosterPage(client, 0, null);
+                } else {
+                    syncExistingClients(client, roster);
+                }
+                // the joining client is told right away, everyone else with the next
+                // presence flush
+                ownStatusRelay(client, true);
+                if (!replay.getEntries().isEmpty() && !client.isMuted(TopicRouter.CHAT)) {
+                    client.sendHistory(replay);
+                }
+                presence.queueJoin(buildRosterEntry(client));
+            }
+        } finally {
+            added.forEach(ServerThread::endBatch);
+        }
+        return added;
+    }
 
+    protected void removeClient(ServerThread client) {
+        removeClients(List.of(client));
     }
 
-    protected synchronized void removeClient(ServerThread client) {
+    /**
+     * Removes several clients at once with a single batched update per member
+     * 
+     * @param clients
+     * @return the clients that were actually removed
+     */
+    protected synchronized List<ServerThread> removeClients(Collection<ServerThread> clients) {
+        List<ServerThread> removed = new ArrayList<>();
         if (!isRunning) { // block action if Room isn't running
-            return;
+            return removed;
         }
-        if (!clientsInRoom.containsKey(client.getClientId())) {
-            info("Attempting to remove a client that doesn't exist in the room");
-            return;
+        for (ServerThread client : clients) {
+            ServerThread removedClient = clientsInRoom.get(client.getClientId());
+            if (removedClient == null) {
+                info("Attempting to remove a client that doesn't exist in the room");
+                continue;
+            }
+            removed.add(removedClient);
         }
-        ServerThread removedClient = clientsInRoom.get(client.getClientId());
-        if (removedClient != null) {
-            // notify clients of someone joining
-            joinStatusRelay(removedClient, false);
+        if (removed.isEmpty()) {
+            return removed;
+        }
+        RoomDirectory.INSTANCE.roomChanged(this);
+        for (ServerThread client : removed) {
             clientsInRoom.remove(client.getClientId());
-            autoCleanup();
+            rosterWindows.remove(client.getClientId());
+            topics.removeClient(client);
+            ownStatusRelay(client, false);
+            presence.queueLeave(client, false);
         }
+        autoCleanup();
+        return removed;
     }
 
-    private void syncExistingClients(ServerThread incomingClient) {
-        clientsInRoom.values().forEach(serverThread -> {
-            if (serverThread.getClientId() != incomingClient.getClientId()) {
-                boolean failedToSync = !incomingClient.sendClientInfo(serverThread.getClientId(),
-                        serverThread.getClientName(), getName(), RoomAction.JOIN, true);
-                if (failedToSync) {
-                    LoggerUtil.INSTANCE.warning(
-                            String.format("Removing disconnected %s from list", serverThread.getDisplayName()));
-                    disconnect(serverThread);
-                }
-            }
-        });
+    /**
+     * Silently syncs the current members to a new client as a single roster
+     * payload
+     * 
+     * @param incomingClient
+     * @param roster
+     */
+    private void syncExistingClients(ServerThread incomingClient, List<RosterEntry> roster) {
+        boolean failedToSync = !incomingClient.sendRoster(roster, clientsInRoom.size());
+        if (failedToSync) {
+            LoggerUtil.INSTANCE.warning(
+                    String.format("Removing disconnected %s from list", incomingClient.getDisplayName()));
+            disconnect(incomingClient);
+        }
     }
 
-    private void joinStatusRelay(ServerThread client, boolean didJoin) {
-        clientsInRoom.values().removeIf(serverThread -> {
-            String formattedMessage = String.format("%s %s the room",
-
-                    client.getClientId() == serverThread.getClientId() ? "You"
-                            : client.getDisplayName(),
-                    didJoin ? "joined" : "left");
-            // final long senderId = client == null ? Constants.DEFAULT_CLIENT_ID :
-            // client.getClientId();
-            // Share info of the client joining or leaving the room
-            boolean failedToSync = !serverThread.sendClientInfo(
-                    client.getClientId(),
-                    client.getClientName(),
-                    getName(),
-                    didJoin ? RoomAction.JOIN : RoomAction.LEAVE);
-            // Send the server generated message to the current client
-            // fixed the sender as it was incorrectly showing to be from a user
-            // Example 2: Server-side generated join/leave message (this was from Milestone
-            // 2)
-            boolean failedToSend = !serverThread.sendMessage(Constants.DEFAULT_CLIENT_ID, formattedMessage);
-            if (failedToSend || failedToSync) {
-                LoggerUtil.INSTANCE.warning(
-                        String.format("Removing disconnected %s from list", serverThread.getDisplayName()));
-                disconnect(serverThread);
+    /**
+     * @return true if the Room is too large to sync every member to everyone
+     */
+    public boolean isRosterPaged() {
+        return clientsInRoom.size() > ROSTER_PAGE_THRESHOLD;
+    }
+
+    /**
+     * Sends a page of members (ordered by id, i.e., join order) and makes it the
+     * client's interest window; presence changes outside of it are only counted
+     * 
+     * @param client
+     * @param offset index of the first match to send
+     * @param query  case-insensitive part of a name or null for everyone
+     */
+    protected void sendRosterPage(ServerThread client, int offset, String query) {
+        String needle = query == null || query.isBlank() ? null : query.trim().toLowerCase();
+        List<ServerThread> matches = new ArrayList<>();
+        for (ServerThread member : clientsInRoom.values()) {
+            if (needle == null || member.getClientName().toLowerCase().contains(needle)) {
+                matches.add(member);
             }
-            return failedToSend;
-        });
+        }
+        matches.sort(Comparator.comparingLong(ServerThread::getClientId));
+        int start = Math.max(0, Math.min(offset, matches.size()));
+        int end = Math.min(matches.size(), start + Constants.ROSTER_PAGE_SIZE);
+        List<RosterEntry> entries = new ArrayList<>(end - start);
+        Set<Long> window = ConcurrentHashMap.newKeySet();
+        for (ServerThread member : matches.subList(start, end)) {
+            entries.add(buildRosterEntry(member));
+            window.add(member.getClientId());
+        }
+        rosterWindows.put(client.getClientId(), window);
+        RosterPayload rp = new RosterPayload();
+        rp.setPaged(true);
+        rp.setEntries(entries);
+        rp.setOffset(start);
+        rp.setQuery(needle);
+        rp.setMatchCount(matches.size());
+        rp.setMemberCount(clientsInRoom.size());
+        if (!client.sendRoster(rp)) {
+            LoggerUtil.INSTANCE.warning(
+                    String.format("Failed to send roster page to %s", client.getDisplayName()));
+        }
+    }
+
+    /**
+     * The state of a member included in the roster sent to joining clients;
+     * subclasses add their own state (ready, turn, points)
+     * 
+     * @param client
+     * @return
+     */
+    protected RosterEntry buildRosterEntry(ServerThread client) {
+        return new RosterEntry(client.getClientId(), client.getClientName());
+    }
+
+    /**
+     * Tells a joining/leaving client about its own change
+     * 
+     * @param client
+     * @param didJoin
+     */
+    private void ownStatusRelay(ServerThread client, boolean didJoin) {
+        boolean failedToSync = !client.sendClientInfo(
+                client.getClientId(),
+                client.getClientName(),
+                getName(),
+                didJoin ? RoomAction.JOIN : RoomAction.LEAVE);
+        // Send the server generated message to the current client
+        boolean failedToSend = !client.sendMessage(Constants.DEFAULT_CLIENT_ID,
+                String.format("You %s the room", didJoin ? "joined" : "left"));
+        if (didJoin && (failedToSend || failedToSync)) {
+            LoggerUtil.INSTANCE.warning(
+                    String.format("Removing disconnected %s from list", client.getDisplayName()));
+            disconnect(client);
+        }
     }
 
     /**
@@ -117,15 +278,15 @@ public class Room implements AutoCloseable {
      * Internally calls processCommand and evaluates as necessary.
      * Note: Clients that fail to receive a message get removed from
      * connectedClients.
-     * Adding the synchronized keyword ensures that only one thread can execute
-     * these methods at a time,
-     * preventing concurrent modification issues and ensuring thread safety
+     * Doesn't take the Room lock: the fan-out writes to sockets and runs on game
+     * loops and read threads, so a slow recipient mustn't hold up joins or other
+     * Rooms. The subscribers come from the topic's own snapshot.
      * 
      * @param message
      * @param sender  ServerThread (client) sending the message or null if it's a
      *                server-generated message
      */
-    protected synchronized void relay(ServerThread sender, String message) {
+    protected void relay(ServerThread sender, String message) {
         if (!isRunning) { // block action if Room isn't running
             return;
         }
@@ -135,25 +296,46 @@ public class Room implements AutoCloseable {
                 : sender.getDisplayName();
         final long senderId = sender == null ? Constants.DEFAULT_CLIENT_ID : sender.getClientId();
         // Note: formattedMessage must be final (or effectively final) since outside
-        // scope can't be changed inside a callback function (see removeIf() below)
-        // final String formattedMessage = String.format("%s: %s", senderString,
-        // message);
-        final String formattedMessage = String.format("%s", message);
-        // loop over clients and send out the message; remove client if message failed
-        // to be sent
-        // Note: this uses a lambda expression for each item in the values() collection,
-        // it's one way we can safely remove items during iteration
+        // scope can't be changed inside a callback function (see publish() below)
+        // chat markup is rendered to HTML once here instead of by every recipient;
+        // server messages are sent as is
+        final String formattedMessage = sender == null ? message : MessageFormatter.toHtml(message);
+        // send out the message to the topic's subscribers; clients the message failed
+        // to be sent to are disconnected afterwards
         info(String.format("sending message to %s recipients: %s", clientsInRoom.size(), formattedMessage));
+        if (sender != null) {
+            history.append(senderId, senderString, formattedMessage);
+        }
+        // one payload shared by every recipient
+        final Payload payload = ServerThread.buildMessage(senderId, formattedMessage);
 
-        clientsInRoom.values().removeIf(serverThread -> {
-            boolean failedToSend = !serverThread.sendMessage(senderId, formattedMessage);
-            if (failedToSend) {
-                LoggerUtil.INSTANCE.warning(
-                        String.format("Removing disconnected %s from list", serverThread.getDisplayName()));
-                disconnect(serverThread);
+        // members viewing a paged roster may not know the sender yet
+        final PresencePayload senderSync = sender == null || rosterWindows.isEmpty() ? null
+                : new PresencePayload();
+        if (senderSync != null) {
+            senderSync.setMessage(getName());
+            senderSync.setMemberCount(clientsInRoom.size());
+            senderSync.getJoined().add(buildRosterEntry(sender));
+        }
+        // server messages reach everyone, chat only those who didn't mute it
+        topics.publish(sender == null ? TopicRouter.MEMBERS : TopicRouter.CHAT, serverThread -> {
+            Set<Long> window = senderSync == null ? null : rosterWindows.get(serverThread.getClientId());
+            if (window != null && serverThread != sender && window.add(senderId)) {
+                serverThread.sendPresence(senderSync);
             }
-            return failedToSend;
-        });
+            return serverThread.sendMessage(payload);
+        }).forEach(this::disconnectFailed);
+    }
+
+    /**
+     * Drops a recipient a send to failed
+     * 
+     * @param serverThread
+     */
+    protected void disconnectFailed(ServerThread serverThread) {
+        LoggerUtil.INSTANCE.warning(
+                String.format("Removing disconnected %s from list", serverThread.getDisplayName()));
+        disconnect(serverThread);
     }
 
     /**
@@ -169,25 +351,12 @@ public class Room implements AutoCloseable {
             return;
         }
         ServerThread disconnectingServerThread = clientsInRoom.remove(client.getClientId());
+        rosterWindows.remove(client.getClientId());
+        topics.removeClient(client);
         if (disconnectingServerThread != null) {
-
-            clientsInRoom.values().removeIf(serverThread -> {
-                if (serverThread.getClientId() == disconnectingServerThread.getClientId()) {
-                    return true;
-                }
-                boolean failedToSend = !serverThread.sendClientInfo(
-                        disconnectingServerThread.getClientId(),
-                        disconnectingServerThread.getClientName(),
-                        getName(),
-                        RoomAction.LEAVE);
-                if (failedToSend) {
-                    LoggerUtil.INSTANCE.warning(
-                            String.format("Removing disconnected %s from list", serverThread.getDisplayName()));
-                    disconnect(serverThread);
-                }
-                return failedToSend;
-            });
-            relay(null, disconnectingServerThread.getDisplayName() + " disconnected");
+            RoomDirectory.INSTANCE.roomChanged(this);
+            // the remaining members learn about it with the next presence flush
+            presence.queueLeave(disconnectingServerThread, true);
             disconnectingServerThread.disconnect();
         }
         autoCleanup();
@@ -216,23 +385,40 @@ public class Room implements AutoCloseable {
 
     @Override
     public void close() {
+        // unlist first so no new joins can find this Room by name
+        Server.INSTANCE.removeRoom(this);
         // attempt to gracefully close and migrate clients
         if (!clientsInRoom.isEmpty()) {
             relay(null, "Room is shutting down, migrating to lobby");
             info(String.format("migrating %s clients", clientsInRoom.size()));
-            clientsInRoom.values().removeIf(client -> {
-                try {
-                    Server.INSTANCE.joinRoom(Room.LOBBY, client);
-                } catch (RoomNotFoundException e) {
-                    e.printStackTrace();
-                    // TODO, fill in, this shouldn't happen though
+        }
+        for (int attempt = 0;; attempt++) {
+            List<ServerThread> remaining;
+            synchronized (this) {
+                // a migration that found this Room before it was unlisted may still add
+                // clients, so only stop once it's empty under the lock
+                if (clientsInRoom.isEmpty() || attempt >= MAX_CLOSE_ATTEMPTS) {
+                    if (!clientsInRoom.isEmpty()) {
+                        LoggerUtil.INSTANCE.warning(String.format("Room %s closed with %s clients remaining", name,
+                                clientsInRoom.size()));
+                    }
+                    isRunning = false;
+                    clientsInRoom.clear();
+                    rosterWindows.clear();
+                    topics.clear();
+                    presence.close();
+                    history.close();
+                    break;
                 }
-                return true;
-            });
+                remaining = new ArrayList<>(clientsInRoom.values());
+            }
+            try {
+                // one lock-ordered migration instead of a joinRoom() per client
+                Server.INSTANCE.migrate(remaining, Room.LOBBY);
+            } catch (RoomNotFoundException e) {
+                LoggerUtil.INSTANCE.severe("Lobby wasn't found (this shouldn't happen)", e);
+            }
         }
-        Server.INSTANCE.removeRoom(this);
-        isRunning = false;
-        clientsInRoom.clear();
         info(String.format("closed"));
     }
 
@@ -249,7 +435,7 @@ public class Room implements AutoCloseable {
             info("Room wasn't found (this shouldn't happen)");
             e.printStackTrace();
         } catch (DuplicateRoomException e) {
-            sender.sendMessage(Constants.DEFAULT_CLIENT_ID, String.format("Room %s already exists", roomName));
+            sender.sendMessage(Constants.DEFAULT_CLIENT_ID, String.format("Room %s already exists", MessageFormatter.escape(roomName)));
         }
     }
 
@@ -257,7 +443,7 @@ public class Room implements AutoCloseable {
         try {
             Server.INSTANCE.joinRoom(roomName, sender);
         } catch (RoomNotFoundException e) {
-            sender.sendMessage(Constants.DEFAULT_CLIENT_ID, String.format("Room %s doesn't exist", roomName));
+            sender.sendMessage(Constants.DEFAULT_CLIENT_ID, String.format("Room %s doesn't exist", MessageFormatter.escape(roomName)));
         }
     }
 
@@ -274,15 +460,106 @@ public class Room implements AutoCloseable {
         disconnect(sender);
     }
 
-    protected synchronized void handleReverseText(ServerThread sender, String text) {
-        StringBuilder sb = new StringBuilder(text);
+    protected void handleReverseText(ServerThread sender, String text) {
+        StringBuilder sb = new StringBuilder(ContentFilter.INSTANCE.filter(text));
         sb.reverse();
         String rev = sb.toString();
         relay(sender, rev);
     }
 
-    protected synchronized void handleMessage(ServerThread sender, String text) {
-        relay(sender, text);
+    protected void handleMessage(ServerThread sender, String text) {
+        relay(sender, ContentFilter.INSTANCE.filter(text));
+    }
+
+    /**
+     * Chat on a team channel; only members of the channel receive it
+     * 
+     * @param sender
+     * @param topic
+     * @param text
+     */
+    protected void handleTopicMessage(ServerThread sender, String topic, String text) {
+        if (!TopicRouter.isTeamTopic(topic) || !topics.isSubscribed(topic, sender.getClientId())) {
+            sender.sendMessage(Constants.DEFAULT_CLIENT_ID, String.format("You're not in channel %s", MessageFormatter.escape(String.valueOf(topic))));
+            return;
+        }
+        final Payload payload = ServerThread.buildMessage(sender.getClientId(),
+                String.format("[%s] %s", MessageFormatter.escape(topic), MessageFormatter.toHtml(ContentFilter.INSTANCE.filter(text))));
+        topics.publish(topic, serverThread -> serverThread.sendMessage(payload)).forEach(this::disconnectFailed);
+    }
+
+    /**
+     * Mutes/unmutes a built-in topic or joins/leaves a team channel
+     * 
+     * @param sender
+     * @param topic
+     * @param isSubscribing
+     */
+    protected synchronized void handleSubscription(ServerThread sender, String topic, boolean isSubscribing) {
+        final String shownTopic = MessageFormatter.escape(String.valueOf(topic)); // echoed back as HTML
+        String message;
+        if (!TopicRouter.isValidTopic(topic) || TopicRouter.MEMBERS.equals(topic)) {
+            message = String.format("Unknown channel %s", shownTopic);
+        } else if (TopicRouter.isTeamTopic(topic)) {
+            if (isSubscribing) {
+                topics.subscribe(sender, topic);
+                message = String.format("Joined channel %s", shownTopic);
+            } else {
+                message = String.format(topics.unsubscribe(sender, topic) ? "Left channel %s"
+                        : "You're not in channel %s", shownTopic);
+            }
+        } else {
+            // the preference sticks with the client across Rooms
+            sender.setMuted(topic, !isSubscribing);
+            if (isSubscribing) {
+                resubscribe(sender, topic);
+            } else {
+                topics.unsubscribe(sender, topic);
+            }
+            message = String.format("%s %s", isSubscribing ? "Unmuted" : "Muted", shownTopic);
+        }
+        sender.sendMessage(Constants.DEFAULT_CLIENT_ID, message);
+    }
+
+    /**
+     * Subscribes a member to a built-in topic again (i.e., after unmuting it)
+     * 
+     * @param client
+     * @param topic
+     */
+    protected void resubscribe(ServerThread client, String topic) {
+        topics.subscribe(client, topic);
+    }
+
+    /**
+     * A client of a paged roster browsing/searching the members
+     * 
+     * @param sender
+     * @param offset
+     * @param query
+     */
+    protected void handleRosterPage(ServerThread sender, int offset, String query) {
+        if (!isRunning || !clientsInRoom.containsKey(sender.getClientId())) {
+            return;
+        }
+        if (!isRosterPaged() && !rosterWindows.containsKey(sender.getClientId())) {
+            // small Room; the client already has everyone
+            return;
+        }
+        sendRosterPage(sender, offset, query);
+    }
+    /**
+     * A member scrolling back through the chat; pages older than the in-memory
+     * history are read from disk without holding the Room lock
+     * 
+     * @param sender
+     * @param beforeSeq
+     */
+    protected void handleHistory(ServerThread sender, long beforeSeq) {
+        if (!isRunning || !clientsInRoom.containsKey(sender.getClientId())) {
+            return;
+        }
+        history.page(beforeSeq, sender::sendHistory);
     }
     // end handle methods
 }
\ No newline at end of file
@@ -0,0 +1,143 @@
+package Project.Server;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+
+import Project.Common.LoggerUtil;
+import Project.Common.VirtualScheduler;
+import Project.Exceptions.RoomNotFoundException;
+
+/**
+ * Allocation rate under GameRoom churn, the way tournaments and matchmaking
+ * use Rooms: a GameRoom is created, players move in from a hall, and once
+ * they move back out it closes itself. Everything runs on one thread on
+ * virtual time, so the bytes allocated by that thread are all the churn costs.
+ * <p>
+ * Two loads: rooms that are only joined and left again (create/close), and
+ * rooms where two bots play one whole session first. Each runs with the board
+ * pool of GameRoom on and off.
+ * </p>
+ * <p>
+ * Usage: RoomChurn [cycles]
+ * </p>
+ */
+class RoomChurn {
+    private static final int PLAYERS_PER_ROOM = 2;
+
+    private final VirtualScheduler scheduler = new VirtualScheduler();
+    private final Room hall = new Room("Hall");
+    private final List<ServerThread> players = new ArrayList<>();
+    private final List<ServerThread> bots = new ArrayList<>();
+    private int rooms = 0;
+
+    private RoomChurn() throws RoomNotFoundException {
+        for (int i = 0; i < PLAYERS_PER_ROOM; i++) {
+            ServerThread player = new SocketlessClient("Churn" + i);
+            players.add(player);
+            bots.add(new BotPlayer());
+        }
+        Server.INSTANCE.migrate(players, hall);
+        Server.INSTANCE.migrate(bots, hall);
+    }
+
+    /**
+     * Players join a new GameRoom and leave again, which closes it
+     */
+    private void createAndClose() throws RoomNotFoundException {
+        GameRoom room = new GameRoom("Churn-" + rooms++, scheduler);
+        Server.INSTANCE.migrate(players, room);
+        drain();
+        Server.INSTANCE.migrate(players, hall);
+        drain();
+        check(!room.isRunning(), "room didn't close");
+    }
+
+    /**
+     * Bots play a session in a new GameRoom and leave again, which closes it
+     */
+    private void playSession() throws RoomNotFoundException {
+        GameRoom room = new GameRoom("Churn-" + rooms++, scheduler);
+        AtomicBoolean isOver = new AtomicBoolean();
+        room.setSessionListener(result -> isOver.set(true));
+        Server.INSTANCE.migrate(bots, room);
+        while (!isOver.get() && scheduler.runNext()) {
+        }
+        check(isOver.get(), "session didn't end");
+        Server.INSTANCE.migrate(bots, hall);
+        drain();
+        check(!room.isRunning(), "room didn't close");
+    }
+
+    private void drain() {
+        while (scheduler.runNext()) {
+        }
+    }
+
+    private static void check(boolean condition, String problem) {
+        if (!condition) {
+            throw new IllegalStateException(problem);
+        }
+    }
+
+    private interface Cycle {
+        void run() throws RoomNotFoundException;
+    }
+
+    /**
+     * Runs the cycles after a warm up and prints what they allocated
+     */
+    private static void measure(String label, int cycles, Cycle cycle) throws RoomNotFoundException {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+                .getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+        for (int i = 0; i < Math.max(100, cycles / 5); i++) {
+            cycle.run();
+        }
+        long gcBefore = gcCount();
+        long bytesBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < cycles; i++) {
+            cycle.run();
+        }
+        double seconds = (System.nanoTime() - start) / 1_000_000_000d;
+        long bytes = threads.getThreadAllocatedBytes(threadId) - bytesBefore;
+        System.out.println(String.format("%-28s cycles[%s] perCycle[%.1fKB] rate[%.0fMB/s] cyclesPerSecond[%.0f] gcs[%s]",
+                label, cycles, bytes / 1024d / cycles, bytes / 1_048_576d / seconds, cycles / seconds,
+                gcCount() - gcBefore));
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    public static void main(String[] args) throws RoomNotFoundException {
+        int cycles = args.length > 0 ? Integer.parseInt(args[0]) : 5_000;
+
+        LoggerUtil.LoggerConfig config = new LoggerUtil.LoggerConfig();
+        config.setLogLocation("room-churn.log");
+        config.setFileLogLevel(Level.SEVERE);
+        config.setConsoleLogLevel(Level.SEVERE);
+        LoggerUtil.INSTANCE.setConfig(config);
+        ChatHistory.setDirectory(null);
+        BotPlayer.setThinkTime(100, 1_000);
+
+        RoomChurn churn = new RoomChurn();
+        for (boolean isPooling : new boolean[] { false, true }) {
+            GameRoom.setMaxPooledBoards(isPooling ? GameRoom.MAX_POOLED_BOARDS : 0);
+            String pooling = isPooling ? "pooled" : "unpooled";
+            measure("create/close " + pooling, cycles, churn::createAndClose);
+            measure("session " + pooling, cycles / 10, churn::playSession);
+        }
+        System.out.println(String.format("rooms[%s] virtual[%.1fh] tasks[%s]", churn.rooms,
+                churn.scheduler.now() / 3_600_000d, churn.scheduler.getTasksRun()));
+        System.out.println(GameRoom.getStats());
+    }
+}
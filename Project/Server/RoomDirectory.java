@@ -0,0 +1,164 @@
+package Project.Server;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import Project.Common.LoggerUtil;
+import Project.Common.RoomDirectoryPayload;
+import Project.Common.RoomDirectoryPayload.RoomSummary;
+
+/**
+ * Server-wide Room directory pushed to subscribed clients.
+ * <p>
+ * Rooms only mark themselves as changed (created, removed, members or phase
+ * changed); at most once per interval the changed Rooms are compared against
+ * what was last published and subscribers receive a single diff of
+ * added/updated/removed Rooms. New subscribers get the published state as a
+ * snapshot. Publishing and subscribing share a lock so a subscriber never
+ * receives a diff older than its snapshot; nothing that marks Rooms as changed
+ * (game loops, migrations) ever takes it, so a slow subscriber only delays
+ * the directory itself.
+ * </p>
+ */
+public enum RoomDirectory {
+    INSTANCE;
+
+    public static final long DEFAULT_INTERVAL_MS = 1000;
+
+    private final Timer flushTimer = new Timer("RoomDirectory", true);
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet(); // lowercase Room names
+    private final ConcurrentHashMap<Long, ServerThread> subscribers = new ConcurrentHashMap<>();
+    // held while building and sending diffs and snapshots
+    private final Object publishLock = new Object();
+    // guarded by publishLock
+    private final Map<String, RoomSummary> published = new HashMap<>();
+    private final AtomicBoolean isScheduled = new AtomicBoolean(false);
+    private volatile long intervalMs = DEFAULT_INTERVAL_MS;
+
+    // metrics
+    private final AtomicLong changes = new AtomicLong(); // roomChanged() calls
+    private final AtomicLong flushes = new AtomicLong(); // diffs sent
+    private final AtomicLong sends = new AtomicLong(); // payloads sent to subscribers
+
+    /**
+     * @param intervalMs minimum time between pushed diffs
+     */
+    public void setInterval(long intervalMs) {
+        if (intervalMs <= 0) {
+            throw new IllegalArgumentException("Interval must be positive");
+        }
+        this.intervalMs = intervalMs;
+    }
+
+    /**
+     * Marks a Room as changed (created, removed, joined/left, phase); cheap
+     * enough to call on every change
+     *
+     * @param room
+     */
+    public void roomChanged(Room room) {
+        changes.incrementAndGet();
+        if (dirty.add(room.getName().toLowerCase())) {
+            schedule();
+        }
+    }
+
+    private void schedule() {
+        if (!isScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        flushTimer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                try {
+                    flush();
+                } catch (Exception e) {
+                    // an exception would kill the timer thread
+                    LoggerUtil.INSTANCE.severe("Room directory flush failed", e);
+                }
+            }
+        }, intervalMs);
+    }
+
+    /**
+     * Sends the published directory and then every following diff
+     *
+     * @param client
+     */
+    public void subscribe(ServerThread client) {
+        synchronized (publishLock) {
+            subscribers.put(client.getClientId(), client);
+            RoomDirectoryPayload payload = new RoomDirectoryPayload();
+            payload.setSnapshot(true);
+            payload.getAdded().addAll(published.values());
+            payload.getAdded().sort(Comparator.comparing(RoomSummary::getName, String.CASE_INSENSITIVE_ORDER));
+            sends.incrementAndGet();
+            if (!client.sendRoomDirectory(payload)) {
+                subscribers.remove(client.getClientId());
+            }
+        }
+    }
+
+    public void unsubscribe(ServerThread client) {
+        subscribers.remove(client.getClientId(), client);
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * Publishes the changes of the dirty Rooms
+     */
+    protected void flush() {
+        synchronized (publishLock) {
+            publish();
+        }
+    }
+
+    private void publish() {
+        isScheduled.set(false);
+        List<String> names = new ArrayList<>(dirty);
+        dirty.removeAll(names);
+        RoomDirectoryPayload payload = new RoomDirectoryPayload();
+        for (String name : names) {
+            Room room = Server.INSTANCE.getRoom(name);
+            RoomSummary previous = published.get(name);
+            if (room == null || !room.isRunning()) {
+                if (published.remove(name) != null) {
+                    payload.getRemoved().add(previous.getName());
+                }
+                continue;
+            }
+            RoomSummary current = new RoomSummary(room.getName(), room.clientsInRoom.size(), room.getPhase());
+            if (current.sameAs(previous)) {
+                continue; // e.g., a join and a leave within the interval
+            }
+            published.put(name, current);
+            (previous == null ? payload.getAdded() : payload.getUpdated()).add(current);
+        }
+        if (payload.isEmpty()) {
+            return;
+        }
+        flushes.incrementAndGet();
+        subscribers.values().removeIf(subscriber -> {
+            sends.incrementAndGet();
+            // the connection is cleaned up by its own read thread
+            return !subscriber.sendRoomDirectory(payload);
+        });
+    }
+
+    public String getStats() {
+        return String.format("RoomDirectory changes[%s] diffs[%s] sends[%s] subscribers[%s] rooms[%s]",
+                changes.get(), flushes.get(), sends.get(), subscribers.size(), published.size());
+    }
+}
@@ -1,12 +1,23 @@
 package Project.Server;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
 import java.util.stream.Collectors;
 
+import Project.Common.Constants;
 import Project.Common.LoggerUtil;
 import Project.Common.TextFX;
 import Project.Common.TextFX.Color;
@@ -31,7 +42,8 @@ public enum Server {
     // The key is the unique Room name and the Room is the instance
     private final ConcurrentHashMap<String, Room> rooms = new ConcurrentHashMap<>();
     private boolean isRunning = true;
-    private long nextClientId = 0;
+    private static final int MAX_MIGRATION_ATTEMPTS = 5;
+    private final AtomicInteger tournamentCount = new AtomicInteger();
 
     private void info(String message) {
         LoggerUtil.INSTANCE.info(TextFX.colorize(String.format("Server: %s", message), Color.YELLOW));
@@ -66,6 +78,8 @@ public enum Server {
         // server listening
         info("Listening on port " + this.port);
         // Simplified client connection loop
+        // banned words for chat and names; reloaded whenever the file changes
+        ContentFilter.INSTANCE.watch(Path.of(ContentFilter.DEFAULT_WORD_LIST));
         try (ServerSocket serverSocket = new ServerSocket(port)) {
             createRoom(Room.LOBBY);// create the first room (lobby)
             while (isRunning) {
@@ -98,8 +112,8 @@ public enum Server {
      */
     private void onServerThreadInitialized(ServerThread serverThread) {
         // Generate Server controlled clientId
-        nextClientId = Math.max(++nextClientId, 1);
-        serverThread.setClientId(nextClientId);
+        serverThread.setClientId(ClientRegistry.INSTANCE.nextClientId());
+        ClientRegistry.INSTANCE.register(serverThread);
         serverThread.sendClientId();// syncs the data to the Client
         // add initialized client to the lobby
         info(String.format("*%s initialized*", serverThread.getDisplayName()));
@@ -112,6 +126,48 @@ public enum Server {
         }
     }
 
+    /**
+     * Delivers a private message via the ClientRegistry (no Room scan). The target
+     * is resolved by id, or by name when the id isn't given; the sender gets the
+     * same payload back as confirmation.
+     * 
+     * @param sender
+     * @param targetId   client id or Constants.DEFAULT_CLIENT_ID to use the name
+     * @param targetName case-insensitive client name (used when there's no id)
+     * @param message
+     */
+    protected void sendPrivateMessage(ServerThread sender, long targetId, String targetName, String message) {
+        ServerThread target = null;
+        if (targetId > Constants.DEFAULT_CLIENT_ID) {
+            target = ClientRegistry.INSTANCE.get(targetId);
+        } else if (targetName != null) {
+            List<ServerThread> matches = ClientRegistry.INSTANCE.findByName(targetName);
+            if (matches.size() > 1) {
+                // server messages are rendered as HTML
+                sender.sendMessage(Constants.DEFAULT_CLIENT_ID,
+                        String.format("Several users are named %s, use one of: %s", MessageFormatter.escape(targetName),
+                                matches.stream().map(ServerThread::getDisplayName).sorted()
+                                        .map(MessageFormatter::escape).collect(Collectors.joining(", "))));
+                return;
+            }
+            target = matches.isEmpty() ? null : matches.get(0);
+        }
+        if (target == null) {
+            sender.sendMessage(Constants.DEFAULT_CLIENT_ID,
+                    String.format("User %s isn't connected", targetId > Constants.DEFAULT_CLIENT_ID ? targetId
+                            : MessageFormatter.escape(targetName)));
+            return;
+        }
+        if (!target.sendPrivateMessage(sender, target, message)) {
+            sender.sendMessage(Constants.DEFAULT_CLIENT_ID,
+                    String.format("Couldn't deliver your message to %s", MessageFormatter.escape(target.getDisplayName())));
+            return;
+        }
+        if (target != sender) {
+            sender.sendPrivateMessage(sender, target, message);
+        }
+    }
+
     /**
      * Attempts to create a new Room and add it to the tracked rooms collection
      * 
@@ -125,7 +181,13 @@ public enum Server {
             throw new DuplicateRoomException(String.format("Room %s already exists", name));
         }
         Room room = Room.LOBBY.equalsIgnoreCase(nameCheck) ? new Room(name) : new GameRoom(name);
-        rooms.put(nameCheck, room);
+        if (rooms.putIfAbsent(nameCheck, room) != null) {
+            // lost a race with a concurrent create; the new Room was never listed so
+            // only its own resources (e.g. its game loop queue) need releasing
+            room.close();
+            throw new DuplicateRoomException(String.format("Room %s already exists", name));
+        }
+        RoomDirectory.INSTANCE.roomChanged(room);
         info(String.format("Created new Room %s", name));
     }
 
@@ -138,17 +200,118 @@ public enum Server {
      * 
      */
     protected void joinRoom(String name, ServerThread client) throws RoomNotFoundException {
-        final String nameCheck = name.toLowerCase();
-        if (!rooms.containsKey(nameCheck)) {
+        migrate(List.of(client), name);
+    }
+
+    /**
+     * Moves clients into the named Room
+     * 
+     * @param clients
+     * @param name
+     * @throws RoomNotFoundException
+     */
+    protected void migrate(Collection<ServerThread> clients, String name) throws RoomNotFoundException {
+        Room next = getRoom(name);
+        if (next == null) {
             throw new RoomNotFoundException(String.format("Room %s wasn't found", name));
         }
-        Room currentRoom = client.getCurrentRoom();
-        if (currentRoom != null) {
-            info("Removing client from previous Room " + currentRoom.getName());
-            currentRoom.removeClient(client);
+        migrate(clients, next);
+    }
+
+    /**
+     * @param name case-insensitive Room name
+     * @return the Room or null if there isn't one with that name
+     */
+    protected Room getRoom(String name) {
+        return rooms.get(name.toLowerCase());
+    }
+
+    /**
+     * Atomically moves one or many clients (from any number of Rooms) into the
+     * target.
+     * <p>
+     * All source Rooms and the target are locked in roomId order so concurrent
+     * migrations can't deadlock, and each client leaves its Room and enters the
+     * target within the same critical section so it's never in zero or two Rooms.
+     * Each affected Room sends one batched update per member, and each moving
+     * client's output is flushed as one frame after the locks are released.
+     * Clients that changed Rooms between planning and locking are retried.
+     * </p>
+     * 
+     * @param clients
+     * @param target
+     * @throws RoomNotFoundException if the target closed before the move
+     */
+    protected void migrate(Collection<ServerThread> clients, Room target) throws RoomNotFoundException {
+        List<ServerThread> pending = new ArrayList<>(clients);
+        pending.forEach(ServerThread::beginBatch);
+        try {
+            for (int attempt = 0; !pending.isEmpty(); attempt++) {
+                if (attempt >= MAX_MIGRATION_ATTEMPTS) {
+                    LoggerUtil.INSTANCE.warning(String.format("Gave up migrating %s clients to %s", pending.size(),
+                            target.getName()));
+                    break;
+                }
+                // plan: group by current Room (null for clients not in a Room yet)
+                Map<Room, List<ServerThread>> bySource = new HashMap<>();
+                for (ServerThread client : pending) {
+                    Room source = client.getCurrentRoom();
+                    if (source != target) {
+                        bySource.computeIfAbsent(source, k -> new ArrayList<>()).add(client);
+                    }
+                }
+                List<Room> locks = new ArrayList<>(bySource.keySet());
+                locks.remove(null);
+                locks.add(target);
+                locks.sort(Comparator.comparingLong(Room::getRoomId));
+
+                List<ServerThread> retry = new ArrayList<>();
+                boolean targetOpen = lockInOrder(locks, 0, () -> {
+                    if (!target.isRunning()) {
+                        return false;
+                    }
+                    List<ServerThread> movers = new ArrayList<>();
+                    bySource.forEach((source, group) -> {
+                        List<ServerThread> stillThere = new ArrayList<>(group.size());
+                        for (ServerThread client : group) {
+                            if (client.getCurrentRoom() == source) {
+                                stillThere.add(client);
+                            } else {
+                                retry.add(client); // moved since planning
+                            }
+                        }
+                        if (source == null || !source.isRunning()) {
+                            // new client, or left behind by a Room that closed mid-migration
+                            movers.addAll(stillThere);
+                        } else if (!stillThere.isEmpty()) {
+                            info(String.format("Moving %s clients from %s to %s", stillThere.size(), source.getName(),
+                                    target.getName()));
+                            movers.addAll(source.removeClients(stillThere));
+                        }
+                    });
+                    target.addClients(movers);
+                    return true;
+                });
+                if (!targetOpen) {
+                    throw new RoomNotFoundException(String.format("Room %s was closed", target.getName()));
+                }
+                pending = retry;
+            }
+        } finally {
+            clients.forEach(ServerThread::endBatch);
+        }
+    }
+
+    /**
+     * Runs the action while holding the monitor of every Room (in list order)
+     */
+    private static boolean lockInOrder(List<Room> rooms, int index, BooleanSupplier action) {
+        if (index == rooms.size()) {
+            return action.getAsBoolean();
+        }
+        synchronized (rooms.get(index)) {
+            return lockInOrder(rooms, index + 1, action);
         }
-        Room next = rooms.get(nameCheck);
-        next.addClient(client);
     }
 
     /**
@@ -168,8 +331,11 @@ public enum Server {
     }
 
     protected void removeRoom(Room room) {
-        rooms.remove(room.getName().toLowerCase());
-        info(String.format("Removed room %s", room.getName()));
+        // only remove this instance; the name may already belong to a newer Room
+        if (rooms.remove(room.getName().toLowerCase(), room)) {
+            RoomDirectory.INSTANCE.roomChanged(room);
+            info(String.format("Removed room %s", room.getName()));
+        }
     }
 
     /**
@@ -213,6 +379,69 @@ public enum Server {
         relayToAllRooms(sender, message);
     }
 
+    /**
+     * Reads commands typed into the server console on a daemon thread:
+     * <ul>
+     * <li>tournament [name] - starts a Tournament for everyone in the lobby</li>
+     * </ul>
+     */
+    private void listenToConsole() {
+        Thread console = new Thread(() -> {
+            try (BufferedReader in = new BufferedReader(new InputStreamReader(System.in))) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    handleConsoleCommand(line.trim());
+                }
+            } catch (IOException e) {
+                LoggerUtil.INSTANCE.warning("Server console closed");
+            }
+        }, "ServerConsole");
+        console.setDaemon(true);
+        console.start();
+    }
+
+    private void handleConsoleCommand(String line) {
+        if (line.isEmpty()) {
+            return;
+        }
+        String[] parts = line.split("\\s+");
+        switch (parts[0].toLowerCase()) {
+            case "tournament":
+                startTournament(parts.length > 1 ? parts[1] : "Cup" + (tournamentCount.get() + 1));
+                break;
+            default:
+                info(String.format("Unknown command %s (commands: tournament [name])", parts[0]));
+        }
+    }
+
+    /**
+     * Starts a single-elimination Tournament for the clients in the lobby; the
+     * earliest to connect are seeded first
+     * 
+     * @param name used as the prefix of the match Room names
+     */
+    private void startTournament(String name) {
+        if (!name.matches("[A-Za-z0-9_-]+")) {
+            info("Tournament names can only use letters, digits, _ and -");
+            return;
+        }
+        final String roomPrefix = (name + "-r").toLowerCase();
+        if (rooms.keySet().stream().anyMatch(roomName -> roomName.startsWith(roomPrefix))) {
+            info(String.format("Tournament %s is already running", name));
+            return;
+        }
+        List<ServerThread> players = getRoom(Room.LOBBY).clientsInRoom.values().stream()
+                .sorted(Comparator.comparingLong(ServerThread::getClientId)).collect(Collectors.toList());
+        if (players.size() < 2) {
+            info(String.format("Tournament %s needs at least 2 players in the lobby (%d there)", name,
+                    players.size()));
+            return;
+        }
+        tournamentCount.incrementAndGet();
+        Tournament.inLobby(name, players).start();
+        info(String.format("Tournament %s started with %d players", name, players.size()));
+    }
+
     public static void main(String[] args) {
         LoggerUtil.INSTANCE.info("Server Starting");
         Server server = Server.INSTANCE;
@@ -223,6 +452,7 @@ public enum Server {
             // can ignore, will either be index out of bounds or type mismatch
             // will default to the defined value prior to the try/catch
         }
+        server.listenToConsole();
         server.start(port);
         LoggerUtil.INSTANCE.warning("Server Stopped");
     }
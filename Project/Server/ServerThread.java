@@ -3,28 +3,39 @@ package Project.Server;
 import java.net.Socket;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 import Project.Common.TextFX.Color;
+import Project.Common.Clock;
 import Project.Common.TimerPayload;
 import Project.Common.TimerType;
 import Project.Common.ConnectionPayload;
 import Project.Common.Constants;
 import Project.Common.CoordPayload;
+import Project.Common.HistoryPayload;
 import Project.Common.LoggerUtil;
 import Project.Common.Payload;
 import Project.Common.PayloadType;
 import Project.Common.Phase;
 import Project.Common.PointsPayload;
+import Project.Common.PresencePayload;
+import Project.Common.PrivateMessagePayload;
 import Project.Common.ReadyPayload;
 import Project.Common.RoomAction;
+import Project.Common.RoomDirectoryPayload;
 import Project.Common.RoomResultPayload;
+import Project.Common.RosterPayload;
+import Project.Common.RosterPayload.RosterEntry;
 import Project.Common.TextFX;
+import Project.Common.TopicPayload;
 
 /**
  * A server-side representation of a single client
  */
 public class ServerThread extends BaseServerThread {
     private Consumer<ServerThread> onInitializationComplete; // callback to inform when this object is ready
+    private final Set<String> mutedTopics = ConcurrentHashMap.newKeySet(); // kept across Rooms
 
     /**
      * A wrapper method so we don't need to keep typing out the long/complex sysout
@@ -59,6 +70,78 @@ public class ServerThread extends BaseServerThread {
     }
 
     // Start Send*() Methods
+
+    /**
+     * Syncs the whole member list (and their game state) in one payload
+     * 
+     * @param roster
+     * @param memberCount
+     * @return true if it was sent
+     */
+    public boolean sendRoster(List<RosterEntry> roster, int memberCount) {
+        RosterPayload rp = new RosterPayload();
+        rp.setEntries(roster);
+        rp.setMemberCount(memberCount);
+        return sendToClient(rp);
+    }
+
+    /**
+     * Syncs a prepared (i.e., paged) roster
+     * 
+     * @param rp
+     * @return true if it was sent
+     */
+    public boolean sendRoster(RosterPayload rp) {
+        return sendToClient(rp);
+    }
+
+    /**
+     * Sends the Room directory snapshot or a diff of it
+     * 
+     * @param rdp
+     * @return true if it was sent
+     */
+    public boolean sendRoomDirectory(RoomDirectoryPayload rdp) {
+        return sendToClient(rdp);
+    }
+
+    /**
+     * Sends a chat replay or scrollback page of the current Room
+     * 
+     * @param hp
+     * @return true if it was sent
+     */
+    public boolean sendHistory(HistoryPayload hp) {
+        return sendToClient(hp);
+    }
+
+    /**
+     * Sends a coalesced batch of joins/leaves of the current Room
+     * 
+     * @param pp
+     * @return true if it was sent
+     */
+    public boolean sendPresence(PresencePayload pp) {
+        return sendToClient(pp);
+    }
+
+    /**
+     * Sends a private message (also used to echo it back to the sender)
+     * 
+     * @param sender
+     * @param target
+     * @param message
+     * @return true if it was sent
+     */
+    public boolean sendPrivateMessage(ServerThread sender, ServerThread target, String message) {
+        PrivateMessagePayload pmp = new PrivateMessagePayload();
+        pmp.setClientId(sender.getClientId());
+        pmp.setSenderName(sender.getDisplayName());
+        pmp.setTargetId(target.getClientId());
+        pmp.setTargetName(target.getDisplayName());
+        pmp.setMessage(message);
+        return sendToClient(pmp);
+    }
     
     public boolean sendAttackShipUpdate(long clientId, int x, int y) // yaw4 12/11, send attack ship data to client to change client grid
     {
@@ -95,16 +178,31 @@ public class ServerThread extends BaseServerThread {
     }
 
     /**
-     * Syncs the current time of a specific TimerType
+     * Syncs the deadline of a specific TimerType; the client counts down locally
+     * 
+     * @param timerType
+     * @param expiresAt monotonic millis (TimedEvent.now()) or -1 to cancel
+     * @return
+     */
+    public boolean sendCurrentTime(TimerType timerType, long expiresAt) {
+        return sendCurrentTime(timerType, expiresAt, Clock.SYSTEM);
+    }
+
+    /**
+     * Syncs the deadline of a timer that runs on another clock
      * 
      * @param timerType
-     * @param time
+     * @param expiresAt millis on the passed clock or -1 to cancel
+     * @param clock     the clock of the timer (the Room's scheduler)
      * @return
      */
-    public boolean sendCurrentTime(TimerType timerType, int time) {
+    public boolean sendCurrentTime(TimerType timerType, long expiresAt, Clock clock) {
         TimerPayload tp = new TimerPayload();
-        tp.setTime(time);
+        long now = clock.now();
         tp.setTimerType(timerType);
+        tp.setServerTime(now);
+        tp.setExpiresAt(expiresAt);
+        tp.setTime(expiresAt < 0 ? -1 : (int) Math.max(0, (expiresAt - now + 999) / 1000));
         return sendToClient(tp);
     }
 
@@ -234,8 +332,8 @@ public class ServerThread extends BaseServerThread {
         ConnectionPayload payload = new ConnectionPayload();
         payload.setPayloadType(PayloadType.CLIENT_ID);
         payload.setClientId(getClientId());
-        payload.setClientName(getClientName());// Can be used as a Server-side override of username (i.e., profanity
-                                               // filter)
+        payload.setClientName(getClientName());// Server-side override of username (i.e., the ContentFilter)
+        payload.setCompression(isCompressing()); // confirms the negotiated compression
         return sendToClient(payload);
     }
 
@@ -247,91 +345,192 @@ public class ServerThread extends BaseServerThread {
      * @return true for successful send
      */
     protected boolean sendMessage(long clientId, String message) {
+        return sendToClient(buildMessage(clientId, message));
+    }
+
+    /**
+     * Sends a prepared message (i.e., one payload shared by every recipient of a
+     * broadcast)
+     * 
+     * @param payload see buildMessage()
+     * @return true for successful send
+     */
+    protected boolean sendMessage(Payload payload) {
+        return sendToClient(payload);
+    }
+
+    /**
+     * @param clientId who it's from
+     * @param message
+     * @return a MESSAGE payload
+     */
+    protected static Payload buildMessage(long clientId, String message) {
         Payload payload = new Payload();
         payload.setPayloadType(PayloadType.MESSAGE);
         payload.setMessage(message);
         payload.setClientId(clientId);
-        return sendToClient(payload);
+        return payload;
     }
 
     // End Send*() Methods
-    @Override
-    protected void processPayload(Payload incoming) {
 
-        switch (incoming.getPayloadType()) {
-            case CLIENT_CONNECT:
-                setClientName(((ConnectionPayload) incoming).getClientName().trim());
+    @Override
+    protected void onRateLimited(Payload payload, boolean firstDrop) {
+        if (firstDrop) {
+            // only warn once per run of dropped payloads so the warning isn't a flood
+            // itself
+            sendMessage(Constants.DEFAULT_CLIENT_ID,
+                    String.format("You're sending %s requests too quickly, slow down", payload.getPayloadType()));
+            info(RateLimiter.getStats());
+        }
+    }
 
-                break;
-            case DISCONNECT:
-                currentRoom.handleDisconnect(this);
-                break;
-            case MESSAGE:
-                currentRoom.handleMessage(this, incoming.getMessage());
-                break;
-            case REVERSE:
-                currentRoom.handleReverseText(this, incoming.getMessage());
-                break;
-            case ROOM_CREATE:
-                currentRoom.handleCreateRoom(this, incoming.getMessage());
-                break;
-            case ROOM_JOIN:
-                currentRoom.handleJoinRoom(this, incoming.getMessage());
-                break;
-            case ROOM_LEAVE:
-                currentRoom.handleJoinRoom(this, Room.LOBBY);
-                break;
-            case ROOM_LIST:
-                currentRoom.handleListRooms(this, incoming.getMessage());
-                break;
-            case READY:
-                // no data needed as the intent will be used as the trigger
-                try {
-                    // cast to GameRoom as the subclass will handle all Game logic
-                    ((GameRoom) currentRoom).handleReady(this);
-                } catch (Exception e) {
-                    sendMessage(Constants.DEFAULT_CLIENT_ID, "You must be in a GameRoom to do the ready check");
-                }
-                break;
-            case TURN:
-                // no data needed as the intent will be used as the trigger
-                try {
-                    // cast to GameRoom as the subclass will handle all Game logic
-                    ((GameRoom) currentRoom).handleTurnAction(this, incoming.getMessage());
-                } catch (Exception e) {
-                    sendMessage(Constants.DEFAULT_CLIENT_ID, "You must be in a GameRoom to do a turn");
-                }
-                break;
-            case PLACE:
-                try {
-                    CoordPayload cp = (CoordPayload) incoming; // yaw4 12/11, processing coordinate payload for placing and then placing ship in gameroom
-                    ((GameRoom) currentRoom).handlePlaceAction(this, cp.getX(), cp.getY());
-                    sendMessage(Constants.DEFAULT_CLIENT_ID, "placed ship on ServerThread");
-                } catch (Exception e) {
-                    sendMessage(Constants.DEFAULT_CLIENT_ID, "You must be in a GameRoom to place ships");
-                }
-                break;
-            case ATTACK:
-                try {
-                    CoordPayload attcp = (CoordPayload) incoming; // yaw4 12/11, processing coordinate payload for attacking and then attack ship in gameroom
-                    ((GameRoom) currentRoom).handleAttackAction(this, attcp.getX(), attcp.getY());
-                    sendMessage(Constants.DEFAULT_CLIENT_ID, "attacked ship on ServerThread");
-                } catch (Exception e) {
-                    sendMessage(Constants.DEFAULT_CLIENT_ID, "You must be in a GameRoom to attack ships");
-                }
-                break;
-            case SKIP:
-                try {
-                    Payload skippl = (Payload) incoming; // yaw4 12/11, processing skip payload for skipping
-                    ((GameRoom) currentRoom).handleSkipAction(this);
-                    sendMessage(Constants.DEFAULT_CLIENT_ID, "skipped turn on ServerThread");
-                } catch (Exception e) {
-                    sendMessage(Constants.DEFAULT_CLIENT_ID, "You must be in a GameRoom to skip your turn");
-                }
-                break;
-            default:
-                LoggerUtil.INSTANCE.warning(TextFX.colorize("Unknown payload type received", Color.RED));
-                break;
+    @Override
+    protected void processPayload(Payload incoming) {
+        // everything sent back to this client while handling one request goes out as
+        // a single frame
+        beginBatch();
+        try {
+            switch (incoming.getPayloadType()) {
+                case CLIENT_CONNECT:
+                    if (((ConnectionPayload) incoming).isCompression()) {
+                        enableCompression();
+                    }
+                    // names are filtered like messages but kept as plain text; they're escaped
+                    // where they're put into HTML (server messages, the client's views);
+                    // sendClientId() tells the client if it changed
+                    setClientName(ContentFilter.INSTANCE.filter(((ConnectionPayload) incoming).getClientName().trim()));
+
+                    break;
+                case DISCONNECT:
+                    currentRoom.handleDisconnect(this);
+                    break;
+                case MESSAGE:
+                    if (incoming instanceof TopicPayload) {
+                        currentRoom.handleTopicMessage(this, ((TopicPayload) incoming).getTopic(),
+                                incoming.getMessage());
+                    } else {
+                        currentRoom.handleMessage(this, incoming.getMessage());
+                    }
+                    break;
+                case SUBSCRIBE:
+                    String topic = ((TopicPayload) incoming).getTopic();
+                    if (TopicPayload.DIRECTORY.equals(topic)) {
+                        RoomDirectory.INSTANCE.subscribe(this);
+                    } else {
+                        currentRoom.handleSubscription(this, topic, true);
+                    }
+                    break;
+                case UNSUBSCRIBE:
+                    topic = ((TopicPayload) incoming).getTopic();
+                    if (TopicPayload.DIRECTORY.equals(topic)) {
+                        RoomDirectory.INSTANCE.unsubscribe(this);
+                    } else {
+                        currentRoom.handleSubscription(this, topic, false);
+                    }
+                    break;
+                case PRIVATE_MESSAGE:
+                    PrivateMessagePayload pmp = (PrivateMessagePayload) incoming;
+                    Server.INSTANCE.sendPrivateMessage(this, pmp.getTargetId(), pmp.getTargetName(),
+                            MessageFormatter.toHtml(ContentFilter.INSTANCE.filter(pmp.getMessage())));
+                    break;
+                case REVERSE:
+                    currentRoom.handleReverseText(this, incoming.getMessage());
+                    break;
+                case ROSTER_PAGE:
+                    RosterPayload rosterRequest = (RosterPayload) incoming;
+                    currentRoom.handleRosterPage(this, rosterRequest.getOffset(), rosterRequest.getQuery());
+                    break;
+                case HISTORY:
+                    currentRoom.handleHistory(this, ((HistoryPayload) incoming).getBeforeSeq());
+                    break;
+                case ROOM_CREATE:
+                    currentRoom.handleCreateRoom(this, incoming.getMessage());
+                    break;
+                case ROOM_JOIN:
+                    currentRoom.handleJoinRoom(this, incoming.getMessage());
+                    break;
+                case ROOM_LEAVE:
+                    currentRoom.handleJoinRoom(this, Room.LOBBY);
+                    break;
+                case ROOM_LIST:
+                    currentRoom.handleListRooms(this, incoming.getMessage());
+                    break;
+                case READY:
+                    // no data needed as the intent will be used as the trigger
+                    try {
+                        // cast to GameRoom as the subclass will handle all Game logic
+                        GameRoom gameRoom = (GameRoom) currentRoom;
+                        gameRoom.execute(() -> gameRoom.handleReady(this));
+                    } catch (Exception e) {
+                        sendMessage(Constants.DEFAULT_CLIENT_ID, "You must be in a GameRoom to do the ready check");
+                    }
+                    break;
+                case TURN:
+                    // no data needed as the intent will be used as the trigger
+                    try {
+                        // cast to GameRoom as the subclass will handle all Game logic
+                        GameRoom gameRoom = (GameRoom) currentRoom;
+                        String turnText = incoming.getMessage();
+                        gameRoom.execute(() -> gameRoom.handleTurnAction(this, turnText));
+                    } catch (Exception e) {
+                        sendMessage(Constants.DEFAULT_CLIENT_ID, "You must be in a GameRoom to do a turn");
+                    }
+                    break;
+                case PLACE:
+                    try {
+                        CoordPayload cp = (CoordPayload) incoming; // yaw4 12/11, processing coordinate payload for placing and then placing ship in gameroom
+                        GameRoom gameRoom = (GameRoom) currentRoom;
+                        gameRoom.execute(() -> gameRoom.handlePlaceAction(this, cp.getX(), cp.getY()));
+                        sendMessage(Constants.DEFAULT_CLIENT_ID, "placed ship on ServerThread");
+                    } catch (Exception e) {
+                        sendMessage(Constants.DEFAULT_CLIENT_ID, "You must be in a GameRoom to place ships");
+                    }
+                    break;
+                case ATTACK:
+                    try {
+                        CoordPayload attcp = (CoordPayload) incoming; // yaw4 12/11, processing coordinate payload for attacking and then attack ship in gameroom
+                        GameRoom gameRoom = (GameRoom) currentRoom;
+                        gameRoom.execute(() -> gameRoom.handleAttackAction(this, attcp.getX(), attcp.getY()));
+                        sendMessage(Constants.DEFAULT_CLIENT_ID, "attacked ship on ServerThread");
+                    } catch (Exception e) {
+                        sendMessage(Constants.DEFAULT_CLIENT_ID, "You must be in a GameRoom to attack ships");
+                    }
+                    break;
+                case SKIP:
+                    try {
+                        Payload skippl = (Payload) incoming; // yaw4 12/11, processing skip payload for skipping
+                        GameRoom gameRoom = (GameRoom) currentRoom;
+                        gameRoom.execute(() -> gameRoom.handleSkipAction(this));
+                        sendMessage(Constants.DEFAULT_CLIENT_ID, "skipped turn on ServerThread");
+                    } catch (Exception e) {
+                        sendMessage(Constants.DEFAULT_CLIENT_ID, "You must be in a GameRoom to skip your turn");
+                    }
+                    break;
+                case ATTACK_MODE:
+                    try {
+                        GameRoom gameRoom = (GameRoom) currentRoom;
+                        String mode = incoming.getMessage();
+                        gameRoom.execute(() -> gameRoom.handleAttackMode(this, mode));
+                    } catch (Exception e) {
+                        sendMessage(Constants.DEFAULT_CLIENT_ID, "You must be in a GameRoom to choose the attack mode");
+                    }
+                    break;
+                case ADD_BOT:
+                    try {
+                        GameRoom gameRoom = (GameRoom) currentRoom;
+                        String count = incoming.getMessage();
+                        gameRoom.execute(() -> gameRoom.handleAddBots(this, count));
+                    } catch (Exception e) {
+                        sendMessage(Constants.DEFAULT_CLIENT_ID, "You must be in a GameRoom to add bots");
+                    }
+                    break;
+                default:
+                    LoggerUtil.INSTANCE.warning(TextFX.colorize("Unknown payload type received", Color.RED));
+                    break;
+            }
+        } finally {
+            endBatch();
         }
     }
 
@@ -361,10 +560,22 @@ public class ServerThread extends BaseServerThread {
         this.user.setPlacedShip();
     }
 
+    protected void resetPlacedShips() {
+        this.user.resetPlacedShips();
+    }
+
+    protected int getMaxShips() {
+        return this.user.getMaxShips();
+    }
+
     protected boolean isReady() {
         return this.user.isReady();
     }
 
+    protected boolean isSpectator() {
+        return this.user.isSpectator();
+    }
+
     protected void setReady(boolean isReady) {
         this.user.setReady(isReady);
     }
@@ -389,6 +600,35 @@ public class ServerThread extends BaseServerThread {
         this.user.setPoints(this.user.getPoints() + points);
     }
 
+    /**
+     * @param topic
+     * @return true if the client opted out of the topic
+     */
+    protected boolean isMuted(String topic) {
+        return mutedTopics.contains(topic);
+    }
+
+    /**
+     * Records a mute preference; only the optional built-in topics can be muted
+     * 
+     * @param topic
+     * @param isMuted
+     * @return true if the preference changed
+     */
+    protected boolean setMuted(String topic, boolean isMuted) {
+        if (!TopicRouter.DEFAULT_TOPICS.contains(topic) || TopicRouter.MEMBERS.equals(topic)) {
+            return false;
+        }
+        return isMuted ? mutedTopics.add(topic) : mutedTopics.remove(topic);
+    }
+
+    @Override
+    protected void cleanup() {
+        ClientRegistry.INSTANCE.unregister(this);
+        RoomDirectory.INSTANCE.unsubscribe(this);
+        super.cleanup();
+    }
+
     @Override
     protected void onInitialized() {
         // once receiving the desired client name the object is ready
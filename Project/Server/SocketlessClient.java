@@ -0,0 +1,30 @@
+package Project.Server;
+
+import java.net.Socket;
+
+/**
+ * A ServerThread without a connection: BotPlayers and the in-process harnesses
+ * (simulations, stress runs, scenarios) use it as a client a Room can hold.
+ * It gets the next client id on creation. Nothing is written out unless a
+ * stream is attached; subclasses override sendToClient() to see what they're
+ * sent.
+ */
+class SocketlessClient extends ServerThread {
+
+    /**
+     * A client that's only given an id; the subclass names it
+     */
+    SocketlessClient() {
+        super(new Socket(), st -> {
+        });
+        setClientId(ClientRegistry.INSTANCE.nextClientId());
+    }
+
+    /**
+     * @param name client name
+     */
+    SocketlessClient(String name) {
+        this();
+        setClientName(name);
+    }
+}
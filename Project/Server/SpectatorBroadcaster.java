@@ -0,0 +1,217 @@
+package Project.Server;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import Project.Common.ExecutorScheduler;
+import Project.Common.LoggerUtil;
+import Project.Common.Scheduler;
+import Project.Common.TimerType;
+
+/**
+ * Coalesces the high-frequency game state of a GameRoom for its spectators.
+ * <p>
+ * Players keep receiving every update directly; spectators only get the latest
+ * timer/points/turn values and the merged game events once per interval, as
+ * one batch each. The flush runs on the Room's scheduler (its game loop, or
+ * virtual time in simulations) and re-schedules itself while there are
+ * spectators, so an audience costs no thread of its own.
+ * </p>
+ */
+public class SpectatorBroadcaster {
+    public static final long DEFAULT_INTERVAL_MS = 500;
+
+    private final String roomName;
+    private final Scheduler scheduler;
+    private final ConcurrentHashMap<Long, ServerThread> spectators = new ConcurrentHashMap<>();
+    private long intervalMs = DEFAULT_INTERVAL_MS;
+    // guarded by this; a new generation per start() so a flush of a stopped run
+    // doesn't schedule another
+    private Scheduler.Cancellable nextFlush = null;
+    private long generation = 0;
+
+    // pending state, guarded by this
+    private final EnumMap<TimerType, Long> pendingTimers = new EnumMap<>(TimerType.class);
+    private final Map<Long, Integer> pendingPoints = new LinkedHashMap<>();
+    private final Map<Long, Boolean> pendingTurns = new LinkedHashMap<>();
+    private final List<String> pendingEvents = new ArrayList<>();
+
+    public SpectatorBroadcaster(String roomName) {
+        this(roomName, ExecutorScheduler.DEFAULT);
+    }
+
+    /**
+     * @param roomName
+     * @param scheduler the Room's scheduler; flushes run on it and timer
+     *                  deadlines are on its clock
+     */
+    public SpectatorBroadcaster(String roomName, Scheduler scheduler) {
+        this.roomName = roomName;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Sets how often the coalesced state is pushed to spectators
+     *
+     * @param intervalMs flush interval in milliseconds (applies on the next start)
+     */
+    public synchronized void setInterval(long intervalMs) {
+        if (intervalMs <= 0) {
+            throw new IllegalArgumentException("Interval must be positive");
+        }
+        this.intervalMs = intervalMs;
+    }
+
+    public long getInterval() {
+        return intervalMs;
+    }
+
+    public void add(ServerThread client) {
+        spectators.put(client.getClientId(), client);
+        start();
+    }
+
+    public void remove(ServerThread client) {
+        spectators.remove(client.getClientId());
+        if (spectators.isEmpty()) {
+            stop();
+        }
+    }
+
+    public boolean contains(ServerThread client) {
+        return spectators.containsKey(client.getClientId());
+    }
+
+    public int size() {
+        return spectators.size();
+    }
+
+    /**
+     * @return a copy of the current spectators
+     */
+    public List<ServerThread> getSpectators() {
+        return new ArrayList<>(spectators.values());
+    }
+
+    /**
+     * Removes all spectators (i.e., they become regular recipients again)
+     */
+    public void clear() {
+        spectators.clear();
+        stop();
+        synchronized (this) {
+            pendingTimers.clear();
+            pendingPoints.clear();
+            pendingTurns.clear();
+            pendingEvents.clear();
+        }
+    }
+
+    // queue methods only keep the latest value per key
+    public synchronized void queueTime(TimerType timerType, long expiresAt) {
+        if (!spectators.isEmpty()) {
+            pendingTimers.put(timerType, expiresAt);
+        }
+    }
+
+    public synchronized void queuePoints(long clientId, int points) {
+        if (!spectators.isEmpty()) {
+            pendingPoints.put(clientId, points);
+        }
+    }
+
+    public synchronized void queueTurnStatus(long clientId, boolean didTakeTurn) {
+        if (!spectators.isEmpty()) {
+            pendingTurns.put(clientId, didTakeTurn);
+        }
+    }
+
+    public synchronized void queueGameEvent(String event) {
+        if (!spectators.isEmpty()) {
+            pendingEvents.add(event);
+        }
+    }
+
+    private synchronized void start() {
+        if (nextFlush != null) {
+            return;
+        }
+        scheduleFlush(++generation);
+    }
+
+    private synchronized void scheduleFlush(long run) {
+        nextFlush = scheduler.schedule(() -> {
+            flush();
+            synchronized (this) {
+                if (run == generation && nextFlush != null) {
+                    scheduleFlush(run);
+                }
+            }
+        }, intervalMs);
+    }
+
+    private synchronized void stop() {
+        if (nextFlush != null) {
+            nextFlush.cancel();
+            nextFlush = null;
+            generation++;
+        }
+    }
+
+    /**
+     * Sends the coalesced state to every spectator; the pending state is swapped
+     * out under the lock and the sends happen outside of it
+     */
+    protected void flush() {
+        EnumMap<TimerType, Long> timers;
+        Map<Long, Integer> points;
+        Map<Long, Boolean> turns;
+        String events;
+        synchronized (this) {
+            if (pendingTimers.isEmpty() && pendingPoints.isEmpty() && pendingTurns.isEmpty()
+                    && pendingEvents.isEmpty()) {
+                return;
+            }
+            timers = new EnumMap<>(pendingTimers);
+            points = new LinkedHashMap<>(pendingPoints);
+            turns = new LinkedHashMap<>(pendingTurns);
+            events = pendingEvents.isEmpty() ? null : String.join("\n", pendingEvents);
+            pendingTimers.clear();
+            pendingPoints.clear();
+            pendingTurns.clear();
+            pendingEvents.clear();
+        }
+        spectators.values().removeIf(spectator -> {
+            boolean sent = true;
+            // muted topics stay muted while spectating
+            spectator.beginBatch();
+            if (!spectator.isMuted(TopicRouter.TIMERS)) {
+                for (Map.Entry<TimerType, Long> entry : timers.entrySet()) {
+                    sent &= spectator.sendCurrentTime(entry.getKey(), entry.getValue(), scheduler);
+                }
+            }
+            if (!spectator.isMuted(TopicRouter.GAME_STATE)) {
+                for (Map.Entry<Long, Integer> entry : points.entrySet()) {
+                    sent &= spectator.sendPlayerPoints(entry.getKey(), entry.getValue());
+                }
+                for (Map.Entry<Long, Boolean> entry : turns.entrySet()) {
+                    sent &= spectator.sendTurnStatus(entry.getKey(), entry.getValue(), true);
+                }
+            }
+            if (events != null && !spectator.isMuted(TopicRouter.GAME_EVENTS)) {
+                sent &= spectator.sendGameEvent(events);
+            }
+            sent &= spectator.endBatch();
+            if (!sent) {
+                // the owning Room cleans up the connection via the read thread
+                LoggerUtil.INSTANCE.warning(
+                        String.format("Dropping disconnected spectator %s of %s", spectator.getDisplayName(), roomName));
+            }
+            return !sent;
+        });
+    }
+}
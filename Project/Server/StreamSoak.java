@@ -0,0 +1,95 @@
+package Project.Server;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.logging.Level;
+
+import Project.Common.Constants;
+import Project.Common.LoggerUtil;
+
+/**
+ * Soak run for the ObjectOutputStream resets of BaseServerThread: one
+ * long-lived connection sends millions of distinct MESSAGE payloads through
+ * the real send path into a discarding stream. With resets on, the heap left
+ * after a GC must stay flat; without them the stream's handle table keeps
+ * every payload ever sent. The run without resets is only printed for
+ * comparison.
+ * <p>
+ * Exits with 1 if the heap grew more than MAX_GROWTH_MB with resets on.
+ * </p>
+ * <p>
+ * Usage: StreamSoak [payloads]
+ * </p>
+ */
+class StreamSoak {
+    private static final long MAX_GROWTH_MB = 16;
+    private static final int CHECKPOINTS = 8;
+
+    private static final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+    /**
+     * A socketless connection whose output goes nowhere
+     */
+    private static ServerThread connect() throws IOException {
+        ServerThread connection = new SocketlessClient("Soak");
+        connection.out = new ObjectOutputStream(OutputStream.nullOutputStream());
+        connection.isRunning = true;
+        return connection;
+    }
+
+    private static long usedAfterGc() {
+        System.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * Sends the payloads and returns the largest heap growth seen at the
+     * checkpoints
+     */
+    private static long soak(String label, int payloads, int resetInterval) throws IOException {
+        BaseServerThread.setResetInterval(resetInterval);
+        ServerThread connection = connect();
+        long baseline = usedAfterGc();
+        long maxGrowth = 0;
+        int every = Math.max(1, payloads / CHECKPOINTS);
+        long start = System.nanoTime();
+        for (int i = 1; i <= payloads; i++) {
+            if (!connection.sendMessage(Constants.DEFAULT_CLIENT_ID, "soak message " + i)) {
+                throw new IllegalStateException("send failed at payload " + i);
+            }
+            if (i % every == 0) {
+                maxGrowth = Math.max(maxGrowth, usedAfterGc() - baseline);
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1_000_000_000d;
+        System.out.println(String.format("%-14s payloads[%s] resetInterval[%s] maxGrowth[%.1fMB] payloadsPerSecond[%.0f]",
+                label, payloads, resetInterval == Integer.MAX_VALUE ? "off" : resetInterval,
+                maxGrowth / 1_048_576d, payloads / seconds));
+        // keeps the stream (and what it retained) reachable until the last checkpoint
+        connection.out.close();
+        return maxGrowth;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int payloads = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+
+        LoggerUtil.LoggerConfig config = new LoggerUtil.LoggerConfig();
+        config.setLogLocation("stream-soak.log");
+        config.setFileLogLevel(Level.SEVERE);
+        config.setConsoleLogLevel(Level.SEVERE);
+        LoggerUtil.INSTANCE.setConfig(config);
+
+        long withResets = soak("resets on", payloads, Constants.STREAM_RESET_INTERVAL);
+        soak("resets off", payloads, Integer.MAX_VALUE);
+        BaseServerThread.setResetInterval(Constants.STREAM_RESET_INTERVAL);
+
+        boolean isBounded = withResets <= MAX_GROWTH_MB * 1_048_576;
+        System.out.println(String.format("bounded[%s] limit[%sMB]", isBounded, MAX_GROWTH_MB));
+        if (!isBounded) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package Project.Server;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import Project.Common.TopicPayload;
+
+/**
+ * Per-Room publish/subscribe of outbound updates.
+ * <p>
+ * Every fan-out of a Room goes through a named topic instead of its own loop
+ * over all members. Each topic keeps its subscribers by id (O(1) membership)
+ * plus an array snapshot that publish() iterates without locking. The
+ * snapshot is rebuilt lazily on the first publish after a change, so a burst
+ * of joins costs one copy instead of one per join.
+ * </p>
+ * <p>
+ * Members can mute the optional topics (see ServerThread#setMuted); team
+ * channels ("team:&lt;name&gt;") are opt-in and disappear once empty.
+ * </p>
+ */
+public class TopicRouter {
+    public static final String MEMBERS = "members"; // room/session state everyone needs (can't be muted)
+    public static final String CHAT = "chat";
+    public static final String GAME_EVENTS = "game-events";
+    public static final String TIMERS = "timers";
+    public static final String GAME_STATE = "game-state"; // turn status and points
+    public static final String TEAM_PREFIX = TopicPayload.TEAM_PREFIX;
+
+    /**
+     * Topics a member is subscribed to when joining a Room
+     */
+    public static final List<String> DEFAULT_TOPICS = List.of(MEMBERS, CHAT, GAME_EVENTS, TIMERS, GAME_STATE);
+
+    private static final ServerThread[] NONE = new ServerThread[0];
+    private static final int MAX_TEAM_NAME_LENGTH = 32;
+
+    // metrics (shared across Rooms)
+    private static final AtomicLong published = new AtomicLong();
+    private static final AtomicLong delivered = new AtomicLong();
+    private static final AtomicLong rebuilds = new AtomicLong();
+
+    private static class Topic {
+        private final ConcurrentHashMap<Long, ServerThread> subscribers = new ConcurrentHashMap<>();
+        private ServerThread[] snapshot = NONE; // guarded by this; null when stale
+
+        synchronized boolean add(ServerThread client) {
+            if (subscribers.putIfAbsent(client.getClientId(), client) == null) {
+                snapshot = null;
+                return true;
+            }
+            return false;
+        }
+
+        synchronized boolean remove(long clientId) {
+            if (subscribers.remove(clientId) != null) {
+                snapshot = null;
+                return true;
+            }
+            return false;
+        }
+
+        synchronized ServerThread[] snapshot() {
+            if (snapshot == null) {
+                snapshot = subscribers.values().toArray(NONE);
+                rebuilds.incrementAndGet();
+            }
+            return snapshot;
+        }
+    }
+
+    private final ConcurrentHashMap<String, Topic> topics = new ConcurrentHashMap<>();
+
+    public TopicRouter() {
+        DEFAULT_TOPICS.forEach(topic -> topics.put(topic, new Topic()));
+    }
+
+    /**
+     * @param topic
+     * @return true if it's a built-in topic or a valid team channel
+     */
+    public static boolean isValidTopic(String topic) {
+        if (topic == null) {
+            return false;
+        }
+        if (DEFAULT_TOPICS.contains(topic)) {
+            return true;
+        }
+        return isTeamTopic(topic) && topic.length() > TEAM_PREFIX.length()
+                && topic.length() <= TEAM_PREFIX.length() + MAX_TEAM_NAME_LENGTH
+                && topic.substring(TEAM_PREFIX.length()).chars().allMatch(TopicRouter::isTeamNameChar);
+    }
+
+    // team names are echoed into chat, so they're kept to plain identifiers
+    private static boolean isTeamNameChar(int c) {
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '_' || c == '-';
+    }
+
+    public static boolean isTeamTopic(String topic) {
+        return topic != null && topic.startsWith(TEAM_PREFIX);
+    }
+
+    /**
+     * Subscribes a client unless they muted the topic
+     *
+     * @param client
+     * @param topic
+     * @return true if the client is now subscribed
+     */
+    public boolean subscribe(ServerThread client, String topic) {
+        if (!isValidTopic(topic) || client.isMuted(topic)) {
+            return false;
+        }
+        // team channels are created on first use; compute() is atomic per key so this
+        // can't add to a channel unsubscribe() is dropping
+        topics.compute(topic, (k, t) -> {
+            Topic existing = t == null ? new Topic() : t;
+            existing.add(client);
+            return existing;
+        });
+        return true;
+    }
+
+    /**
+     * @param client
+     * @param topic
+     * @return true if the client was subscribed
+     */
+    public boolean unsubscribe(ServerThread client, String topic) {
+        Topic t = topics.get(topic);
+        if (t == null || !t.remove(client.getClientId())) {
+            return false;
+        }
+        if (isTeamTopic(topic)) {
+            // drop empty team channels
+            topics.computeIfPresent(topic, (k, existing) -> existing.subscribers.isEmpty() ? null : existing);
+        }
+        return true;
+    }
+
+    /**
+     * Unsubscribes a client from everything (i.e., they left the Room)
+     *
+     * @param client
+     */
+    public void removeClient(ServerThread client) {
+        for (String topic : new ArrayList<>(topics.keySet())) {
+            unsubscribe(client, topic);
+        }
+    }
+
+    /**
+     * Drops every subscription (i.e., the Room closed)
+     */
+    public void clear() {
+        topics.keySet().removeIf(TopicRouter::isTeamTopic);
+        topics.values().forEach(t -> {
+            synchronized (t) {
+                t.subscribers.clear();
+                t.snapshot = NONE;
+            }
+        });
+    }
+
+    public boolean isSubscribed(String topic, long clientId) {
+        Topic t = topics.get(topic);
+        return t != null && t.subscribers.containsKey(clientId);
+    }
+
+    /**
+     * @param topic
+     * @param clientId
+     * @return the subscribed client or null
+     */
+    public ServerThread getSubscriber(String topic, long clientId) {
+        Topic t = topics.get(topic);
+        return t == null ? null : t.subscribers.get(clientId);
+    }
+
+    public int size(String topic) {
+        Topic t = topics.get(topic);
+        return t == null ? 0 : t.subscribers.size();
+    }
+
+    /**
+     * Sends to every subscriber of a topic
+     *
+     * @param topic
+     * @param send  the send call for one recipient; returns false if it failed
+     * @return the recipients that failed to receive it (for the Room to clean
+     *         up)
+     */
+    public List<ServerThread> publish(String topic, Predicate<ServerThread> send) {
+        Topic t = topics.get(topic);
+        if (t == null) {
+            return Collections.emptyList();
+        }
+        ServerThread[] recipients = t.snapshot();
+        published.incrementAndGet();
+        delivered.addAndGet(recipients.length);
+        List<ServerThread> failed = null;
+        for (ServerThread recipient : recipients) {
+            if (!send.test(recipient)) {
+                if (failed == null) {
+                    failed = new ArrayList<>();
+                }
+                failed.add(recipient);
+            }
+        }
+        return failed == null ? Collections.emptyList() : failed;
+    }
+
+    /**
+     * Sends to the given subscribers of a topic; cost depends on the number of
+     * targets, not the number of subscribers
+     *
+     * @param topic
+     * @param targets client ids
+     * @param send
+     * @return the recipients that failed to receive it
+     */
+    public List<ServerThread> publish(String topic, Set<Long> targets, Predicate<ServerThread> send) {
+        Topic t = topics.get(topic);
+        if (t == null) {
+            return Collections.emptyList();
+        }
+        published.incrementAndGet();
+        List<ServerThread> failed = null;
+        for (long id : targets) {
+            ServerThread recipient = t.subscribers.get(id);
+            if (recipient == null) {
+                continue;
+            }
+            delivered.incrementAndGet();
+            if (!send.test(recipient)) {
+                if (failed == null) {
+                    failed = new ArrayList<>();
+                }
+                failed.add(recipient);
+            }
+        }
+        return failed == null ? Collections.emptyList() : failed;
+    }
+
+    public static String getStats() {
+        return String.format("Topics published[%s] delivered[%s] snapshotRebuilds[%s]", published.get(),
+                delivered.get(), rebuilds.get());
+    }
+}
@@ -0,0 +1,416 @@
+package Project.Server;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.logging.Level;
+
+import Project.Common.Constants;
+import Project.Common.LoggerUtil;
+import Project.Common.Scheduler;
+import Project.Common.VirtualScheduler;
+import Project.Exceptions.DuplicateRoomException;
+import Project.Exceptions.RoomNotFoundException;
+
+/**
+ * Single-elimination tournament played in GameRooms.
+ * <p>
+ * Players are seeded into a standard bracket (seed 1 meets the lowest seed,
+ * and the top seeds only meet in the late rounds; missing players are byes).
+ * Each match gets its own GameRoom: both players are migrated in from the
+ * hall and readied, the Room's session listener reports the standings when the
+ * session ends, and everyone goes back to the hall while the winner waits for
+ * the next round. Ties go to the higher seed; a match that never finishes
+ * (MATCH_TIMEOUT_MS) or a player who left is a walkover.
+ * </p>
+ * <p>
+ * Hundreds of matches can run at once, but at most maxConcurrentMatches, and
+ * their starts are spaced START_INTERVAL_MS apart so the 30 second ready/turn
+ * timers of a round don't all expire in the same instant and the migrations
+ * and their roster updates are spread out. Results are only sent to the two
+ * players of a match; nothing is broadcast per match.
+ * </p>
+ * <p>
+ * All tournament state is only touched from its own Scheduler (a GameExecutor
+ * queue on the server), so the game loops just hand results over to it.
+ * </p>
+ */
+public class Tournament {
+    public static final int DEFAULT_MAX_CONCURRENT_MATCHES = 256;
+    public static final long START_INTERVAL_MS = 20;
+    public static final long MATCH_TIMEOUT_MS = 20 * 60 * 1000L;
+
+    // metrics
+    private static final AtomicLong tournaments = new AtomicLong();
+    private static final AtomicLong matchesPlayed = new AtomicLong();
+    private static final AtomicLong walkovers = new AtomicLong();
+
+    private final String name;
+    private final List<ServerThread> players; // in seed order
+    private final Room hall; // where players wait between matches
+    private final Function<String, GameRoom> roomFactory;
+    private final Scheduler scheduler;
+    private final GameExecutor.RoomQueue ownQueue; // released when done (null if the scheduler was passed in)
+    private final int maxConcurrentMatches;
+
+    private final Deque<Match> queued = new ArrayDeque<>();
+    private ServerThread[] nextEntrants = new ServerThread[0];
+    private int round = 0;
+    private int roundMatchesLeft = 0;
+    private int running = 0;
+    private int maxRunning = 0;
+    private int played = 0;
+    private int eliminated = 0;
+    private long nextStartAt = 0;
+    private volatile ServerThread champion = null;
+
+    private class Match {
+        private final int index; // position in the round
+        private final ServerThread first; // higher seed
+        private final ServerThread second;
+        private GameRoom room = null;
+        private Scheduler.Cancellable timeout = null;
+        private boolean isDone = false;
+
+        private Match(int index, ServerThread first, ServerThread second) {
+            this.index = index;
+            this.first = first;
+            this.second = second;
+        }
+    }
+
+    /**
+     * @param name
+     * @param players              in seed order (best first), all in the hall
+     * @param hall                 the Room players wait in between matches
+     * @param roomFactory          creates a match's GameRoom by name
+     * @param scheduler            runs the tournament; only used from one thread
+     *                             at a time
+     * @param maxConcurrentMatches
+     */
+    public Tournament(String name, List<ServerThread> players, Room hall, Function<String, GameRoom> roomFactory,
+            Scheduler scheduler, int maxConcurrentMatches) {
+        this(name, players, hall, roomFactory, scheduler, null, maxConcurrentMatches);
+    }
+
+    private Tournament(String name, List<ServerThread> players, Room hall, Function<String, GameRoom> roomFactory,
+            Scheduler scheduler, GameExecutor.RoomQueue ownQueue, int maxConcurrentMatches) {
+        if (players.size() < 2) {
+            throw new IllegalArgumentException("A tournament needs at least 2 players");
+        }
+        if (maxConcurrentMatches < 1) {
+            throw new IllegalArgumentException("At least one match has to be able to run");
+        }
+        this.name = name;
+        this.players = new ArrayList<>(players);
+        this.hall = hall;
+        this.roomFactory = roomFactory;
+        this.scheduler = scheduler;
+        this.ownQueue = ownQueue;
+        this.maxConcurrentMatches = maxConcurrentMatches;
+    }
+
+    /**
+     * A tournament on the server (the console's tournament command): players
+     * wait in the lobby, matches are listed GameRooms and the tournament runs on
+     * its own game loop queue
+     *
+     * @param name
+     * @param players in seed order
+     * @return
+     */
+    public static Tournament inLobby(String name, List<ServerThread> players) {
+        Room lobby = Server.INSTANCE.getRoom(Room.LOBBY);
+        Function<String, GameRoom> roomFactory = roomName -> {
+            try {
+                Server.INSTANCE.createRoom(roomName);
+            } catch (DuplicateRoomException e) {
+                throw new IllegalStateException(e.getMessage());
+            }
+            return (GameRoom) Server.INSTANCE.getRoom(roomName);
+        };
+        GameExecutor.RoomQueue queue = GameExecutor.INSTANCE.register("Tournament-" + name);
+        return new Tournament(name, players, lobby, roomFactory, queue, queue, DEFAULT_MAX_CONCURRENT_MATCHES);
+    }
+
+    public void start() {
+        tournaments.incrementAndGet();
+        int size = Integer.highestOneBit(players.size() - 1) << 1;
+        ServerThread[] entrants = new ServerThread[size];
+        int[] order = seedOrder(size);
+        for (int position = 0; position < size; position++) {
+            entrants[position] = order[position] < players.size() ? players.get(order[position]) : null;
+        }
+        scheduler.schedule(() -> startRound(entrants), 0);
+    }
+
+    /**
+     * Bracket positions of the seeds: 0 and 1 can only meet in the final, 0-3
+     * in the semifinals, and so on
+     *
+     * @param size a power of 2
+     * @return seed (0 is the best) at each position
+     */
+    static int[] seedOrder(int size) {
+        int[] order = { 0 };
+        while (order.length < size) {
+            int[] next = new int[order.length * 2];
+            for (int i = 0; i < order.length; i++) {
+                next[2 * i] = order[i];
+                next[2 * i + 1] = next.length - 1 - order[i];
+            }
+            order = next;
+        }
+        return order;
+    }
+
+    /**
+     * Pairs up the entrants, settles byes right away and queues the matches
+     *
+     * @param entrants bracket positions; null for a bye
+     */
+    private void startRound(ServerThread[] entrants) {
+        if (entrants.length == 1) {
+            finishTournament(entrants[0]);
+            return;
+        }
+        round++;
+        nextEntrants = new ServerThread[entrants.length / 2];
+        roundMatchesLeft = 0;
+        for (int i = 0; i < nextEntrants.length; i++) {
+            ServerThread first = entrants[2 * i];
+            ServerThread second = entrants[2 * i + 1];
+            if (first == null || second == null) {
+                nextEntrants[i] = first != null ? first : second; // bye
+            } else {
+                roundMatchesLeft++;
+                queued.add(new Match(i, first, second));
+            }
+        }
+        LoggerUtil.INSTANCE.info(String.format("Tournament %s round %d: %d matches", name, round, roundMatchesLeft));
+        if (roundMatchesLeft == 0) {
+            startRound(nextEntrants);
+            return;
+        }
+        startQueuedMatches();
+    }
+
+    /**
+     * Starts queued matches up to maxConcurrentMatches, spaced by
+     * START_INTERVAL_MS
+     */
+    private void startQueuedMatches() {
+        while (running < maxConcurrentMatches && !queued.isEmpty()) {
+            Match match = queued.poll();
+            running++;
+            maxRunning = Math.max(maxRunning, running);
+            long now = scheduler.now();
+            nextStartAt = Math.max(nextStartAt, now);
+            scheduler.schedule(() -> startMatch(match), nextStartAt - now);
+            nextStartAt += START_INTERVAL_MS;
+        }
+    }
+
+    private void startMatch(Match match) {
+        List<ServerThread> seated = new ArrayList<>(2);
+        for (ServerThread player : List.of(match.first, match.second)) {
+            // players who left the hall (or disconnected) forfeit
+            if (player.getCurrentRoom() == hall) {
+                seated.add(player);
+            }
+        }
+        if (seated.size() < 2) {
+            finishMatch(match, seated.isEmpty() ? match.first : seated.get(0), true);
+            return;
+        }
+        try {
+            GameRoom room = roomFactory.apply(String.format("%s-r%d-m%d", name, round, match.index + 1));
+            match.room = room;
+            room.setSessionListener(result -> scheduler.schedule(() -> {
+                if (!match.isDone) {
+                    finishMatch(match, pickWinner(match, result), false);
+                }
+            }, 0));
+            Server.INSTANCE.migrate(seated, room);
+            room.execute(() -> seated.forEach(room::handleReady));
+            match.first.sendMessage(Constants.DEFAULT_CLIENT_ID, String.format("Tournament %s round %d: you vs %s",
+                    name, round, MessageFormatter.escape(match.second.getDisplayName())));
+            match.second.sendMessage(Constants.DEFAULT_CLIENT_ID, String.format("Tournament %s round %d: you vs %s",
+                    name, round, MessageFormatter.escape(match.first.getDisplayName())));
+            match.timeout = scheduler.schedule(() -> {
+                if (!match.isDone) {
+                    finishMatch(match, pickWalkoverWinner(match), true);
+                }
+            }, MATCH_TIMEOUT_MS);
+        } catch (RoomNotFoundException | RuntimeException e) {
+            LoggerUtil.INSTANCE.severe(String.format("Tournament %s couldn't start a match", name), e);
+            finishMatch(match, pickWalkoverWinner(match), true);
+        }
+    }
+
+    /**
+     * The best player still in the session; ties go to the higher seed
+     */
+    private ServerThread pickWinner(Match match, GameRoom.SessionResult result) {
+        List<ServerThread> standings = result.getStandings();
+        if (standings.isEmpty()) {
+            return pickWalkoverWinner(match);
+        }
+        ServerThread best = standings.get(0);
+        if (best != match.first && standings.contains(match.first)
+                && result.getScore(match.first) == result.getScore(best)) {
+            return match.first;
+        }
+        return best;
+    }
+
+    /**
+     * The higher seed unless only the lower seed is still around
+     */
+    private ServerThread pickWalkoverWinner(Match match) {
+        boolean isFirstThere = match.room != null ? match.first.getCurrentRoom() == match.room
+                : match.first.getCurrentRoom() == hall;
+        boolean isSecondThere = match.room != null ? match.second.getCurrentRoom() == match.room
+                : match.second.getCurrentRoom() == hall;
+        return !isFirstThere && isSecondThere ? match.second : match.first;
+    }
+
+    private void finishMatch(Match match, ServerThread winner, boolean isWalkover) {
+        match.isDone = true;
+        if (match.timeout != null) {
+            match.timeout.cancel();
+        }
+        ServerThread loser = winner == match.first ? match.second : match.first;
+        if (match.room != null) {
+            match.room.setSessionListener(null);
+            List<ServerThread> leaving = new ArrayList<>(2);
+            for (ServerThread player : List.of(match.first, match.second)) {
+                if (player.getCurrentRoom() == match.room) {
+                    leaving.add(player);
+                }
+            }
+            try {
+                // the match Room closes once it's empty
+                Server.INSTANCE.migrate(leaving, hall);
+            } catch (RoomNotFoundException e) {
+                LoggerUtil.INSTANCE.severe(String.format("Tournament %s lost its hall", name), e);
+            }
+        }
+        matchesPlayed.incrementAndGet();
+        if (isWalkover) {
+            walkovers.incrementAndGet();
+        }
+        played++;
+        eliminated++;
+        running--;
+        nextEntrants[match.index] = winner;
+        winner.sendMessage(Constants.DEFAULT_CLIENT_ID,
+                String.format("You beat %s in round %d of tournament %s", MessageFormatter.escape(loser.getDisplayName()),
+                        round, name));
+        loser.sendMessage(Constants.DEFAULT_CLIENT_ID,
+                String.format("%s knocked you out of tournament %s in round %d",
+                        MessageFormatter.escape(winner.getDisplayName()), name, round));
+        if (--roundMatchesLeft == 0) {
+            startRound(nextEntrants);
+        } else {
+            startQueuedMatches();
+        }
+    }
+
+    private void finishTournament(ServerThread winner) {
+        champion = winner;
+        winner.sendMessage(Constants.DEFAULT_CLIENT_ID, String.format("You won tournament %s!", name));
+        LoggerUtil.INSTANCE.info(String.format("Tournament %s won by %s after %d rounds", name,
+                winner.getDisplayName(), round));
+        if (ownQueue != null) {
+            ownQueue.release();
+        }
+    }
+
+    public boolean isFinished() {
+        return champion != null;
+    }
+
+    public ServerThread getChampion() {
+        return champion;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Tournament[%s] players[%s] round[%s] played[%s] eliminated[%s] running[%s] maxRunning[%s]"
+                + " queued[%s] champion[%s]", name, players.size(), round, played, eliminated, running, maxRunning,
+                queued.size(), champion == null ? "-" : champion.getDisplayName());
+    }
+
+    public static String getStats() {
+        return String.format("Tournament tournaments[%s] matches[%s] walkovers[%s]", tournaments.get(),
+                matchesPlayed.get(), walkovers.get());
+    }
+
+    /**
+     * Simulated tournament of bots on virtual time: every match is a real
+     * GameRoom session with all its timers, checked for a single champion,
+     * one elimination per other player and the concurrency limit
+     *
+     * @param args [players] [maxConcurrentMatches]
+     */
+    public static void main(String[] args) {
+        int playerCount = args.length > 0 ? Integer.parseInt(args[0]) : 1024;
+        int maxConcurrent = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_MAX_CONCURRENT_MATCHES;
+
+        LoggerUtil.LoggerConfig config = new LoggerUtil.LoggerConfig();
+        config.setLogLocation("tournament-sim.log");
+        config.setFileLogLevel(Level.WARNING);
+        config.setConsoleLogLevel(Level.SEVERE);
+        LoggerUtil.INSTANCE.setConfig(config);
+        ChatHistory.setDirectory(null);
+
+        long start = System.nanoTime();
+        VirtualScheduler scheduler = new VirtualScheduler();
+        Room hall = new Room("Hall");
+        List<ServerThread> bots = new ArrayList<>();
+        for (int i = 0; i < playerCount; i++) {
+            bots.add(new BotPlayer());
+        }
+        try {
+            Server.INSTANCE.migrate(bots, hall);
+        } catch (RoomNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+        Tournament tournament = new Tournament("Sim", bots, hall, roomName -> new GameRoom(roomName, scheduler),
+                scheduler, maxConcurrent);
+        tournament.start();
+        while (!tournament.isFinished() && scheduler.runNext()) {
+        }
+        double seconds = (System.nanoTime() - start) / 1_000_000_000d;
+
+        List<String> problems = new ArrayList<>();
+        if (!tournament.isFinished()) {
+            problems.add("no champion");
+        }
+        if (tournament.eliminated != playerCount - 1) {
+            problems.add(String.format("%d eliminations for %d players", tournament.eliminated, playerCount));
+        }
+        int expectedRounds = 32 - Integer.numberOfLeadingZeros(playerCount - 1);
+        if (tournament.round != expectedRounds) {
+            problems.add(String.format("%d rounds instead of %d", tournament.round, expectedRounds));
+        }
+        if (tournament.maxRunning > maxConcurrent) {
+            problems.add(String.format("%d matches at once", tournament.maxRunning));
+        }
+        long stillPlaying = bots.stream().filter(bot -> bot.getCurrentRoom() != hall).count();
+        if (stillPlaying > 0) {
+            problems.add(String.format("%d players didn't make it back to the hall", stillPlaying));
+        }
+        System.out.println(tournament);
+        System.out.println(String.format("virtual[%.1fh] real[%.2fs] tasks[%s] %s", scheduler.now() / 3_600_000d,
+                seconds, scheduler.getTasksRun(), getStats()));
+        System.out.println(BotPlayer.getStats());
+        System.out.println(String.format("problems%s", Arrays.toString(problems.toArray())));
+        System.exit(problems.isEmpty() ? 0 : 1);
+    }
+}